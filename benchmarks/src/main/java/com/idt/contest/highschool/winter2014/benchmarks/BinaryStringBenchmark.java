@@ -0,0 +1,73 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.idt.contest.highschool.winter2014.codetotest.StringUtility;
+
+/**
+ * Class benchmarking the StringUtility methods that work on binary strings. Strings
+ * shorter than a byte are padded, longer ones are cut, so both paths are measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryStringBenchmark extends TesterState {
+
+	/**
+	 * number of binary digits in each string
+	 */
+	@Param({"1", "8", "18", "64"})
+	public int digits;
+
+	private final StringUtility stringUtility = new StringUtility();
+
+	private String[] binaryStrings;
+
+	private int index;
+
+
+	/**
+	 * Method used to generate binary strings of the chosen length
+	 */
+	@Setup(Level.Trial)
+	public void generateStrings() {
+		binaryStrings = new String[256];
+		for (int i = 0; i < binaryStrings.length; i++) {
+			StringBuilder builder = new StringBuilder(digits);
+			for (int bit = digits - 1; bit >= 0; bit--) {
+				builder.append(((i >>> (bit % 8)) & 1) == 1 ? '1' : '0');
+			}
+			binaryStrings[i] = builder.toString();
+		}
+	}
+
+
+	@Benchmark
+	public String binaryByteTwosCompliment() {
+		index = next(index, binaryStrings.length);
+		return stringUtility.binaryByteTwosCompliment(binaryStrings[index]);
+	}
+
+
+	@Benchmark
+	public String formatBinaryByteString() {
+		index = next(index, binaryStrings.length);
+		return stringUtility.formatBinaryByteString(binaryStrings[index]);
+	}
+}
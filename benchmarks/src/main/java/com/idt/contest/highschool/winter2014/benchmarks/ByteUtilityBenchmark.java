@@ -0,0 +1,50 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.idt.contest.highschool.winter2014.codetotest.ByteUtility;
+
+/**
+ * Class benchmarking the ByteUtility methods over every byte value and shift distance
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteUtilityBenchmark extends TesterState {
+
+	/**
+	 * number of byte values
+	 */
+	private static final int BYTES = 256;
+
+	private final ByteUtility byteUtility = new ByteUtility();
+
+	private int index;
+
+
+	@Benchmark
+	public String byteToBinytaryString() {
+		index = next(index, BYTES);
+		return byteUtility.byteToBinytaryString((byte) index);
+	}
+
+
+	@Benchmark
+	public byte shiftByte() {
+		index = next(index, BYTES);
+		return byteUtility.shiftByte((byte) index, index % 10, (index & 1) == 0);
+	}
+}
@@ -0,0 +1,127 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.idt.contest.highschool.winter2014.codetotest.MathUtility;
+
+/**
+ * Class benchmarking the constant time MathUtility methods. Inputs cycle through random
+ * values and the values of the batch script, which the BuiltInTester has expectations for.
+ * The bulk overloads are timed per value so they compare directly with the single value methods
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MathUtilityBenchmark extends TesterState {
+
+	/**
+	 * number of inputs cycled through
+	 */
+	private static final int INPUTS = 256;
+
+	private final MathUtility mathUtility = new MathUtility();
+
+	private int[] ints;
+	private double[] doubles;
+	private float[] floats;
+	private short[] shorts;
+
+	private int index;
+
+
+	/**
+	 * Method used to generate the same inputs on every run
+	 */
+	@Setup(Level.Trial)
+	public void generateInputs() {
+		Random random = new Random(INPUTS);
+		ints = new int[INPUTS];
+		doubles = new double[INPUTS];
+		floats = new float[INPUTS];
+		shorts = new short[INPUTS];
+		for (int i = 0; i < INPUTS; i++) {
+			ints[i] = random.nextInt();
+			doubles[i] = random.nextDouble() * 1000.0;
+			floats[i] = random.nextFloat() * 100.0f;
+			shorts[i] = (short) (random.nextInt(41) - 20);
+		}
+
+		// values from the batch script
+		ints[0] = 2;
+		ints[1] = 3;
+		doubles[0] = 3.0;
+		doubles[1] = 4.0;
+		floats[0] = 1.0f;
+		floats[1] = 0.61f;
+		shorts[0] = 1;
+		shorts[1] = 3;
+		shorts[2] = 1;
+		shorts[3] = 2;
+	}
+
+
+	@Benchmark
+	public boolean isEven() {
+		index = next(index, INPUTS);
+		return mathUtility.isEven(ints[index]);
+	}
+
+
+	@Benchmark
+	public double hypotenus() {
+		index = next(index, INPUTS - 1);
+		return mathUtility.hypotenus(doubles[index], doubles[index + 1]);
+	}
+
+
+	@Benchmark
+	public float convertCurrency() {
+		index = next(index, INPUTS - 1);
+		return mathUtility.convertCurrency(floats[index], floats[index + 1]);
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public boolean[] isEvenBulk() {
+		return mathUtility.isEven(ints);
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public double[] hypotenusBulk() {
+		return mathUtility.hypotenus(doubles, doubles);
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(INPUTS)
+	public float[] convertCurrencyBulk() {
+		return mathUtility.convertCurrency(floats, floats);
+	}
+
+
+	@Benchmark
+	public String multiplySimpleBinomials() {
+		index = next(index, INPUTS - 3);
+		return mathUtility.multiplySimpleBinomials(shorts[index], shorts[index + 1], shorts[index + 2], shorts[index + 3]);
+	}
+}
@@ -0,0 +1,47 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.idt.contest.highschool.winter2014.codetotest.MazeGenerator;
+
+/**
+ * Class benchmarking MazeGenerator.generateMaze on square mazes, starting at the batch
+ * script's 20x20. The maze text is built by String concatenation, which is quadratic in
+ * the number of cells: 200x200 already takes seconds. Pass -p size=1000 to measure a
+ * 1000x1000 maze, it is left out of the default run because it takes hours
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class MazeGeneratorBenchmark extends TesterState {
+
+	/**
+	 * width and height of the maze
+	 */
+	@Param({"20", "100", "200"})
+	public int size;
+
+	private final MazeGenerator mazeGenerator = new MazeGenerator();
+
+	private long seed;
+
+
+	@Benchmark
+	public String generateMaze() {
+		return mazeGenerator.generateMaze(1, 1, size, size, ++seed);
+	}
+}
@@ -0,0 +1,44 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.idt.contest.highschool.winter2014.codetotest.MathUtility;
+
+/**
+ * Class benchmarking MathUtility.primeFactor. Trial division costs up to the square root
+ * of the number, so the numbers range from the batch script's 13195 to a large prime.
+ * Numbers close to Integer.MAX_VALUE are left out, the square of the divider overflows there
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimeFactorBenchmark extends TesterState {
+
+	/**
+	 * number to factor: the batch script value, a power of two and a prime
+	 */
+	@Param({"13195", "1073741824", "999999937"})
+	public int number;
+
+	private final MathUtility mathUtility = new MathUtility();
+
+
+	@Benchmark
+	public int[] primeFactor() {
+		return mathUtility.primeFactor(number);
+	}
+}
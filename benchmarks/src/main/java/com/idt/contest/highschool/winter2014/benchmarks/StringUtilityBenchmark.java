@@ -0,0 +1,80 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.idt.contest.highschool.winter2014.codetotest.StringUtility;
+
+/**
+ * Class benchmarking the StringUtility methods that scan text, from a word up to a
+ * document. The character searched for never occurs, so the search methods scan the
+ * whole text like countVowels does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringUtilityBenchmark extends TesterState {
+
+	/**
+	 * characters the generated text is made of
+	 */
+	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ     ";
+
+	/**
+	 * number of characters in the text
+	 */
+	@Param({"16", "1024", "65536"})
+	public int length;
+
+	private final StringUtility stringUtility = new StringUtility();
+
+	private String text;
+
+
+	/**
+	 * Method used to generate the same random text on every run
+	 */
+	@Setup(Level.Trial)
+	public void generateText() {
+		Random random = new Random(length);
+		char[] chars = new char[length];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+		}
+		text = new String(chars);
+	}
+
+
+	@Benchmark
+	public int countVowels() {
+		return stringUtility.countVowels(text);
+	}
+
+
+	@Benchmark
+	public int indexOfFirstSpecificChar() {
+		return stringUtility.indexOfFirstSpecificChar(text, '#');
+	}
+
+
+	@Benchmark
+	public int indexOfLastSpecificChar() {
+		return stringUtility.indexOfLastSpecificChar(text, '#');
+	}
+}
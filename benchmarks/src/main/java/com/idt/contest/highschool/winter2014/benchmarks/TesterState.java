@@ -0,0 +1,90 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.ohs1.winter2013.BuiltInTester;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Abstract class of the state every benchmark shares. Each benchmark runs once with the
+ * BuiltInTester disabled, the cost of the code under test alone, and once enabled, the
+ * cost of the code under test plus the expectations and log calls peppered through it.
+ * <p>
+ * The tester is enabled again before every iteration, so log entries matched during one
+ * iteration do not pile up and slow down the next. Nothing is written to disk, the
+ * benchmarks never call BuiltInTester.outputLog
+ */
+@State(Scope.Benchmark)
+public abstract class TesterState {
+
+	/**
+	 * whether the BuiltInTester is enabled while the benchmark runs
+	 */
+	@Param({"false", "true"})
+	public boolean testerEnabled;
+
+	/**
+	 * System.out before the benchmark started, some methods under test print their result
+	 */
+	private PrintStream console;
+
+
+	/**
+	 * Method used to stop the methods under test from printing to the console,
+	 * which would measure the terminal instead of the method
+	 */
+	@Setup(Level.Trial)
+	public void silenceConsole() {
+		console = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+	}
+
+
+	/**
+	 * Method used to enable or disable the BuiltInTester with a fresh log before each iteration
+	 */
+	@Setup(Level.Iteration)
+	public void resetTester() {
+		if (testerEnabled) {
+			BuiltInTester.enable("IDT benchmark", "benchmark.html");
+		} else {
+			BuiltInTester.disable();
+		}
+	}
+
+
+	/**
+	 * Method used to disable the BuiltInTester and restore the console after the benchmark
+	 */
+	@TearDown(Level.Trial)
+	public void restoreConsole() {
+		BuiltInTester.disable();
+		System.setOut(console);
+	}
+
+
+	/**
+	 * Method used to pick the next of several inputs, so the JIT compiler cannot fold a
+	 * constant input into the benchmark
+	 * @param index - int counter of the calling benchmark
+	 * @param length - int number of inputs
+	 * @return - int index of the next input
+	 */
+	static int next(int index, int length) {
+		return (index + 1 == length) ? 0 : index + 1;
+	}
+}
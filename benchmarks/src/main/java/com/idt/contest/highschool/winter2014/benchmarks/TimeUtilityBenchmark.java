@@ -0,0 +1,78 @@
+package com.idt.contest.highschool.winter2014.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.idt.contest.highschool.winter2014.codetotest.TimeUtility;
+
+/**
+ * Class benchmarking the TimeUtility parsers on random dates and times, mixed with the
+ * values of the batch script
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeUtilityBenchmark extends TesterState {
+
+	/**
+	 * number of inputs cycled through
+	 */
+	private static final int INPUTS = 256;
+
+	private final TimeUtility timeUtility = new TimeUtility();
+
+	private String[] dates;
+	private String[] times;
+
+	private int index;
+
+
+	/**
+	 * Method used to generate the same dates and times on every run
+	 */
+	@Setup(Level.Trial)
+	public void generateInputs() {
+		Random random = new Random(INPUTS);
+		dates = new String[INPUTS];
+		times = new String[INPUTS];
+		for (int i = 0; i < INPUTS; i++) {
+			dates[i] = String.format("%04d/%02d/%02d", 1970 + random.nextInt(68), 1 + random.nextInt(12), 1 + random.nextInt(28));
+			times[i] = String.format("%d:%02d:%02d.%03d", random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000));
+		}
+
+		// values from the batch script
+		dates[0] = "2013/12/16";
+		dates[1] = "1970/02/02";
+		times[0] = "5:15:25";
+		times[1] = "23:59:59.999";
+	}
+
+
+	@Benchmark
+	public double dateToPosix() {
+		index = next(index, INPUTS);
+		return timeUtility.dateToPosix(dates[index]);
+	}
+
+
+	@Benchmark
+	public double HMSStringTimeToPosix() {
+		index = next(index, INPUTS);
+		return timeUtility.HMSStringTimeToPosix(times[index]);
+	}
+}
@@ -1,37 +1,452 @@
 package com.idt.contest.highschool.winter2014;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.HtmlReportWriter;
+import org.ohs1.winter2013.JUnitReportWriter;
+import org.ohs1.winter2013.JsonLinesReportWriter;
+import org.ohs1.winter2013.PagedHtmlReportWriter;
+import org.ohs1.winter2013.ReportWriter;
 
 import com.idt.contest.highschool.winter2014.framework.BatchMode;
+import com.idt.contest.highschool.winter2014.framework.BenchMode;
+import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
+import com.idt.contest.highschool.winter2014.framework.InvocationRegistry;
 import com.idt.contest.highschool.winter2014.framework.MenuMode;
 import com.idt.contest.highschool.winter2014.framework.Mode;
+import com.idt.contest.highschool.winter2014.framework.ResultSink;
+import com.idt.contest.highschool.winter2014.framework.ServerMode;
+import com.idt.contest.highschool.winter2014.framework.ShardMode;
 
 /**
  * Main class containing main method for com.idt.contest.winter2014 framework
+ * <p>
+ * The application takes a file path to a batch script as single optional argument and
+ * starts in menu mode without one. The path can be preceded by these options:
+ * <ul>
+ * <li>--parallel N - process the script on N worker threads</li>
+ * <li>--pipeline T,C,I,F - process the script on a pipeline with T tokenize, C convert,
+ * I invoke and F format workers</li>
+ * <li>--pipeline-queue N - let N chunks wait between pipeline stages</li>
+ * <li>--shards N - split the script between N worker processes</li>
+ * <li>--compile PLAN - compile the script into a plan file that can be run in its place</li>
+ * <li>--memo N - cache up to N results of deterministic methods</li>
+ * <li>--dedup N - run each distinct line once, remembering up to N lines, not combined
+ * with --parallel or --pipeline unless lines are checkpointed</li>
+ * <li>--format text|csv|json|binary - format results are written in</li>
+ * <li>--output FILE - write batch results to FILE</li>
+ * <li>--flush N - flush batch output once every N lines</li>
+ * <li>--checkpoint N - save a checkpoint next to the --output file every N lines</li>
+ * <li>--resume - resume a run that died from its last checkpoint</li>
+ * <li>--timeout MS - report an invocation taking longer than MS milliseconds as an error</li>
+ * <li>--bench N - time the method of every line over N warmup and N measured iterations</li>
+ * <li>--latency - print per method latencies at the end</li>
+ * <li>--latency-report - also write the latencies to a report next to the test log</li>
+ * <li>--index FILE - load the classes and methods that can be invoked from FILE,
+ * creating it if missing</li>
+ * <li>--serve PORT - serve batch lines sent to PORT on the loopback interface</li>
+ * <li>--stream-log - write test log entries to disk as they are created</li>
+ * <li>--report html|paged|jsonl|junit - formats the test log is written in, separated by commas</li>
+ * <li>--log-keep N - keep the newest N test logs of each format</li>
+ * <li>--log-max-age H - delete test logs older than H hours</li>
+ * <li>--log-compress N - compress all but the newest N test logs of each format with gzip</li>
+ * </ul>
  */
 public class Main {
 
 	/**
 	 * Entry point for the com.idt.contest.winter2014 framework  
 	 * @param args - String arguments supplied as command line arguments
-	 * 				 This application takes a file path to a batch script as single optional argument
 	 */
 	public static void main(String[] args) {
-		BuiltInTester.enable("IDT test program", "TestProgramLog.html");
+		BuiltInTester.enable("IDT test program", FrameworkConstants.HTML_REPORT_NAME);
 			
 		Mode mode;
+		String filepath = null;
+		int parallelism = 1;
+		String compileTarget = null;
+		int memoEntries = 0;
+		int dedupEntries = 0;
+		ResultSink resultSink = null;
+		String outputPath = null;
+		int flushInterval = FrameworkConstants.DEFAULT_FLUSH_INTERVAL;
+		int[] pipelineWorkers = null;
+		int pipelineQueueCapacity = FrameworkConstants.DEFAULT_PIPELINE_QUEUE_CAPACITY;
+		String indexPath = null;
+		int serverPort = 0;
+		boolean trackLatency = false;
+		boolean writeLatencyReport = false;
+		int shards = 0;
+		long[] range = null;
+		String logExportPath = null;
+		int checkpointInterval = 0;
+		boolean resume = false;
+		int benchIterations = 0;
+		int timeoutMillis = 0;
+		boolean streamLog = false;
+		String[] reportFormats = null;
+		int logKeep = 0;
+		int logMaxAgeHours = 0;
+		int logCompress = 0;
+		List<String> workerOptions = new ArrayList<String>();
+		
+		// separate options from the batch script path
+		for (int i = 0; args != null && i < args.length; i++) {
+			int optionStart = i;
+			boolean forwardToShards = true;
+			
+			if (args[i].equals(FrameworkConstants.PARALLEL_OPTION)) {
+				parallelism = parsePositiveInt(args, ++i);
+				if (parallelism < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.MEMO_OPTION)) {
+				memoEntries = parsePositiveInt(args, ++i);
+				if (memoEntries < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.DEDUP_OPTION)) {
+				dedupEntries = parsePositiveInt(args, ++i);
+				if (dedupEntries < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.FLUSH_OPTION)) {
+				flushInterval = parsePositiveInt(args, ++i);
+				if (flushInterval < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.PIPELINE_OPTION)) {
+				pipelineWorkers = parseStageWorkers(args, ++i);
+				if (pipelineWorkers == null) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.PIPELINE_QUEUE_OPTION)) {
+				pipelineQueueCapacity = parsePositiveInt(args, ++i);
+				if (pipelineQueueCapacity < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.SHARDS_OPTION)) {
+				shards = parsePositiveInt(args, ++i);
+				if (shards < 1) {
+					return;
+				}
+				forwardToShards = false;
+			} else if (args[i].equals(FrameworkConstants.RANGE_OPTION)) {
+				range = parseRange(args, ++i);
+				if (range == null) {
+					return;
+				}
+				forwardToShards = false;
+			} else if (args[i].equals(FrameworkConstants.CHECKPOINT_OPTION)) {
+				checkpointInterval = parsePositiveInt(args, ++i);
+				if (checkpointInterval < 1) {
+					return;
+				}
+				forwardToShards = false;
+			} else if (args[i].equals(FrameworkConstants.BENCH_OPTION)) {
+				benchIterations = parsePositiveInt(args, ++i);
+				if (benchIterations < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.TIMEOUT_OPTION)) {
+				timeoutMillis = parsePositiveInt(args, ++i);
+				if (timeoutMillis < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.RESUME_OPTION)) {
+				resume = true;
+				forwardToShards = false;
+			} else if (args[i].equals(FrameworkConstants.LOG_EXPORT_OPTION) && i + 1 < args.length) {
+				logExportPath = args[++i];
+				forwardToShards = false;
+			} else if (args[i].equals(FrameworkConstants.FORMAT_OPTION)) {
+				resultSink = (i + 1 < args.length) ? ResultSink.forFormat(args[++i]) : null;
+				if (resultSink == null) {
+					System.out.println(FrameworkConstants.FORMAT_ERROR + args[i]);
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.SERVE_OPTION)) {
+				serverPort = parsePositiveInt(args, ++i);
+				if (serverPort < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.STREAM_LOG_OPTION)) {
+				streamLog = true;
+			} else if (args[i].equals(FrameworkConstants.LOG_KEEP_OPTION)) {
+				logKeep = parsePositiveInt(args, ++i);
+				if (logKeep < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.LOG_MAX_AGE_OPTION)) {
+				logMaxAgeHours = parsePositiveInt(args, ++i);
+				if (logMaxAgeHours < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.LOG_COMPRESS_OPTION)) {
+				logCompress = parsePositiveInt(args, ++i);
+				if (logCompress < 1) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.REPORT_OPTION)) {
+				reportFormats = parseReportFormats(args, ++i);
+				if (reportFormats == null) {
+					return;
+				}
+			} else if (args[i].equals(FrameworkConstants.LATENCY_OPTION)) {
+				trackLatency = true;
+			} else if (args[i].equals(FrameworkConstants.LATENCY_REPORT_OPTION)) {
+				trackLatency = true;
+				writeLatencyReport = true;
+			} else if (args[i].equals(FrameworkConstants.INDEX_OPTION) && i + 1 < args.length) {
+				indexPath = args[++i];
+			} else if (args[i].equals(FrameworkConstants.OUTPUT_OPTION) && i + 1 < args.length) {
+				outputPath = args[++i];
+				forwardToShards = false;
+			} else if (args[i].equals(FrameworkConstants.COMPILE_OPTION) && i + 1 < args.length) {
+				compileTarget = args[++i];
+			} else {
+				filepath = args[i];
+				forwardToShards = false;
+			}
+			
+			// shard workers run with the same options, but write to files of their own and
+			// are given their own range and log export file by ShardMode
+			if (forwardToShards) {
+				for (int j = optionStart; j <= i && j < args.length; j++) {
+					workerOptions.add(args[j]);
+				}
+			}
+		}
+		
+		// duplicate lines are only collapsed when lines are run one at a time, which checkpoints also do
+		if (dedupEntries > 0 && (parallelism > 1 || pipelineWorkers != null) && checkpointInterval == 0 && !resume) {
+			System.out.println(FrameworkConstants.DEDUP_ERROR);
+			return;
+		}
+		
+		if (reportFormats != null) {
+			BuiltInTester.setReportWriters(createReportWriters(reportFormats, streamLog));
+		}
+		BuiltInTester.setRetention(logKeep, logMaxAgeHours * FrameworkConstants.MILLIS_PER_HOUR);
+		BuiltInTester.compressReports(logCompress);
+		if (streamLog) {
+			try {
+				BuiltInTester.streamLog();
+			} catch (IOException e) {
+				// the log is kept in memory instead
+				System.err.println("ERROR: Could not stream the test log - " + e.getMessage());
+			}
+		}
+		
+		// every mode shares one registry of what can be invoked, built once here
+		InvocationRegistry registry;
+		if (indexPath != null) {
+			registry = InvocationRegistry.loadOrBuild(new File(indexPath));
+		} else {
+			registry = InvocationRegistry.standard();
+		}
 		
 		// set up mode depending on command line argument
-		if (args != null && args.length > 0) {
-			// a file to process has been supplied, start the application in batch mode
-			mode = new BatchMode(args[0]);
+		if (serverPort > 0) {
+			// serve batch lines to clients until one asks the server to shut down
+			mode = new ServerMode(serverPort, registry);
+		} else if (filepath != null) {
+			// a file to process has been supplied, start the application in batch mode,
+			// split between worker processes if asked to
+			BatchMode batchMode;
+			if (benchIterations > 0 && compileTarget == null) {
+				batchMode = new BenchMode(filepath, registry, benchIterations);
+			} else if (shards > 0 && compileTarget == null) {
+				batchMode = new ShardMode(filepath, registry, shards, workerOptions);
+			} else {
+				batchMode = new BatchMode(filepath, registry);
+			}
+			batchMode.setParallelism(parallelism);
+			batchMode.setCompileTarget(compileTarget);
+			batchMode.setOutputPath(outputPath);
+			batchMode.setFlushInterval(flushInterval);
+			if (pipelineWorkers != null) {
+				batchMode.setPipeline(pipelineWorkers, pipelineQueueCapacity);
+			}
+			if (range != null) {
+				batchMode.setRange(range[0], range[1]);
+			}
+			if (dedupEntries > 0) {
+				batchMode.enableDeduplication(dedupEntries);
+			}
+			if (checkpointInterval > 0 || resume) {
+				batchMode.setCheckpoint(checkpointInterval > 0 ? checkpointInterval : FrameworkConstants.DEFAULT_CHECKPOINT_INTERVAL, resume);
+			}
+			mode = batchMode;
 		} else {
 			// a file to process has not been supplied, start the application in menu mode
-			mode = new MenuMode();
+			mode = new MenuMode(registry);
+		}
+		
+		if (resultSink != null) {
+			mode.setResultSink(resultSink);
+		}
+		if (memoEntries > 0) {
+			mode.enableMemoization(memoEntries);
+		}
+		if (trackLatency) {
+			mode.enableLatencyTracking(writeLatencyReport);
+		}
+		if (timeoutMillis > 0) {
+			mode.setInvocationTimeout(timeoutMillis);
 		}
 		
 		mode.execute();
 		
-		BuiltInTester.outputLog();
+		if (logExportPath != null) {
+			// a shard worker, the process that started it merges the log
+			try {
+				BuiltInTester.exportLog(new File(logExportPath));
+			} catch (IOException e) {
+				System.err.println("ERROR: Could not export the test log - " + e.getMessage());
+				System.exit(1);
+			}
+		} else {
+			BuiltInTester.outputLog();
+		}
+	}
+	
+	
+	/**
+	 * Method used to read the positive integer value following a command line option
+	 * @param args - String arguments supplied as command line arguments
+	 * @param index - index of the value in args
+	 * @return - the value, less than 1 after printing an error if the value is missing or not a positive integer
+	 */
+	private static int parsePositiveInt(String[] args, int index) {
+		int value = -1;
+		if (index < args.length) {
+			try {
+				value = Integer.parseInt(args[index]);
+			} catch (NumberFormatException e) {
+				value = -1;
+			}
+		}
+		
+		if (value < 1) {
+			System.out.println(FrameworkConstants.OPTION_ERROR + args[index - 1]);
+		}
+		return value;
+	}
+	
+	
+	/**
+	 * Method used to read the comma separated worker counts of the pipeline stages following a command line option
+	 * @param args - String arguments supplied as command line arguments
+	 * @param index - index of the value in args
+	 * @return - worker counts of the tokenize, convert, invoke and format stages, null after printing an error
+	 * 			 if the value is missing or malformed. A single count is used for every stage
+	 */
+	private static int[] parseStageWorkers(String[] args, int index) {
+		int[] workers = new int[4];
+		String[] counts = (index < args.length) ? args[index].split(",") : new String[0];
+		
+		if (counts.length == 1 || counts.length == workers.length) {
+			try {
+				for (int stage = 0; stage < workers.length; stage++) {
+					workers[stage] = Integer.parseInt(counts[Math.min(stage, counts.length - 1)].trim());
+					if (workers[stage] < 1) {
+						workers = null;
+						break;
+					}
+				}
+			} catch (NumberFormatException e) {
+				workers = null;
+			}
+		} else {
+			workers = null;
+		}
+		
+		if (workers == null) {
+			System.out.println(FrameworkConstants.PIPELINE_ERROR + args[index - 1]);
+		}
+		return workers;
+	}
+	
+	
+	/**
+	 * Method used to read the START:END range of byte offsets following a command line option
+	 * @param args - String arguments supplied as command line arguments
+	 * @param index - index of the value in args
+	 * @return - start and end offsets, null after printing an error if the value is missing or malformed
+	 */
+	private static long[] parseRange(String[] args, int index) {
+		long[] range = null;
+		String[] offsets = (index < args.length) ? args[index].split(":") : new String[0];
+		
+		if (offsets.length == 2) {
+			try {
+				range = new long[] {Long.parseLong(offsets[0]), Long.parseLong(offsets[1])};
+				if (range[0] < 0 || range[1] < range[0]) {
+					range = null;
+				}
+			} catch (NumberFormatException e) {
+				range = null;
+			}
+		}
+		
+		if (range == null) {
+			System.out.println(FrameworkConstants.RANGE_ERROR + args[index - 1]);
+		}
+		return range;
+	}
+	
+	
+	/**
+	 * Method used to read the comma separated test log formats following a command line option
+	 * @param args - String arguments supplied as command line arguments
+	 * @param index - index of the value in args
+	 * @return - names of the formats, null after printing an error if the value is missing or names an unknown format
+	 */
+	private static String[] parseReportFormats(String[] args, int index) {
+		String[] formats = (index < args.length) ? args[index].split(",") : new String[0];
+		
+		for (int i = 0; i < formats.length; i++) {
+			formats[i] = formats[i].trim();
+			if (!formats[i].equals(FrameworkConstants.HTML_REPORT) && !formats[i].equals(FrameworkConstants.PAGED_REPORT)
+					&& !formats[i].equals(FrameworkConstants.JSONL_REPORT) && !formats[i].equals(FrameworkConstants.JUNIT_REPORT)) {
+				formats = new String[0];
+			}
+		}
+		
+		if (formats.length == 0) {
+			System.out.println(FrameworkConstants.REPORT_ERROR + ((index < args.length) ? args[index] : args[index - 1]));
+			return null;
+		}
+		return formats;
+	}
+	
+	
+	/**
+	 * Method used to create the writers of the test log formats
+	 * @param formats - names of the formats read by parseReportFormats
+	 * @param streamLog - true if test log entries are written to disk as they are created
+	 * @return - one writer per format
+	 */
+	private static ReportWriter[] createReportWriters(String[] formats, boolean streamLog) {
+		ReportWriter[] writers = new ReportWriter[formats.length];
+		
+		for (int i = 0; i < formats.length; i++) {
+			if (formats[i].equals(FrameworkConstants.PAGED_REPORT)) {
+				writers[i] = new PagedHtmlReportWriter(FrameworkConstants.PAGED_REPORT_NAME);
+			} else if (formats[i].equals(FrameworkConstants.JSONL_REPORT)) {
+				writers[i] = new JsonLinesReportWriter(FrameworkConstants.JSONL_REPORT_NAME);
+			} else if (formats[i].equals(FrameworkConstants.JUNIT_REPORT)) {
+				writers[i] = new JUnitReportWriter(FrameworkConstants.JUNIT_REPORT_NAME);
+			} else {
+				// a streamed log keeps the failed entries out of memory as well
+				writers[i] = new HtmlReportWriter(FrameworkConstants.HTML_REPORT_NAME, streamLog);
+			}
+		}
+		return writers;
 	}
 }
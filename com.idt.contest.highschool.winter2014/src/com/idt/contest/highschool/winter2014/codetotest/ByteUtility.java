@@ -1,6 +1,7 @@
 package com.idt.contest.highschool.winter2014.codetotest;
 
 import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.CallSite;
 
 import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
 
@@ -9,6 +10,12 @@ import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
  */
 public class ByteUtility {
 
+	/**
+	 * BuiltInTester call sites of the tested methods, so they are not looked up on the stack
+	 */
+	private static final CallSite BYTE_TO_BINYTARY_STRING_SITE = BuiltInTester.callSite(ByteUtility.class, "byteToBinytaryString");
+	private static final CallSite SHIFT_BYTE_SITE = BuiltInTester.callSite(ByteUtility.class, "shiftByte");
+
 	/**
 	 * Method to translate a byte to a binary string
 	 * This algorithm returns the 2's compliment for negative bytes
@@ -16,9 +23,9 @@ public class ByteUtility {
 	 * @return - String binary representation of byte, 2's compliment if the byte is negative
 	 */
 	public String byteToBinytaryString(byte b) {
-		BuiltInTester.expecting("return 111001", b, 57);
-		BuiltInTester.expecting("return 0", b, 0);
-		BuiltInTester.expecting("return 11000111", b, -57);
+		BuiltInTester.expecting(BYTE_TO_BINYTARY_STRING_SITE, "return 111001", b, 57);
+		BuiltInTester.expecting(BYTE_TO_BINYTARY_STRING_SITE, "return 0", b, 0);
+		BuiltInTester.expecting(BYTE_TO_BINYTARY_STRING_SITE, "return 11000111", b, -57);
 		
 		byte remainder = 0;
 		byte number = b;
@@ -41,7 +48,7 @@ public class ByteUtility {
 			//
 			//
 			//
-			BuiltInTester.log("return " + FrameworkConstants.ONE_STRING);
+			BuiltInTester.log(BYTE_TO_BINYTARY_STRING_SITE, "return " + FrameworkConstants.ONE_STRING);
 			return FrameworkConstants.ONE_STRING;
 		}
 		
@@ -66,7 +73,7 @@ public class ByteUtility {
 			binaryRepresentation = su.binaryByteTwosCompliment(binaryRepresentation);
 		}
 		
-		BuiltInTester.log("return " + binaryRepresentation);
+		BuiltInTester.log(BYTE_TO_BINYTARY_STRING_SITE, "return ", binaryRepresentation);
 		return binaryRepresentation;
 	}
 	
@@ -81,10 +88,50 @@ public class ByteUtility {
 	 * 			 	 if placesToShift is greater than 8 or negative, return 0
 	 */
 	public byte shiftByte(byte b, int placesToShift, boolean left) {
-		BuiltInTester.expecting("return 10", b, 5, placesToShift, 1, left, true);
-		BuiltInTester.expecting("return 3", b, 15, placesToShift, 2, left, false);
-		BuiltInTester.expecting("return 0", b, 56, placesToShift, 9, left, false);
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.expecting(SHIFT_BYTE_SITE, "return 10", b, 5, placesToShift, 1, left, true);
+			BuiltInTester.expecting(SHIFT_BYTE_SITE, "return 3", b, 15, placesToShift, 2, left, false);
+			BuiltInTester.expecting(SHIFT_BYTE_SITE, "return 0", b, 56, placesToShift, 9, left, false);
+		}
+		
+		byte shiftedByte = shifted(b, placesToShift, left);
+		
+		BuiltInTester.log(SHIFT_BYTE_SITE, "return ", shiftedByte);
+		return shiftedByte;
+	}
+	
+	
+	/**
+	 * Method to shift a column of bytes, with the same results as
+	 * shiftByte(byte, int, boolean) for each byte. Meant for bulk runs,
+	 * it does not write BuiltInTester log entries
+	 * @param b - bytes to shift
+	 * @param placesToShift - number of bits to shift each byte, as many as b
+	 * @param left - booleans, true to shift a byte left, as many as b
+	 * @return - byte array of the shifted bytes
+	 */
+	public byte[] shiftByte(byte[] b, int[] placesToShift, boolean[] left) {
+		if (b.length != placesToShift.length || b.length != left.length) {
+			throw new IllegalArgumentException("columns differ in length");
+		}
 		
+		byte[] shiftedBytes = new byte[b.length];
+		for (int i = 0; i < b.length; i++) {
+			shiftedBytes[i] = shifted(b[i], placesToShift[i], left[i]);
+		}
+		return shiftedBytes;
+	}
+	
+	
+	/**
+	 * Method that does the shift of shiftByte without logging the result
+	 * @param b - byte to shift
+	 * @param placesToShift - number of bits to shift
+	 * @param left - boolean, if true shift left, if false shift right
+	 * @return - byte after shifting number of bit, 
+	 * 			 	 if placesToShift is greater than 8 or negative, return 0
+	 */
+	private static byte shifted(byte b, int placesToShift, boolean left) {
 		byte shiftedByte;
 		
 		if (placesToShift > FrameworkConstants.BITS_IN_BYTE || placesToShift < 0) {
@@ -94,8 +141,6 @@ public class ByteUtility {
 		} else {
 			shiftedByte = (byte) (b >> placesToShift);
 		}
-		
-		BuiltInTester.log("return " + shiftedByte);
 		return shiftedByte;
 	}
 	
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.CallSite;
 
 import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
 
@@ -12,6 +13,15 @@ import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
  * Class containing math related utility methods 
  */
 public class MathUtility {
+
+	/**
+	 * BuiltInTester call sites of the tested methods, so they are not looked up on the stack
+	 */
+	private static final CallSite IS_EVEN_SITE = BuiltInTester.callSite(MathUtility.class, "isEven");
+	private static final CallSite HYPOTENUS_SITE = BuiltInTester.callSite(MathUtility.class, "hypotenus");
+	private static final CallSite PRIME_FACTOR_SITE = BuiltInTester.callSite(MathUtility.class, "primeFactor");
+	private static final CallSite MULTIPLY_SIMPLE_BINOMIALS_SITE = BuiltInTester.callSite(MathUtility.class, "multiplySimpleBinomials");
+	private static final CallSite CONVERT_CURRENCY_SITE = BuiltInTester.callSite(MathUtility.class, "convertCurrency");
 	
 	
 	/**
@@ -20,21 +30,48 @@ public class MathUtility {
 	 * @return boolean - true if the number is even, false if the number is odd
 	 */
 	public boolean isEven(int numToCheck) {
-		BuiltInTester.expecting("return true", numToCheck, 2);
-		BuiltInTester.expecting("return false", numToCheck, 3);
-		BuiltInTester.expecting("return true", numToCheck, 4);
+		BuiltInTester.expecting(IS_EVEN_SITE, "return true", numToCheck, 2);
+		BuiltInTester.expecting(IS_EVEN_SITE, "return false", numToCheck, 3);
+		BuiltInTester.expecting(IS_EVEN_SITE, "return true", numToCheck, 4);
 		
-		// divide the number by 2 and no remainder exists, the number is even
-		if (numToCheck % 2 == 0) {
-			BuiltInTester.log("return true");
+		if (even(numToCheck)) {
+			BuiltInTester.log(IS_EVEN_SITE, "return true");
 			return true;
 		} else {
-			BuiltInTester.log("return false");
+			BuiltInTester.log(IS_EVEN_SITE, "return false");
 			return false;
 		}
 	}
 	
 	
+	/**
+	 * Method that checks a column of numbers for being even, with the same
+	 * results as isEven(int) for each number. Meant for bulk runs, it does
+	 * not write BuiltInTester log entries
+	 * @param numsToCheck - the numbers to check
+	 * @return boolean[] - true for every even number, false for every odd number
+	 */
+	public boolean[] isEven(int[] numsToCheck) {
+		boolean[] even = new boolean[numsToCheck.length];
+		
+		for (int i = 0; i < numsToCheck.length; i++) {
+			even[i] = even(numsToCheck[i]);
+		}
+		return even;
+	}
+	
+	
+	/**
+	 * Method that does the check of isEven without logging the result
+	 * @param numToCheck - the number to check
+	 * @return boolean - true if the number is even, false if the number is odd
+	 */
+	private static boolean even(int numToCheck) {
+		// divide the number by 2 and no remainder exists, the number is even
+		return numToCheck % 2 == 0;
+	}
+	
+	
 	/**
 	 * Method to compute the hypotenus of a triangle given two sides
 	 * @param a - length of first side of triangle
@@ -42,28 +79,62 @@ public class MathUtility {
 	 * @return - integer value of the hypotenus of the triangle
 	 */
 	public double hypotenus(double a, double b) {
-		BuiltInTester.expecting("return 5.0", a, 3.0, b, 4.0);
-		BuiltInTester.expecting("return " + Math.sqrt(9.0*9.0 + 16.0*16.0), a, 9.0, b, 16.0);
-		BuiltInTester.expecting("return " + Math.sqrt(100.0*100.0 + 200.0*200.0), a, 100.0, b, 200.0);
+		BuiltInTester.expecting(HYPOTENUS_SITE, "return 5.0", a, 3.0, b, 4.0);
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.expecting(HYPOTENUS_SITE, "return " + Math.sqrt(9.0*9.0 + 16.0*16.0), a, 9.0, b, 16.0);
+			BuiltInTester.expecting(HYPOTENUS_SITE, "return " + Math.sqrt(100.0*100.0 + 200.0*200.0), a, 100.0, b, 200.0);
+		}
 		
-		double aSquared = a * a;
-		double bSquared = b * b;
-		double result = Math.sqrt(aSquared + bSquared); //added to prevent calculating result twice
+		double result = hypotenusLength(a, b); //added to prevent calculating result twice
 		
-		BuiltInTester.log("return " + result);
+		BuiltInTester.log(HYPOTENUS_SITE, "return ", result);
 		return result;
 	}
 	
 	
+	/**
+	 * Method to compute the hypotenuses of a column of triangles, with the same
+	 * results as hypotenus(double, double) for each triangle. Meant for bulk runs,
+	 * it does not write BuiltInTester log entries
+	 * @param a - lengths of the first sides of the triangles
+	 * @param b - lengths of the second sides of the triangles, as many as a
+	 * @return - double array of the hypotenuses of the triangles
+	 */
+	public double[] hypotenus(double[] a, double[] b) {
+		if (a.length != b.length) {
+			throw new IllegalArgumentException("columns differ in length");
+		}
+		
+		double[] result = new double[a.length];
+		for (int i = 0; i < a.length; i++) {
+			result[i] = hypotenusLength(a[i], b[i]);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Method that does the computation of hypotenus without logging the result
+	 * @param a - length of first side of triangle
+	 * @param b - length of second side of triangle
+	 * @return - double value of the hypotenus of the triangle
+	 */
+	private static double hypotenusLength(double a, double b) {
+		double aSquared = a * a;
+		double bSquared = b * b;
+		return Math.sqrt(aSquared + bSquared);
+	}
+	
+	
 	/**
 	 * Method that will return the prime factors of a given number
 	 * @param n - number you wish to derive the prime factors of
 	 * @return - array of ints that represent the prime factors
 	 */
 	public int[] primeFactor(int number) {
-		BuiltInTester.expecting("[2, 2, 2]", number, 8);
-		BuiltInTester.expecting("[2, 617]", number, 1234);
-		BuiltInTester.expecting("[5, 7, 13, 29]", number, 13195);
+		BuiltInTester.expecting(PRIME_FACTOR_SITE, "[2, 2, 2]", number, 8);
+		BuiltInTester.expecting(PRIME_FACTOR_SITE, "[2, 617]", number, 1234);
+		BuiltInTester.expecting(PRIME_FACTOR_SITE, "[5, 7, 13, 29]", number, 13195);
 
 		List<Integer> factors = new ArrayList<Integer>();
 		int divider = 2;
@@ -89,7 +160,9 @@ public class MathUtility {
 		}
 		
 		// return int array of prime factors
-		BuiltInTester.log(Arrays.toString(returnArray));
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.log(PRIME_FACTOR_SITE, Arrays.toString(returnArray));
+		}
 		return returnArray;
 	}
 	
@@ -104,11 +177,13 @@ public class MathUtility {
 	 * @return - String representation of binomial product
 	 */
 	public String multiplySimpleBinomials(short x1, short ones1, short x2, short ones2) {
-		BuiltInTester.expecting("return x^2 + 5x + 6", x1, 1, ones1, 3, x2, 1, ones2, 2);
-		BuiltInTester.expecting("return x^2 - 7x + 12", x1, 1, ones1, -4, x2, 1, ones2, -3);
-		BuiltInTester.expecting("return -4x^2 + 4", x1, 2, ones1, 2, x2, -2, ones2, 2);
-		BuiltInTester.expecting("return -12x^2 + 7x - 1", x1, -4, ones1, 1, x2, 3, ones2, -1);
-		BuiltInTester.expecting("return 88x^2 + 49x + 6", x1, -11, ones1, -2, x2, -8, ones2, -3);
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.expecting(MULTIPLY_SIMPLE_BINOMIALS_SITE, "return x^2 + 5x + 6", x1, 1, ones1, 3, x2, 1, ones2, 2);
+			BuiltInTester.expecting(MULTIPLY_SIMPLE_BINOMIALS_SITE, "return x^2 - 7x + 12", x1, 1, ones1, -4, x2, 1, ones2, -3);
+			BuiltInTester.expecting(MULTIPLY_SIMPLE_BINOMIALS_SITE, "return -4x^2 + 4", x1, 2, ones1, 2, x2, -2, ones2, 2);
+			BuiltInTester.expecting(MULTIPLY_SIMPLE_BINOMIALS_SITE, "return -12x^2 + 7x - 1", x1, -4, ones1, 1, x2, 3, ones2, -1);
+			BuiltInTester.expecting(MULTIPLY_SIMPLE_BINOMIALS_SITE, "return 88x^2 + 49x + 6", x1, -11, ones1, -2, x2, -8, ones2, -3);
+		}
 		
 		boolean notTheFirst = false;
 		String binomialResult = "";
@@ -168,7 +243,7 @@ public class MathUtility {
 			binomialResult += Math.abs(last);
 		}
 		
-		BuiltInTester.log("return " + binomialResult);
+		BuiltInTester.log(MULTIPLY_SIMPLE_BINOMIALS_SITE, "return ", binomialResult);
 		return binomialResult;
 	}
 	
@@ -180,9 +255,47 @@ public class MathUtility {
 	 * @return - float amount of currency you finish with
 	 */
 	public float convertCurrency(float amount, float rate) {
-		BuiltInTester.expecting("return 0.61", amount, 1.00, rate, 0.61);
-		BuiltInTester.expecting("return 73.0", amount, 100.0, rate, 0.73);
+		BuiltInTester.expecting(CONVERT_CURRENCY_SITE, "return 0.61", amount, 1.00, rate, 0.61);
+		BuiltInTester.expecting(CONVERT_CURRENCY_SITE, "return 73.0", amount, 100.0, rate, 0.73);
+		
+		float result = convertedAmount(amount, rate);
+		
+		// only amounts multiplied by the exchange rate are logged
+		if (amount != 0 && rate != 0 && rate != 1) {
+			BuiltInTester.log(CONVERT_CURRENCY_SITE, "return ", result);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Method used to do a column of simple currency conversions, with the same
+	 * results as convertCurrency(float, float) for each conversion. Meant for
+	 * bulk runs, it does not write BuiltInTester log entries
+	 * @param amounts - float amounts of money you start with
+	 * @param rates - float exchange rates, as many as amounts
+	 * @return - float array of the amounts of currency you finish with
+	 */
+	public float[] convertCurrency(float[] amounts, float[] rates) {
+		if (amounts.length != rates.length) {
+			throw new IllegalArgumentException("columns differ in length");
+		}
 		
+		float[] result = new float[amounts.length];
+		for (int i = 0; i < amounts.length; i++) {
+			result[i] = convertedAmount(amounts[i], rates[i]);
+		}
+		return result;
+	}
+	
+	
+	/**
+	 * Method that does the conversion of convertCurrency without logging the result
+	 * @param amount - float amount of money you start with
+	 * @param rate - float exchange rate from start currency to finish currency
+	 * @return - float amount of currency you finish with
+	 */
+	private static float convertedAmount(float amount, float rate) {
 		// if the amount is zero, the result will be zero
 		// if the rate is zero, the result will be zero
 		if (amount == 0 || rate == 0) {
@@ -192,7 +305,6 @@ public class MathUtility {
 			return amount;
 		// otherwise we multiply the amount by the exchange rate
 		} else {
-			BuiltInTester.log("return " + amount*rate);
 			return amount * rate;
 		}
 	}
@@ -6,6 +6,7 @@ import java.lang.System;
 import java.util.Random;
 
 import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.CallSite;
 
 /**
  * The Class MazeGenerator. This class generates a textual representation of a maze using depth-first search.
@@ -17,6 +18,11 @@ import org.ohs1.winter2013.BuiltInTester;
  */
 public class MazeGenerator {
 
+	/**
+	 * BuiltInTester call sites of the tested methods, so they are not looked up on the stack
+	 */
+	private static final CallSite GENERATE_MAZE_SITE = BuiltInTester.callSite(MazeGenerator.class, "generateMaze");
+
 	/**
 	 * The Enum MazeDirection.
 	 */
@@ -263,68 +269,70 @@ public class MazeGenerator {
 			final int yDimension, 
 			final long randomSeed) 
 	{
-		BuiltInTester.expecting("return \n############################################################\n"+
-									    "#S      ##       ##       ##                   ## ##    ## #\n"+
-										"####### ## ##### ## ## ######## ############## ## ##### ####\n"+
-										"####### ## ##### ## ## ######## ############## ## ##### ####\n"+
-										"# ##    ##    ##    ##          ##    ##       ##       ## #\n"+
-										"# ## ############## ##### ########### ## ######## ##### ## #\n"+
-										"# ## ############## ##### ########### ## ######## ##### ## #\n"+
-										"#    ##          ## ##    ##       ##    ##       ##    ## #\n"+
-										"# ##### ######## ##### ##### ## ## ## ########### ## ##### #\n"+
-										"# ##### ######## ##### ##### ## ## ## ########### ## ##### #\n"+
-										"#       ##    ##       ## ## ## ## ## ##          ##       #\n"+
-										"########## ############## ##### ##### ## ################# #\n"+
-										"########## ############## ##### ##### ## ################# #\n"+
-										"#    ## ##          ##    ##       ##    ## ##       ##    #\n"+
-										"# ## ## ## ##### ##### ## ## ## ########### ## ##### ## ####\n"+
-										"# ## ## ## ##### ##### ## ## ## ########### ## ##### ## ####\n"+
-										"# ##    ## ## ##    ## ## ## ## ##    ##       ## ## ##    #\n"+
-										"# ## ## ## ## ## ######## ## ## ## ## ## ######## ## ## ####\n"+
-										"# ## ## ## ## ## ######## ## ## ## ## ## ######## ## ## ####\n"+
-										"# ## ## ##    ##          ## ##    ##    ##       ## ## ## #\n"+
-										"#### ######## ######## ##### ################# ##### ## ####\n"+
-										"#### ######## ######## ##### ################# ##### ## ####\n"+
-										"#       ##    ##    ## ##    ##                   ## ##    #\n"+
-										"# ######## ##### ## ## ## ######## ##### ##### ##### ##### #\n"+
-										"# ######## ##### ## ## ## ######## ##### ##### ##### ##### #\n"+
-										"#       ## ## ## ## ## ##       ##    ## ##    ##    ## ## #\n"+
-										"#### ##### ## ## ## ## ######## ##### ## ######## ## ## ## #\n"+
-										"#### ##### ## ## ## ## ######## ##### ## ######## ## ## ## #\n"+
-										"#    ##    ##    ## ## ##       ##    ## ##       ##    ## #\n"+
-										"# ## ## ########### ## ## ########### ## ## ############## #\n"+
-										"# ## ## ########### ## ## ########### ## ## ############## #\n"+
-										"# ## ##       ##    ##    ##       ## ## ##                #\n"+
-										"# ########### ## ## ######## ##### ## ## ###################\n"+
-										"# ########### ## ## ######## ##### ## ## ###################\n"+
-										"# ##          ## ## ##       ## ##    ## ##                #\n"+
-										"# ## ########### ##### ## ##### ######## ##### ########### #\n"+
-										"# ## ########### ##### ## ##### ######## ##### ########### #\n"+
-										"#          ##          ##       ##          ## ##       ## #\n"+
-										"########## ## ################# ## ######## ## ## ## ##### #\n"+
-										"########## ## ################# ## ######## ## ## ## ##### #\n"+
-										"# ##       ##          ##       ##       ##    ## ## ##    #\n"+
-										"# ## ######## ################# ######## ##### ##### ## ####\n"+
-										"# ## ######## ################# ######## ##### ##### ## ####\n"+
-										"# ## ##    ## ##       ##       ##    ## ##    ##          #\n"+
-										"# ## ##### ## ## ##### ## ## ######## ## ############## ####\n"+
-										"# ## ##### ## ## ##### ## ## ######## ## ############## ####\n"+
-										"#    ##       ## ##    ## ##          ##       ##    ##    #\n"+
-										"#### ######## ## ## ####################### ##### ## ##### #\n"+
-										"#### ######## ## ## ####################### ##### ## ##### #\n"+
-										"#    ##    ## ## ##          ##       ##    ##    ## ##    #\n"+
-										"# ##### ## ##### ########### ## ##### ## ##### ##### ##### #\n"+
-										"# ##### ## ##### ########### ## ##### ## ##### ##### ##### #\n"+
-										"#       ##       ##    ##    ## ##    ##       ##    ##    #\n"+
-										"################### ##### ##### ## ########### ## ##### ####\n"+
-										"################### ##### ##### ## ########### ## ##### ####\n"+
-										"#    ##             ##          ##          ## ## ##    ## #\n"+
-										"# ## ## ## ######## ## ############## ##### ##### ## ##### #\n"+
-										"# ## ## ## ######## ## ############## ##### ##### ## ##### #\n"+
-										"# ##    ##       ##       ##          ##          ##      F#\n"+
-										"############################################################\n".
-										replace("\n", System.getProperty("line.separator")),
-										initialX, 1, initialY, 1, xDimension, 20, yDimension, 20, randomSeed, 1);
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.expecting(GENERATE_MAZE_SITE, "return \n############################################################\n"+
+										    "#S      ##       ##       ##                   ## ##    ## #\n"+
+											"####### ## ##### ## ## ######## ############## ## ##### ####\n"+
+											"####### ## ##### ## ## ######## ############## ## ##### ####\n"+
+											"# ##    ##    ##    ##          ##    ##       ##       ## #\n"+
+											"# ## ############## ##### ########### ## ######## ##### ## #\n"+
+											"# ## ############## ##### ########### ## ######## ##### ## #\n"+
+											"#    ##          ## ##    ##       ##    ##       ##    ## #\n"+
+											"# ##### ######## ##### ##### ## ## ## ########### ## ##### #\n"+
+											"# ##### ######## ##### ##### ## ## ## ########### ## ##### #\n"+
+											"#       ##    ##       ## ## ## ## ## ##          ##       #\n"+
+											"########## ############## ##### ##### ## ################# #\n"+
+											"########## ############## ##### ##### ## ################# #\n"+
+											"#    ## ##          ##    ##       ##    ## ##       ##    #\n"+
+											"# ## ## ## ##### ##### ## ## ## ########### ## ##### ## ####\n"+
+											"# ## ## ## ##### ##### ## ## ## ########### ## ##### ## ####\n"+
+											"# ##    ## ## ##    ## ## ## ## ##    ##       ## ## ##    #\n"+
+											"# ## ## ## ## ## ######## ## ## ## ## ## ######## ## ## ####\n"+
+											"# ## ## ## ## ## ######## ## ## ## ## ## ######## ## ## ####\n"+
+											"# ## ## ##    ##          ## ##    ##    ##       ## ## ## #\n"+
+											"#### ######## ######## ##### ################# ##### ## ####\n"+
+											"#### ######## ######## ##### ################# ##### ## ####\n"+
+											"#       ##    ##    ## ##    ##                   ## ##    #\n"+
+											"# ######## ##### ## ## ## ######## ##### ##### ##### ##### #\n"+
+											"# ######## ##### ## ## ## ######## ##### ##### ##### ##### #\n"+
+											"#       ## ## ## ## ## ##       ##    ## ##    ##    ## ## #\n"+
+											"#### ##### ## ## ## ## ######## ##### ## ######## ## ## ## #\n"+
+											"#### ##### ## ## ## ## ######## ##### ## ######## ## ## ## #\n"+
+											"#    ##    ##    ## ## ##       ##    ## ##       ##    ## #\n"+
+											"# ## ## ########### ## ## ########### ## ## ############## #\n"+
+											"# ## ## ########### ## ## ########### ## ## ############## #\n"+
+											"# ## ##       ##    ##    ##       ## ## ##                #\n"+
+											"# ########### ## ## ######## ##### ## ## ###################\n"+
+											"# ########### ## ## ######## ##### ## ## ###################\n"+
+											"# ##          ## ## ##       ## ##    ## ##                #\n"+
+											"# ## ########### ##### ## ##### ######## ##### ########### #\n"+
+											"# ## ########### ##### ## ##### ######## ##### ########### #\n"+
+											"#          ##          ##       ##          ## ##       ## #\n"+
+											"########## ## ################# ## ######## ## ## ## ##### #\n"+
+											"########## ## ################# ## ######## ## ## ## ##### #\n"+
+											"# ##       ##          ##       ##       ##    ## ## ##    #\n"+
+											"# ## ######## ################# ######## ##### ##### ## ####\n"+
+											"# ## ######## ################# ######## ##### ##### ## ####\n"+
+											"# ## ##    ## ##       ##       ##    ## ##    ##          #\n"+
+											"# ## ##### ## ## ##### ## ## ######## ## ############## ####\n"+
+											"# ## ##### ## ## ##### ## ## ######## ## ############## ####\n"+
+											"#    ##       ## ##    ## ##          ##       ##    ##    #\n"+
+											"#### ######## ## ## ####################### ##### ## ##### #\n"+
+											"#### ######## ## ## ####################### ##### ## ##### #\n"+
+											"#    ##    ## ## ##          ##       ##    ##    ## ##    #\n"+
+											"# ##### ## ##### ########### ## ##### ## ##### ##### ##### #\n"+
+											"# ##### ## ##### ########### ## ##### ## ##### ##### ##### #\n"+
+											"#       ##       ##    ##    ## ##    ##       ##    ##    #\n"+
+											"################### ##### ##### ## ########### ## ##### ####\n"+
+											"################### ##### ##### ## ########### ## ##### ####\n"+
+											"#    ##             ##          ##          ## ## ##    ## #\n"+
+											"# ## ## ## ######## ## ############## ##### ##### ## ##### #\n"+
+											"# ## ## ## ######## ## ############## ##### ##### ## ##### #\n"+
+											"# ##    ##       ##       ##          ##          ##      F#\n"+
+											"############################################################\n".
+											replace("\n", System.getProperty("line.separator")),
+											initialX, 1, initialY, 1, xDimension, 20, yDimension, 20, randomSeed, 1);
+		}
 		// simple error checking
 		if (initialX > xDimension && initialY > yDimension) {
 			return "Invalid X and Y dimensions";
@@ -469,7 +477,7 @@ public class MazeGenerator {
 			}
 		}
 
-		BuiltInTester.log("return " + mazeString);
+		BuiltInTester.log(GENERATE_MAZE_SITE, "return ", mazeString);
 		return mazeString;
 	}
 
@@ -1,6 +1,7 @@
 package com.idt.contest.highschool.winter2014.codetotest;
 
 import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.CallSite;
 
 import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
 
@@ -9,6 +10,15 @@ import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
  */
 public class StringUtility {
 
+	/**
+	 * BuiltInTester call sites of the tested methods, so they are not looked up on the stack
+	 */
+	private static final CallSite COUNT_VOWELS_SITE = BuiltInTester.callSite(StringUtility.class, "countVowels");
+	private static final CallSite BINARY_BYTE_TWOS_COMPLIMENT_SITE = BuiltInTester.callSite(StringUtility.class, "binaryByteTwosCompliment");
+	private static final CallSite FORMAT_BINARY_BYTE_STRING_SITE = BuiltInTester.callSite(StringUtility.class, "formatBinaryByteString");
+	private static final CallSite INDEX_OF_FIRST_SPECIFIC_CHAR_SITE = BuiltInTester.callSite(StringUtility.class, "indexOfFirstSpecificChar");
+	private static final CallSite INDEX_OF_LAST_SPECIFIC_CHAR_SITE = BuiltInTester.callSite(StringUtility.class, "indexOfLastSpecificChar");
+
 	
 	/**
 	 * Method that counts the number of vowels in a String
@@ -16,9 +26,9 @@ public class StringUtility {
 	 * @return - int number of vowels in supplied String
 	 */
 	public int countVowels(String stringToCheck) {
-		BuiltInTester.expecting("return 0", stringToCheck, "bcd fgh jkl mnp qrs tvw xyz");
-		BuiltInTester.expecting("return 3", stringToCheck, "PROGRAMMING");
-		BuiltInTester.expecting("return 13", stringToCheck, "This is a test of the emergency broadcast system");
+		BuiltInTester.expecting(COUNT_VOWELS_SITE, "return 0", stringToCheck, "bcd fgh jkl mnp qrs tvw xyz");
+		BuiltInTester.expecting(COUNT_VOWELS_SITE, "return 3", stringToCheck, "PROGRAMMING");
+		BuiltInTester.expecting(COUNT_VOWELS_SITE, "return 13", stringToCheck, "This is a test of the emergency broadcast system");
 		
 		int vowelCount = 0;
 		char currentChar;
@@ -55,7 +65,7 @@ public class StringUtility {
 			}
 		}
 		
-		BuiltInTester.log("return " + vowelCount);
+		BuiltInTester.log(COUNT_VOWELS_SITE, "return ", vowelCount);
 		return vowelCount;
 	}
 	
@@ -67,9 +77,9 @@ public class StringUtility {
 	 * @return - String representation 2's compliment of binary string
 	 */
 	public String binaryByteTwosCompliment(String binaryByteString) {
-		BuiltInTester.expecting("return 11001101", binaryByteString, "00110011");
-		BuiltInTester.expecting("return 00000000", binaryByteString, "00000000");
-		BuiltInTester.expecting("return 10000001", binaryByteString, "01111111");
+		BuiltInTester.expecting(BINARY_BYTE_TWOS_COMPLIMENT_SITE, "return 11001101", binaryByteString, "00110011");
+		BuiltInTester.expecting(BINARY_BYTE_TWOS_COMPLIMENT_SITE, "return 00000000", binaryByteString, "00000000");
+		BuiltInTester.expecting(BINARY_BYTE_TWOS_COMPLIMENT_SITE, "return 10000001", binaryByteString, "01111111");
 	
 		String binaryRepresentation = "";
 		char currentChar;
@@ -78,7 +88,7 @@ public class StringUtility {
 		
 		// if the binary byte string is null or empty, return an error string
 		if (binaryByteString == null || binaryByteString.isEmpty()) {
-			BuiltInTester.log("Binary representation error");
+			BuiltInTester.log(BINARY_BYTE_TWOS_COMPLIMENT_SITE, "Binary representation error");
 			return FrameworkConstants.BINARY_REPRESENTATION_ERROR;
 		}
 		
@@ -121,7 +131,9 @@ public class StringUtility {
 			}
 		}
 		
-		BuiltInTester.log("return " + formatBinaryByteString(binaryRepresentation));
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.log(BINARY_BYTE_TWOS_COMPLIMENT_SITE, "return " + formatBinaryByteString(binaryRepresentation));
+		}
 		return formatBinaryByteString(binaryRepresentation);
 	}
 	
@@ -132,13 +144,13 @@ public class StringUtility {
 	 * @return - String version of binary byte string with 8 characters
 	 */
 	public String formatBinaryByteString(String binaryByteString) {
-		BuiltInTester.expecting("return 00000101", binaryByteString, "0101");
-		BuiltInTester.expecting("return 00000101", binaryByteString, "000000000000000101");
-		BuiltInTester.expecting("return 00000001", binaryByteString, "1");
+		BuiltInTester.expecting(FORMAT_BINARY_BYTE_STRING_SITE, "return 00000101", binaryByteString, "0101");
+		BuiltInTester.expecting(FORMAT_BINARY_BYTE_STRING_SITE, "return 00000101", binaryByteString, "000000000000000101");
+		BuiltInTester.expecting(FORMAT_BINARY_BYTE_STRING_SITE, "return 00000001", binaryByteString, "1");
 		
 		//  handle null pointers by returning an error string
 		if (binaryByteString == null) {
-			BuiltInTester.log("Binary representation error");
+			BuiltInTester.log(FORMAT_BINARY_BYTE_STRING_SITE, "Binary representation error");
 			return FrameworkConstants.BINARY_REPRESENTATION_ERROR;
 		}
 		
@@ -152,7 +164,7 @@ public class StringUtility {
 			binaryByteString = binaryByteString.substring(binaryByteString.length() - FrameworkConstants.BITS_IN_BYTE);
 		}
 		
-		BuiltInTester.log("return " + binaryByteString);
+		BuiltInTester.log(FORMAT_BINARY_BYTE_STRING_SITE, "return ", binaryByteString);
 		return binaryByteString;
 	}
 	
@@ -164,23 +176,25 @@ public class StringUtility {
 	 * @return - int index of first instance of char found in string, -1 if char is never found
 	 */
 	public int indexOfFirstSpecificChar(String stringToCheck, char charToLookFor) {
-		BuiltInTester.expecting("return 2", stringToCheck, "hello", charToLookFor, 'l');
-		BuiltInTester.expecting("return 0", stringToCheck, "hello", charToLookFor, 'h');
-		BuiltInTester.expecting("Invalid value", stringToCheck, "hello", charToLookFor, 'z');
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.expecting(INDEX_OF_FIRST_SPECIFIC_CHAR_SITE, "return 2", stringToCheck, "hello", charToLookFor, 'l');
+			BuiltInTester.expecting(INDEX_OF_FIRST_SPECIFIC_CHAR_SITE, "return 0", stringToCheck, "hello", charToLookFor, 'h');
+			BuiltInTester.expecting(INDEX_OF_FIRST_SPECIFIC_CHAR_SITE, "Invalid value", stringToCheck, "hello", charToLookFor, 'z');
+		}
 		
 		if (stringToCheck == null) {
-			BuiltInTester.log("Invalid value");
+			BuiltInTester.log(INDEX_OF_FIRST_SPECIFIC_CHAR_SITE, "Invalid value");
 			return FrameworkConstants.INVALID_VALUE;
 		}
 		
 		for (int i = 0; i < stringToCheck.length(); i++) {
 			if (stringToCheck.charAt(i) == charToLookFor) {
-				BuiltInTester.log("return " + i);
+				BuiltInTester.log(INDEX_OF_FIRST_SPECIFIC_CHAR_SITE, "return ", i);
 				return i;
 			}
 		}
 		
-		BuiltInTester.log("Invalid value");
+		BuiltInTester.log(INDEX_OF_FIRST_SPECIFIC_CHAR_SITE, "Invalid value");
 		return FrameworkConstants.INVALID_VALUE;
 	}
 	
@@ -192,23 +206,25 @@ public class StringUtility {
 	 * @return - int index of last instance of char found in string, -1 if char is never found
 	 */
 	public int indexOfLastSpecificChar(String stringToCheck, char charToLookFor) {
-		BuiltInTester.expecting("return 3", stringToCheck, "hello", charToLookFor, 'l');
-		BuiltInTester.expecting("return 0", stringToCheck, "hello", charToLookFor, 'h');
-		BuiltInTester.expecting("Invalid value", stringToCheck, "hello", charToLookFor, 'z');
+		if (BuiltInTester.isEnabled()) {
+			BuiltInTester.expecting(INDEX_OF_LAST_SPECIFIC_CHAR_SITE, "return 3", stringToCheck, "hello", charToLookFor, 'l');
+			BuiltInTester.expecting(INDEX_OF_LAST_SPECIFIC_CHAR_SITE, "return 0", stringToCheck, "hello", charToLookFor, 'h');
+			BuiltInTester.expecting(INDEX_OF_LAST_SPECIFIC_CHAR_SITE, "Invalid value", stringToCheck, "hello", charToLookFor, 'z');
+		}
 		
 		if (stringToCheck == null) {
-			BuiltInTester.log("Invalid value");
+			BuiltInTester.log(INDEX_OF_LAST_SPECIFIC_CHAR_SITE, "Invalid value");
 			return FrameworkConstants.INVALID_VALUE;
 		}
 		
 		for (int i = stringToCheck.length() - 1; i >= 0; i--) {
 			if (stringToCheck.charAt(i) == charToLookFor) {
-				BuiltInTester.log("return " + i);
+				BuiltInTester.log(INDEX_OF_LAST_SPECIFIC_CHAR_SITE, "return ", i);
 				return i;
 			}
 		}
 		
-		BuiltInTester.log("Invalid value");
+		BuiltInTester.log(INDEX_OF_LAST_SPECIFIC_CHAR_SITE, "Invalid value");
 		return FrameworkConstants.INVALID_VALUE;
 	}
 }
@@ -1,6 +1,7 @@
 package com.idt.contest.highschool.winter2014.codetotest;
 
 import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.CallSite;
 
 import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
 
@@ -9,6 +10,12 @@ import com.idt.contest.highschool.winter2014.framework.FrameworkConstants;
  */
 public class TimeUtility {
 
+	/**
+	 * BuiltInTester call sites of the tested methods, so they are not looked up on the stack
+	 */
+	private static final CallSite HMS_STRING_TIME_TO_POSIX_SITE = BuiltInTester.callSite(TimeUtility.class, "HMSStringTimeToPosix");
+	private static final CallSite DATE_TO_POSIX_SITE = BuiltInTester.callSite(TimeUtility.class, "dateToPosix");
+
 	
 	/**
 	 * integer array to hold days within each month conversion
@@ -27,66 +34,134 @@ public class TimeUtility {
 	 * @return - double representation of number of milliseconds in HMS time (posix time), -1 if the time value is invalid
 	 */
 	public double HMSStringTimeToPosix(String HMS) {
-		BuiltInTester.expecting("return " + 18925000.0, HMS, "5:15:25");
-		BuiltInTester.expecting("return " + 1100.0, HMS, "0:00:01.1");
-		BuiltInTester.expecting("return " + 86399999.0, HMS, "23:59:59.999");
-		BuiltInTester.expecting("return " + 0.0, HMS, "0:00:00");
+		BuiltInTester.expecting(HMS_STRING_TIME_TO_POSIX_SITE, "return " + 18925000.0, HMS, "5:15:25");
+		BuiltInTester.expecting(HMS_STRING_TIME_TO_POSIX_SITE, "return " + 1100.0, HMS, "0:00:01.1");
+		BuiltInTester.expecting(HMS_STRING_TIME_TO_POSIX_SITE, "return " + 86399999.0, HMS, "23:59:59.999");
+		BuiltInTester.expecting(HMS_STRING_TIME_TO_POSIX_SITE, "return " + 0.0, HMS, "0:00:00");
 		
-		double fraction = 0.0;
-		int hours, minutes, seconds;
-		StringUtility su = new StringUtility();
-
 		// handle null and zero time
 		if (HMS == null ||  HMS.equals("0.0")) {
-			BuiltInTester.log("return 0.0");
+			BuiltInTester.log(HMS_STRING_TIME_TO_POSIX_SITE, "return 0.0");
 			return 0.0;
 		}
 		
-		// parse the input string into H M S . SS
 		try{ 
-			// parse hours
-			hours = Integer.parseInt(HMS.substring(0, su.indexOfFirstSpecificChar(HMS,':')));
-			
-			// parse minutes
-			minutes = Integer.parseInt(HMS.substring(su.indexOfFirstSpecificChar(HMS,':')+1, su.indexOfLastSpecificChar(HMS,':')));
-			
-			// parse seconds
-			if (HMS.contains(".")) {
-				seconds = Integer.parseInt(HMS.substring(su.indexOfLastSpecificChar(HMS, ':')+1, su.indexOfLastSpecificChar(HMS, '.')));
-			} else {
-				seconds = Integer.parseInt(HMS.substring(su.indexOfLastSpecificChar(HMS,':')+1));
-			}
-	
-			// parse fraction of seconds if necessary
-			if (HMS.contains(".")) {
-				// no longer requiring milliseconds although they are allowed
-				String dec = "0." + HMS.substring(su.indexOfFirstSpecificChar(HMS, '.')+1);
-				fraction   = Float.parseFloat(dec);
-			}
-	
-			// convert to posix time, which is total milliseconds of this time
-			double posixTime = (((hours * 3600.0) + (minutes * 60.0) + seconds + fraction) * 1000);
+			double posixTime = posixMillis(HMS);
 			System.out.println("return " + posixTime);
-			BuiltInTester.log("return " + posixTime);
+			BuiltInTester.log(HMS_STRING_TIME_TO_POSIX_SITE, "return ", posixTime);
 			return posixTime;
 			
 		} catch (NumberFormatException e) {
 			// instead of throwing an error, this method will return -1 for any non valid date
-			BuiltInTester.log("Invalid value");
+			BuiltInTester.log(HMS_STRING_TIME_TO_POSIX_SITE, "Invalid value");
 			return FrameworkConstants.INVALID_VALUE;
 		}
 	}
 	
+	
+	/**
+	 * Method that converts a column of times in H:M:S.s format to milliseconds posix time,
+	 * with the same results as HMSStringTimeToPosix(String) for each time. Meant for bulk
+	 * runs, it neither prints nor writes BuiltInTester log entries
+	 * @param HMS - String representations of times in H:M:S.s format
+	 * @return - double array of milliseconds in each time (posix time), -1 for each invalid time
+	 */
+	public double[] HMSStringTimeToPosix(String[] HMS) {
+		double[] posixTimes = new double[HMS.length];
+		
+		for (int i = 0; i < HMS.length; i++) {
+			// handle null and zero time
+			if (HMS[i] == null || HMS[i].equals("0.0")) {
+				posixTimes[i] = 0.0;
+				continue;
+			}
+			
+			try {
+				posixTimes[i] = posixMillis(HMS[i]);
+			} catch (NumberFormatException e) {
+				posixTimes[i] = FrameworkConstants.INVALID_VALUE;
+			}
+		}
+		return posixTimes;
+	}
+	
+	
+	/**
+	 * Method that does the conversion of HMSStringTimeToPosix without logging the result
+	 * @param HMS - String representation of time in H:M:S.s, not null
+	 * @return - double representation of number of milliseconds in HMS time (posix time)
+	 * @throws NumberFormatException - thrown when the time value is invalid
+	 */
+	private static double posixMillis(String HMS) {
+		double fraction = 0.0;
+		int hours, minutes, seconds;
+		StringUtility su = new StringUtility();
+		
+		// parse the input string into H M S . SS
+		// parse hours
+		hours = Integer.parseInt(HMS.substring(0, su.indexOfFirstSpecificChar(HMS,':')));
+		
+		// parse minutes
+		minutes = Integer.parseInt(HMS.substring(su.indexOfFirstSpecificChar(HMS,':')+1, su.indexOfLastSpecificChar(HMS,':')));
+		
+		// parse seconds
+		if (HMS.contains(".")) {
+			seconds = Integer.parseInt(HMS.substring(su.indexOfLastSpecificChar(HMS, ':')+1, su.indexOfLastSpecificChar(HMS, '.')));
+		} else {
+			seconds = Integer.parseInt(HMS.substring(su.indexOfLastSpecificChar(HMS,':')+1));
+		}
+
+		// parse fraction of seconds if necessary
+		if (HMS.contains(".")) {
+			// no longer requiring milliseconds although they are allowed
+			String dec = "0." + HMS.substring(su.indexOfFirstSpecificChar(HMS, '.')+1);
+			fraction   = Float.parseFloat(dec);
+		}
+
+		// convert to posix time, which is total milliseconds of this time
+		return (((hours * 3600.0) + (minutes * 60.0) + seconds + fraction) * 1000);
+	}
+	
 	/**
 	 * Method that takes a date in yyyy/mm/dd format and converts it to milliseconds posix time
 	 * @param input_date - String representation of date in yyyy/mm/dd format
 	 * @return - double millisecond posix representation of date, -1 if the date value is invalid
 	 */
 	public double dateToPosix(String input_date) {
-		BuiltInTester.expecting("return " + 1387152000.0, input_date, "2013/12/16");
-		BuiltInTester.expecting("return " + 0.0, input_date, "1970/01/01");
-		BuiltInTester.expecting("return " + 2764800.0, input_date, "1970/02/02");
+		BuiltInTester.expecting(DATE_TO_POSIX_SITE, "return " + 1387152000.0, input_date, "2013/12/16");
+		BuiltInTester.expecting(DATE_TO_POSIX_SITE, "return " + 0.0, input_date, "1970/01/01");
+		BuiltInTester.expecting(DATE_TO_POSIX_SITE, "return " + 2764800.0, input_date, "1970/02/02");
+		
+		double seconds = posixSeconds(input_date);
+		
+		BuiltInTester.log(DATE_TO_POSIX_SITE, "return ", seconds);
+		return seconds;
+	}
+	
+	
+	/**
+	 * Method that converts a column of dates in yyyy/mm/dd format to milliseconds posix
+	 * time, with the same results as dateToPosix(String) for each date. Meant for bulk
+	 * runs, it does not write BuiltInTester log entries
+	 * @param input_dates - String representations of dates in yyyy/mm/dd format
+	 * @return - double array of millisecond posix representations, -1 for each invalid date
+	 */
+	public double[] dateToPosix(String[] input_dates) {
+		double[] seconds = new double[input_dates.length];
 		
+		for (int i = 0; i < input_dates.length; i++) {
+			seconds[i] = posixSeconds(input_dates[i]);
+		}
+		return seconds;
+	}
+	
+	
+	/**
+	 * Method that does the conversion of dateToPosix without logging the result
+	 * @param input_date - String representation of date in yyyy/mm/dd format
+	 * @return - double millisecond posix representation of date, -1 if the date value is invalid
+	 */
+	private static double posixSeconds(String input_date) {
 		int    year, month, day;
 		int    total_days, num_leap_year;
 		double seconds = 0;
@@ -152,7 +227,6 @@ public class TimeUtility {
 			seconds = -1.0;
 		}
 
-		BuiltInTester.log("return " + seconds);
 		return seconds;
 	}
 	
@@ -0,0 +1,338 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Class representing one line of a batch script on its way from text to output.
+ * The work is split into steps: parse reads the class and method names, convert
+ * resolves the method and converts the parameter values, invoke calls the method and
+ * report writes the outcome to a ResultSink. Batch mode runs the steps back to back,
+ * the pipelined engine runs each step on a stage of its own. A bulk directive goes
+ * through the same steps, see BulkInvocation
+ */
+final class BatchCall {
+
+	/**
+	 * String name of the class as written in the script
+	 */
+	private String className;
+
+	/**
+	 * String name of the method as written in the script
+	 */
+	private String methodName;
+
+	/**
+	 * number of parameter values on the line
+	 */
+	private int arity;
+
+	/**
+	 * resolved method, null until converted
+	 */
+	private MethodInvoker invoker;
+
+	/**
+	 * converted parameter values, null if conversion failed
+	 */
+	private Object[] parameters;
+
+	/**
+	 * message reported instead of a call, e.g. for a malformed line
+	 */
+	private String message;
+
+	/**
+	 * bulk directive run instead of a call, null for an ordinary line
+	 */
+	private BulkInvocation bulk;
+	
+	/**
+	 * bytes reported as they are, e.g. the output stored in a compiled plan
+	 */
+	private byte[] text;
+
+	/**
+	 * category of the error that stopped the call, null if there was none
+	 */
+	private String errorCategory;
+
+	/**
+	 * message of the error that stopped the call
+	 */
+	private String errorMessage;
+
+	/**
+	 * true once a receiver was found and the method was about to be called
+	 */
+	private boolean started;
+
+	/**
+	 * true if the invoking record has not been reported yet
+	 */
+	private boolean invokingDeferred;
+
+	/**
+	 * Object returned by the method
+	 */
+	private Object result;
+
+	/**
+	 * bytes the method printed itself while it ran, when they were captured
+	 */
+	private byte[] output;
+
+
+	/**
+	 * private constructor for BatchCall, use parse, resolved or output
+	 */
+	private BatchCall() {
+	}
+
+
+	/**
+	 * Method used to read the class and method names of a script line
+	 * @param line - line of the script split into fields
+	 * @param names - table of names seen by the current thread
+	 * @return - BatchCall to convert, or to report as a message if the line is malformed
+	 */
+	static BatchCall parse(BatchLine line, NameTable names) {
+		BatchCall call = new BatchCall();
+		if (BulkInvocation.isDirective(line)) {
+			call.bulk = BulkInvocation.parse(line, names);
+			if (call.bulk != null) {
+				call.className = call.bulk.getClassName();
+				call.methodName = call.bulk.getMethodName();
+			} else {
+				call.message = FrameworkConstants.BULK_DIRECTIVE_ERROR;
+			}
+		} else if (line.fieldCount() >= FrameworkConstants.PARAMETER_INDEX) {
+			call.className = names.intern(line.field(FrameworkConstants.CLASS_INDEX));
+			call.methodName = names.intern(line.field(FrameworkConstants.METHOD_INDEX));
+			call.arity = line.fieldCount() - FrameworkConstants.PARAMETER_INDEX;
+		} else {
+			// the line does not have enough fields to contain even
+			// the two basic fields:  class and method
+			call.message = FrameworkConstants.FILE_NOT_FOUND_EXCEPTION;
+		}
+		return call;
+	}
+
+
+	/**
+	 * Method used to create a call that is already resolved and converted, e.g. read from a plan
+	 * @param className - String name of the class as written in the script
+	 * @param methodName - String name of the method as written in the script
+	 * @param invoker - resolved method
+	 * @param parameters - converted parameter values
+	 * @return - BatchCall ready to invoke
+	 */
+	static BatchCall resolved(String className, String methodName, MethodInvoker invoker, Object[] parameters) {
+		BatchCall call = new BatchCall();
+		call.className = className;
+		call.methodName = methodName;
+		call.arity = parameters.length;
+		call.invoker = invoker;
+		call.parameters = parameters;
+		return call;
+	}
+
+
+	/**
+	 * Method used to create a call that only reports bytes as they are
+	 * @param text - bytes to report
+	 * @return - BatchCall with nothing to convert or invoke
+	 */
+	static BatchCall output(byte[] text) {
+		BatchCall call = new BatchCall();
+		call.text = text;
+		return call;
+	}
+
+
+	/**
+	 * Method used to resolve the method and convert the parameter values of a parsed line
+	 * @param cache - cache of resolved methods
+	 * @param line - line the call was parsed from
+	 * @return - true if the call is ready to invoke, false if there is only something to report
+	 */
+	boolean convert(InvocationCache cache, BatchLine line) {
+		if (isReady()) {
+			return true;
+		}
+		if (bulk != null) {
+			// the column file is converted when the directive runs
+			return message == null;
+		}
+		if (message != null || text != null) {
+			return false;
+		}
+
+		try {
+			invoker = cache.resolve(className, methodName, arity);
+
+			if (invoker != null) {
+				Class<?>[] parameterTypes = invoker.getParameterTypes();
+				parameters = new Object[parameterTypes.length];
+
+				for (int index = 0; index < parameterTypes.length; index++) {
+					parameters[index] = invoker.convertParameter(index, line.field(FrameworkConstants.PARAMETER_INDEX + index));
+				}
+				return true;
+			} else {
+				message = FrameworkConstants.METHOD_SELECTION_ERROR;
+			}
+
+		} catch (ClassNotFoundException e) {
+			fail(FrameworkConstants.CLASS_NOT_FOUND_EXCEPTION, e);
+		} catch (ClassCastException e) {
+			fail(FrameworkConstants.CLASS_CAST_EXCEPTION, e);
+		} catch (IllegalArgumentException e) {
+			fail(FrameworkConstants.ILLEGAL_ARGUMENT_EXCEPTION, e);
+		}
+		// errors before conversion finished are reported without parameter values
+		parameters = null;
+		return false;
+	}
+
+
+	/**
+	 * Method used to check whether the call is resolved and converted
+	 * @return - true if the call can be invoked
+	 */
+	boolean isReady() {
+		return ((invoker != null && parameters != null) || (bulk != null && message == null)) && errorCategory == null;
+	}
+	
+	
+	/**
+	 * Method used to check whether the method was called and returned normally
+	 * @return - true if the call has a result to report
+	 */
+	boolean returned() {
+		return started && errorCategory == null;
+	}
+	
+	
+	/**
+	 * Method used to check whether the call is a bulk directive
+	 * @return - true if invoking the call runs a bulk overload over a column file
+	 */
+	boolean isBulk() {
+		return bulk != null;
+	}
+
+
+	/**
+	 * Method used to invoke a converted call
+	 * @param mode - mode whose caches are used to make the call
+	 * @param sink - sink told right before the method is called, null to leave that to report
+	 */
+	void invoke(Mode mode, ResultSink sink) {
+		try {
+			if (bulk != null) {
+				message = bulk.run(mode);
+				return;
+			}
+			Object receiver = mode.invocationCache.receiver(invoker);
+			started = true;
+			if (sink != null) {
+				sink.invoking(className, methodName, parameters);
+			} else {
+				invokingDeferred = true;
+			}
+			result = mode.invokeMethod(invoker, receiver, parameters);
+
+		} catch (ClassCastException e) {
+			fail(FrameworkConstants.CLASS_CAST_EXCEPTION, e);
+		} catch (InstantiationException e) {
+			fail(FrameworkConstants.INSTANTIATION_EXCEPTION, e);
+		} catch (IllegalAccessException e) {
+			fail(FrameworkConstants.ILLEGAL_ACCESS_EXCEPTION, e);
+		} catch (IllegalArgumentException e) {
+			fail(FrameworkConstants.ILLEGAL_ARGUMENT_EXCEPTION, e);
+		} catch (InvocationTargetException e) {
+			fail(FrameworkConstants.INVOCATION_TARGET_EXCEPTION, e);
+		} catch (InvocationTimeoutException e) {
+			fail(FrameworkConstants.INVOCATION_TIMEOUT_EXCEPTION, e);
+		} catch (ClassNotFoundException e) {
+			fail(FrameworkConstants.CLASS_NOT_FOUND_EXCEPTION, e);
+		} catch (IOException e) {
+			fail(FrameworkConstants.FILE_READ_EXCEPTION, e);
+		}
+	}
+
+
+	/**
+	 * Method used to keep what the method printed while it was invoked, so report can write it
+	 * @param output - bytes printed by the method
+	 */
+	void setOutput(byte[] output) {
+		this.output = output;
+	}
+
+
+	/**
+	 * Method used to write the outcome of the call
+	 * @param sink - sink to write to
+	 */
+	void report(ResultSink sink) {
+		if (text != null) {
+			System.out.write(text, 0, text.length);
+			return;
+		}
+		if (message != null) {
+			sink.message(message);
+			return;
+		}
+
+		if (started && invokingDeferred) {
+			sink.invoking(className, methodName, parameters);
+			if (output != null) {
+				System.out.write(output, 0, output.length);
+			}
+		}
+		if (errorCategory != null) {
+			sink.error(className, methodName, parameters, errorCategory, errorMessage);
+		} else if (started) {
+			sink.result(className, methodName, parameters, invoker.getReturnType(), result);
+		}
+	}
+
+
+	/**
+	 * Method used to record the error that stopped the call
+	 * @param category - one of the FrameworkConstants.*_EXCEPTION descriptions
+	 * @param e - exception raised
+	 */
+	private void fail(String category, Exception e) {
+		errorCategory = category;
+		errorMessage = e.getMessage();
+	}
+
+
+	String getClassName() {
+		return className;
+	}
+
+
+	String getMethodName() {
+		return methodName;
+	}
+
+
+	int getArity() {
+		return arity;
+	}
+
+
+	MethodInvoker getInvoker() {
+		return invoker;
+	}
+
+
+	Object[] getParameters() {
+		return parameters;
+	}
+}
@@ -0,0 +1,194 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.ohs1.winter2013.BuiltInTester;
+
+/**
+ * Class representing the checkpoint of a batch run writing its results to a file. A
+ * checkpoint records the file offset of the next script line to run, the length of the
+ * output once every earlier line was written and flushed, and the length of a journal the
+ * test log entries of those lines were exported to. A run that died is resumed from its
+ * last checkpoint: the output and journal are cut back to the recorded lengths, dropping
+ * whatever later lines wrote, and the script is read again from the recorded offset.
+ * <p>
+ * The checkpoint is kept next to the output as OUTPUT.checkpoint and the journal as
+ * OUTPUT.checkpoint.log. Both are removed once the run finishes
+ */
+final class BatchCheckpoint {
+
+	/**
+	 * first int of a checkpoint file
+	 */
+	private static final int MAGIC = 0x4243504b;
+
+	/**
+	 * file the checkpoint is saved to
+	 */
+	private final File file;
+
+	/**
+	 * journal the test log entries of checkpointed lines are exported to
+	 */
+	private final File journal;
+
+	/**
+	 * file results are written to
+	 */
+	private final File output;
+
+	/**
+	 * batch script being run
+	 */
+	private final File script;
+
+	/**
+	 * file offset of the next script line to run
+	 */
+	private long scriptOffset;
+
+	/**
+	 * number of script lines run before the checkpoint
+	 */
+	private long lineCount;
+
+	/**
+	 * length of the output at the checkpoint
+	 */
+	private long outputLength;
+
+	/**
+	 * length of the journal at the checkpoint
+	 */
+	private long journalLength;
+
+
+	/**
+	 * package-private constructor for BatchCheckpoint
+	 * @param outputPath - path of the file results are written to
+	 * @param script - batch script being run
+	 */
+	BatchCheckpoint(String outputPath, File script) {
+		this.file = new File(outputPath + ".checkpoint");
+		this.journal = new File(outputPath + ".checkpoint.log");
+		this.output = new File(outputPath);
+		this.script = script;
+	}
+
+
+	/**
+	 * Method used to read the last checkpoint saved
+	 * @return - true if a checkpoint was read, false if there is none
+	 * @throws IOException - thrown when the checkpoint cannot be read or belongs to another script
+	 */
+	boolean load() throws IOException {
+		if (!file.exists()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a batch checkpoint: " + file.getPath());
+			}
+			if (in.readLong() != script.length()) {
+				throw new IOException("Script changed since the checkpoint was saved: " + script.getPath());
+			}
+			scriptOffset = in.readLong();
+			lineCount = in.readLong();
+			outputLength = in.readLong();
+			journalLength = in.readLong();
+		}
+		return true;
+	}
+
+
+	/**
+	 * Method used to drop what was written after the checkpoint that was loaded
+	 * @throws IOException - thrown when the output or journal is shorter than recorded
+	 */
+	void restore() throws IOException {
+		truncate(output, outputLength);
+		truncate(journal, journalLength);
+	}
+
+
+	/**
+	 * Method used to save a checkpoint once every line before it was written and flushed.
+	 * The test log entries created since the last checkpoint are moved to the journal, and
+	 * the checkpoint replaces the last one in a single rename so a run that dies while
+	 * saving still has the previous checkpoint to resume from
+	 * @param scriptOffset - file offset of the next script line to run
+	 * @param lineCount - number of script lines run so far
+	 * @throws IOException - thrown when the journal or checkpoint cannot be written
+	 */
+	void save(long scriptOffset, long lineCount) throws IOException {
+		BuiltInTester.exportLog(journal, true);
+
+		File saving = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(saving)))) {
+			out.writeInt(MAGIC);
+			out.writeLong(script.length());
+			out.writeLong(scriptOffset);
+			out.writeLong(lineCount);
+			out.writeLong(output.length());
+			out.writeLong(journal.length());
+		}
+		Files.move(saving.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		this.scriptOffset = scriptOffset;
+		this.lineCount = lineCount;
+	}
+
+
+	/**
+	 * Method used to finish a run, putting the journaled test log entries back in front of
+	 * the entries of lines run since the last checkpoint and removing the checkpoint
+	 * @throws IOException - thrown when the journal cannot be read
+	 */
+	void finish() throws IOException {
+		if (journal.exists()) {
+			BuiltInTester.exportLog(journal, true);
+			BuiltInTester.importLog(journal);
+		}
+		journal.delete();
+		file.delete();
+	}
+
+
+	/**
+	 * Method used to cut a file back to its length at the checkpoint
+	 * @param target - file to cut
+	 * @param length - length of the file at the checkpoint
+	 * @throws IOException - thrown when the file is shorter than the checkpoint says
+	 */
+	private static void truncate(File target, long length) throws IOException {
+		if (length == 0 && !target.exists()) {
+			return;
+		}
+		try (RandomAccessFile access = new RandomAccessFile(target, "rw")) {
+			if (access.length() < length) {
+				throw new IOException("File is shorter than at the checkpoint: " + target.getPath());
+			}
+			access.setLength(length);
+		}
+	}
+
+
+	long getScriptOffset() {
+		return scriptOffset;
+	}
+
+
+	long getLineCount() {
+		return lineCount;
+	}
+}
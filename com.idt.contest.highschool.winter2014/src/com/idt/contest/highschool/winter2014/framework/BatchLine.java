@@ -0,0 +1,175 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class representing one line of a batch script split into comma separated fields.
+ * The fields are recorded as offsets into the buffer the line was read from, so
+ * splitting a line allocates nothing. Fields follow the rules of String.split(","):
+ * empty fields at the end of the line are dropped
+ */
+public class BatchLine {
+
+	/**
+	 * buffer holding the line
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * absolute index of the first byte of the line
+	 */
+	private int start;
+
+	/**
+	 * absolute index one past the last byte of the line, line terminator excluded
+	 */
+	private int end;
+
+	/**
+	 * number of fields in the line
+	 */
+	private int fieldCount;
+
+	/**
+	 * absolute start index of each field
+	 */
+	private int[] fieldStarts = new int[8];
+
+	/**
+	 * absolute end index of each field
+	 */
+	private int[] fieldEnds = new int[8];
+
+	/**
+	 * reusable views handed out by field()
+	 */
+	private ByteSlice[] fieldViews = new ByteSlice[0];
+
+
+	/**
+	 * Method used to point this line at a run of bytes and split it into fields
+	 * @param buffer - buffer holding the line
+	 * @param start - absolute index of the first byte of the line
+	 * @param end - absolute index one past the last byte of the line
+	 */
+	public void set(ByteBuffer buffer, int start, int end) {
+		this.buffer = buffer;
+		this.start = start;
+		this.end = end;
+		this.fieldCount = 0;
+
+		int fieldStart = start;
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == ',') {
+				addField(fieldStart, i);
+				fieldStart = i + 1;
+			}
+		}
+		addField(fieldStart, end);
+
+		// like String.split, drop trailing empty fields unless the whole line is empty
+		if (end > start) {
+			while (fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+				fieldCount--;
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to record the bounds of the next field
+	 * @param fieldStart - absolute start index of the field
+	 * @param fieldEnd - absolute end index of the field
+	 */
+	private void addField(int fieldStart, int fieldEnd) {
+		if (fieldCount == fieldStarts.length) {
+			int[] starts = new int[fieldCount * 2];
+			int[] ends = new int[fieldCount * 2];
+			System.arraycopy(fieldStarts, 0, starts, 0, fieldCount);
+			System.arraycopy(fieldEnds, 0, ends, 0, fieldCount);
+			fieldStarts = starts;
+			fieldEnds = ends;
+		}
+		fieldStarts[fieldCount] = fieldStart;
+		fieldEnds[fieldCount] = fieldEnd;
+		fieldCount++;
+	}
+
+
+	/**
+	 * Method used to get the number of fields in the line
+	 * @return - int number of fields
+	 */
+	public int fieldCount() {
+		return fieldCount;
+	}
+
+
+	/**
+	 * Method used to view a field without copying it, the returned view is reused
+	 * by later calls for the same index and by the next set() call
+	 * @param index - index of the field
+	 * @return - ByteSlice over the field
+	 */
+	public ByteSlice field(int index) {
+		if (index >= fieldCount) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		if (index >= fieldViews.length) {
+			ByteSlice[] views = new ByteSlice[Math.max(fieldStarts.length, index + 1)];
+			System.arraycopy(fieldViews, 0, views, 0, fieldViews.length);
+			for (int i = fieldViews.length; i < views.length; i++) {
+				views[i] = new ByteSlice();
+			}
+			fieldViews = views;
+		}
+		return fieldViews[index].set(buffer, fieldStarts[index], fieldEnds[index]);
+	}
+
+
+	/**
+	 * Method used to get the length of the normalized line, the fields without the empty
+	 * fields dropped from the end of the line
+	 * @return - int number of bytes from the start of the first field to the end of the last
+	 */
+	public int contentLength() {
+		return (fieldCount == 0) ? 0 : fieldEnds[fieldCount - 1] - start;
+	}
+
+
+	/**
+	 * Method used to copy the normalized line, see contentLength
+	 * @param target - array to copy to, at least contentLength() long
+	 */
+	public void copyContent(byte[] target) {
+		int length = contentLength();
+		for (int i = 0; i < length; i++) {
+			target[i] = buffer.get(start + i);
+		}
+	}
+
+
+	/**
+	 * Method used to make an independent copy of this line that stays valid after
+	 * this line is reused. The copy shares the underlying buffer, which is never modified
+	 * @return - BatchLine with the same contents
+	 */
+	public BatchLine copy() {
+		BatchLine copy = new BatchLine();
+		copy.buffer = buffer;
+		copy.start = start;
+		copy.end = end;
+		copy.fieldCount = fieldCount;
+		copy.fieldStarts = new int[Math.max(fieldCount, 1)];
+		copy.fieldEnds = new int[Math.max(fieldCount, 1)];
+		System.arraycopy(fieldStarts, 0, copy.fieldStarts, 0, fieldCount);
+		System.arraycopy(fieldEnds, 0, copy.fieldEnds, 0, fieldCount);
+		return copy;
+	}
+
+
+	@Override
+	public String toString() {
+		return new ByteSlice().set(buffer, start, end).toString();
+	}
+}
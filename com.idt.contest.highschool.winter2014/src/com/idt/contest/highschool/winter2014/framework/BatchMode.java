@@ -1,17 +1,30 @@
 package com.idt.contest.highschool.winter2014.framework;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.Recording;
 
 /**
  * Class that represents the batch processing mode of this application. Batch
  * mode is the mode that allows you to supply an argument at runtime describing
- * a data file path, which describes which classes and methods to execute as a script
+ * a data file path, which describes which classes and methods to execute as a script.
+ * The file may also be a plan compiled from a script, see BatchPlan. A script line may
+ * also be a bulk directive calling one method over a column file, see BulkInvocation
  */
 public class BatchMode extends Mode {
 
@@ -21,6 +34,106 @@ public class BatchMode extends Mode {
 	 */
 	String filepath;
 	
+	/**
+	 * number of worker threads used to process lines, 1 processes lines on the calling thread
+	 */
+	private int parallelism = 1;
+	
+	/**
+	 * number of worker threads of the tokenize, convert, invoke and format stages, null to not use a pipeline
+	 */
+	private int[] pipelineWorkers;
+	
+	/**
+	 * number of chunks of lines that may wait between two pipeline stages
+	 */
+	private int pipelineQueueCapacity = FrameworkConstants.DEFAULT_PIPELINE_QUEUE_CAPACITY;
+	
+	/**
+	 * file offset where the range of script lines to run starts
+	 */
+	private long rangeStart = 0;
+	
+	/**
+	 * file offset where the range of script lines to run ends, -1 to run the whole script
+	 */
+	private long rangeEnd = -1;
+	
+	/**
+	 * path of the plan file to compile the script into, null to execute the script
+	 */
+	private String compileTarget;
+	
+	/**
+	 * path of the file results are written to, null to write them to the console
+	 */
+	private String outputPath;
+	
+	/**
+	 * number of lines written between flushes of the output
+	 */
+	private int flushInterval = FrameworkConstants.DEFAULT_FLUSH_INTERVAL;
+	
+	/**
+	 * number of lines written since the output was last flushed
+	 */
+	private int unflushedLines;
+	
+	/**
+	 * number of lines run between checkpoints, 0 to not save checkpoints
+	 */
+	private int checkpointInterval;
+	
+	/**
+	 * true to resume from the last checkpoint saved next to the output
+	 */
+	private boolean resume;
+	
+	/**
+	 * checkpoint of the run, null when no checkpoints are saved
+	 */
+	private BatchCheckpoint checkpoint;
+	
+	/**
+	 * number of lines run since the last checkpoint
+	 */
+	private int uncheckpointedLines;
+	
+	/**
+	 * number of lines run, including those run before resuming
+	 */
+	private long linesRun;
+	
+	/**
+	 * cache of the script lines seen so far, null unless duplicate lines are collapsed
+	 */
+	private DuplicateLineCache duplicateLineCache;
+	
+	/**
+	 * capture collecting the output of lines the duplicate line cache processes, null when not in use
+	 */
+	private OutputCapture lineCapture;
+	
+	/**
+	 * writer of the plan being compiled, null when executing
+	 */
+	private BatchPlanWriter planWriter;
+	
+	/**
+	 * first error raised while writing the plan being compiled
+	 */
+	private IOException planWriteFailure;
+	
+	/**
+	 * table of class and method names seen by each thread
+	 */
+	private ThreadLocal<NameTable> nameTable = new ThreadLocal<NameTable>() {
+		@Override
+		protected NameTable initialValue() {
+			return new NameTable();
+		}
+	};
+	
 	
 	/**
 	 * public constructor for BatchMode
@@ -31,132 +144,729 @@ public class BatchMode extends Mode {
 	}
 	
 	
+	/**
+	 * package-private constructor for a BatchMode that shares the caches and result
+	 * format of another mode, e.g. one session of a ServerMode
+	 * @param _filepath - path of the batch script or plan to run, null if lines are supplied one by one
+	 * @param shared - mode whose registry, caches, result sink and file directory are used
+	 */
+	BatchMode(String _filepath, Mode shared) {
+		super(shared.registry);
+		this.filepath = _filepath;
+		this.invocationCache = shared.invocationCache;
+		this.resultCache = shared.resultCache;
+		this.resultSink = shared.resultSink;
+		this.fileDirectory = shared.fileDirectory;
+	}
+	
+	
+	/**
+	 * public constructor for BatchMode
+	 * @param _filepath - path of the batch script or plan to run
+	 * @param registry - registry of the classes and methods that can be invoked
+	 */
+	public BatchMode(String _filepath, InvocationRegistry registry) {
+		super(registry);
+		this.filepath = _filepath;
+	}
+	
+	
+	/**
+	 * Method used to set the number of worker threads used to process lines
+	 * @param parallelism - number of worker threads, 1 processes lines sequentially
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
+	
+	/**
+	 * Method used to run the batch on a pipeline of stages instead of processing each line
+	 * start to finish, see BatchPipeline. Takes the place of parallel workers
+	 * @param workers - number of worker threads of the tokenize, convert, invoke and format stages
+	 * @param queueCapacity - number of chunks of lines that may wait between two stages
+	 */
+	public void setPipeline(int[] workers, int queueCapacity) {
+		this.pipelineWorkers = workers.clone();
+		this.pipelineQueueCapacity = Math.max(1, queueCapacity);
+	}
+	
+	
+	/**
+	 * Method used to run only the script lines that start in a range of bytes of the file.
+	 * Only the records of those lines are written, without the header or trailer of the
+	 * result format, so the outputs of consecutive ranges can be joined, see ShardMode
+	 * @param start - file offset where the range starts
+	 * @param end - file offset where the range ends
+	 */
+	public void setRange(long start, long end) {
+		this.rangeStart = start;
+		this.rangeEnd = end;
+	}
+	
+	
+	/**
+	 * Method used to compile the batch script into a plan file instead of executing it
+	 * @param planPath - path of the plan file to create
+	 */
+	public void setCompileTarget(String planPath) {
+		this.compileTarget = planPath;
+	}
+	
+	
+	/**
+	 * Method used to write results to a file instead of the console
+	 * @param outputPath - path of the file to create, null for the console
+	 */
+	public void setOutputPath(String outputPath) {
+		this.outputPath = outputPath;
+	}
+	
+	
+	/**
+	 * Method used to set how many lines are written between flushes of the output
+	 * @param flushInterval - number of lines, 1 flushes after every line
+	 */
+	public void setFlushInterval(int flushInterval) {
+		this.flushInterval = Math.max(1, flushInterval);
+	}
+	
+	
+	/**
+	 * Method used to save a checkpoint every given number of lines, so a run that dies can
+	 * be resumed without running the lines before it again, see BatchCheckpoint. Needs the
+	 * results to be written to a file. Lines are run one at a time while checkpointing, so
+	 * the output and test log at a checkpoint hold exactly the lines before it
+	 * @param interval - number of lines run between checkpoints
+	 * @param resume - true to resume from the last checkpoint saved, if there is one
+	 */
+	public void setCheckpoint(int interval, boolean resume) {
+		this.checkpointInterval = Math.max(1, interval);
+		this.resume = resume;
+	}
+	
+	
+	/**
+	 * Method used to run each distinct script line once and repeat its output for every
+	 * duplicate, see DuplicateLineCache. Lines are only collapsed when they are run one
+	 * at a time, not on parallel workers or a pipeline
+	 * @param maxEntries - maximum number of distinct lines kept
+	 */
+	public void enableDeduplication(int maxEntries) {
+		this.duplicateLineCache = new DuplicateLineCache(maxEntries);
+	}
+	
+	
 	/**
 	 * Method to execute batch mode execution
 	 */
 	public void execute() {
-
+		boolean resumed;
+		try {
+			resumed = openCheckpoint();
+		} catch (IOException e) {
+			System.out.println(FrameworkConstants.CHECKPOINT_ERROR + e.getMessage());
+			return;
+		}
+		
+		PrintStream console = System.out;
+		PrintStream output;
+		try {
+			output = openOutput(resumed);
+		} catch (FileNotFoundException e) {
+			System.out.println(FrameworkConstants.FILE_NOT_FOUND_EXCEPTION);
+			System.out.println(e.getMessage()+"\n");
+			return;
+		}
+		
+		// everything printed while the batch runs goes through one large buffer
+		console.flush();
+		System.setOut(output);
+		try {
+			if (this.rangeEnd < 0 && !resumed) {
+				resultSink.start();
+			}
+			executeBatch();
+			if (this.rangeEnd < 0) {
+				resultSink.finish();
+			}
+			if (this.checkpoint != null) {
+				finishCheckpoint();
+			}
+		} finally {
+			output.flush();
+			System.setOut(console);
+			if (this.outputPath != null) {
+				output.close();
+			}
+		}
+		
+		printRunStatistics();
+	}
+	
+	
+	/**
+	 * Method used to report result cache statistics, latencies and duplicate lines once a batch has finished
+	 */
+	@Override
+	protected void printRunStatistics() {
+		super.printRunStatistics();
+		if (this.duplicateLineCache != null) {
+			this.duplicateLineCache.printSummary(System.err);
+		}
+	}
+	
+	
+	/**
+	 * Method used to set up checkpoints of a batch script run, loading the last one when resuming
+	 * @return - true if the run resumes from a checkpoint
+	 * @throws IOException - thrown when the checkpoint cannot be read or the output cannot be restored to it
+	 */
+	private boolean openCheckpoint() throws IOException {
+		if (this.checkpointInterval < 1) {
+			return false;
+		}
+		File script = new File(this.filepath);
+		if (this.compileTarget != null || BatchPlan.isPlan(script)) {
+			System.err.println("CHECKPOINT: only batch scripts that are run are checkpointed, " + this.filepath + " is run without checkpoints");
+			return false;
+		}
+		if (this.outputPath == null) {
+			throw new IOException("results must be written to a file with " + FrameworkConstants.OUTPUT_OPTION);
+		}
+		
+		this.checkpoint = new BatchCheckpoint(this.outputPath, script);
+		if (this.parallelism > 1 || this.pipelineWorkers != null) {
+			System.err.println("CHECKPOINT: lines are run one at a time while saving checkpoints");
+		}
+		if (this.resume) {
+			if (this.checkpoint.load()) {
+				this.checkpoint.restore();
+				this.linesRun = this.checkpoint.getLineCount();
+				System.err.println("CHECKPOINT: resuming " + this.filepath + " after line " + this.linesRun);
+				return true;
+			}
+			System.err.println("CHECKPOINT: no checkpoint of " + this.outputPath + " was saved, starting from the beginning");
+		}
+		return false;
+	}
+	
+	
+	/**
+	 * Method used to save a checkpoint once every line before it was written
+	 * @param scriptOffset - file offset of the next script line to run
+	 */
+	private void saveCheckpoint(long scriptOffset) {
+		System.out.flush();
+		this.unflushedLines = 0;
+		this.uncheckpointedLines = 0;
+		try {
+			this.checkpoint.save(scriptOffset, this.linesRun);
+		} catch (IOException e) {
+			// keep running, a later checkpoint may succeed and the last one saved is still valid
+			System.err.println("CHECKPOINT: could not save a checkpoint - " + e.getMessage());
+		}
+	}
+	
+	
+	/**
+	 * Method used to remove the checkpoint of a finished run, restoring the test log entries it held
+	 */
+	private void finishCheckpoint() {
+		try {
+			this.checkpoint.finish();
+		} catch (IOException e) {
+			System.err.println("CHECKPOINT: could not restore the test log - " + e.getMessage());
+		}
+		this.checkpoint = null;
+	}
+	
+	
+	/**
+	 * Method used to open the stream results are written to
+	 * @param append - true to add to the end of the output file, when resuming
+	 * @return - buffered PrintStream writing to the output file or the console
+	 * @throws FileNotFoundException - thrown when the output file cannot be created
+	 */
+	private PrintStream openOutput(boolean append) throws FileNotFoundException {
+		OutputStream target;
+		if (this.outputPath != null) {
+			target = new FileOutputStream(this.outputPath, append);
+		} else {
+			target = new FileOutputStream(FileDescriptor.out);
+		}
+		return new PrintStream(new BufferedOutputStream(target, FrameworkConstants.OUTPUT_BUFFER_SIZE), false);
+	}
+	
+	
+	/**
+	 * Method used to compile or run the batch file, printing to the current System.out
+	 */
+	void executeBatch() {
 		try {
 			File fileToRead = new File(this.filepath);
-			this.scanner = new Scanner(fileToRead);
 			
-			while (this.scanner.hasNextLine()) {	
-				processLine(this.scanner.nextLine());
+			if (this.compileTarget != null) {
+				compile(fileToRead);
+			} else if (this.pipelineWorkers != null && this.checkpoint == null) {
+				executePipeline(fileToRead);
+			} else if (BatchPlan.isPlan(fileToRead)) {
+				run(new PlanSource(new BatchPlanReader(fileToRead, this.invocationCache)));
+			} else {
+				run(new ScriptSource(openScript(fileToRead)));
 			}
 
 		} catch (FileNotFoundException e) {
-			System.out.println(FrameworkConstants.FILE_NOT_FOUND_EXCEPTION);
+			resultSink.message(FrameworkConstants.FILE_NOT_FOUND_EXCEPTION);
+		} catch (IOException e) {
+			resultSink.message(FrameworkConstants.FILE_READ_EXCEPTION);
+			resultSink.message(e.getMessage()+"\n");
 		}
 	}
 	
 	
 	/**
-	 * Method that processes a single line from the batch script
-	 * @param line - String line of text parsed from the batch script
-	 */
-	private void processLine(String line) {
-		String className, methodName;
-		String[] parameterValues;
-		String[] lineContents = line.split(FrameworkConstants.COMMA_DELIMITER);
-		 
-		if (lineContents.length >= FrameworkConstants.PARAMETER_INDEX) {
-				
-			className = lineContents[FrameworkConstants.CLASS_INDEX];
-			methodName = lineContents[FrameworkConstants.METHOD_INDEX];
-			
-			if (lineContents.length > FrameworkConstants.PARAMETER_INDEX) {
-				parameterValues = new String[lineContents.length - FrameworkConstants.PARAMETER_INDEX];
-				for (int i = FrameworkConstants.PARAMETER_INDEX; i < lineContents.length; i++) {
-					parameterValues[i - FrameworkConstants.PARAMETER_INDEX] = lineContents[i];
+	 * Method used to open the script for reading, limited to the range of lines to run if one was set
+	 * @param scriptFile - batch script to read
+	 * @return - BatchScriptReader of the lines to run
+	 * @throws IOException - thrown when the script cannot be opened
+	 */
+	private BatchScriptReader openScript(File scriptFile) throws IOException {
+		if (this.linesRun > 0) {
+			// resuming, the checkpoint is at the start of a line in the range
+			long end = (this.rangeEnd >= 0) ? this.rangeEnd : Long.MAX_VALUE;
+			return new BatchScriptReader(scriptFile, this.checkpoint.getScriptOffset(), end);
+		}
+		if (this.rangeEnd >= 0) {
+			return new BatchScriptReader(scriptFile, this.rangeStart, this.rangeEnd);
+		}
+		return new BatchScriptReader(scriptFile);
+	}
+	
+	
+	/**
+	 * Method used to run every unit of work from a source, sequentially or on worker threads
+	 * @param source - source of the work to run
+	 * @throws IOException - thrown when the source cannot be read
+	 */
+	private void run(WorkSource source) throws IOException {
+		try {
+			if (this.parallelism > 1 && this.checkpoint == null) {
+				executeParallel(source);
+			} else if (this.duplicateLineCache != null) {
+				this.lineCapture = new OutputCapture(System.out);
+				this.lineCapture.install();
+				try {
+					runSequential(source);
+				} finally {
+					this.lineCapture.uninstall();
+					this.lineCapture = null;
 				}
-				
 			} else {
-				parameterValues = new String[0];
+				runSequential(source);
 			}
-			
-			// by now we should have Class, Method, and Parameters (if there are any)
-			invokeClassMethod(className, methodName, parameterValues);
+		} finally {
+			source.close();
+		}
+	}
+	
 	
+	/**
+	 * Method used to run every unit of work from a source on the calling thread, saving checkpoints if enabled
+	 * @param source - source of the work to run
+	 * @throws IOException - thrown when the source cannot be read
+	 */
+	private void runSequential(WorkSource source) throws IOException {
+		Runnable work;
+		if (this.checkpoint != null) {
+			while ((work = source.next(false)) != null) {
+				work.run();
+				lineWritten();
+				this.linesRun++;
+				if (++this.uncheckpointedLines >= this.checkpointInterval) {
+					saveCheckpoint(source.offset());
+				}
+			}
 		} else {
-			// the line contents array does not have enough fields to contain even
-			// the two basic fields:  class and method
-			System.out.println(FrameworkConstants.FILE_NOT_FOUND_EXCEPTION);
+			while ((work = source.next(false)) != null) {
+				work.run();
+				lineWritten();
+			}
 		}
 	}
 	
 	
 	/**
-	 * Method to invoke a particular method on a particular class with particular parameter values
-	 * @param className - String representation of the class 
-	 * @param methodName - String representation of the method
-	 * @param parameterValues - String array representation of the parameter values
-	 */
-	private void invokeClassMethod(String className, String methodName, String[] parameterValues) {
-		Class<?> clazz = null;
-		Object result = "no result";
-		Class<?>[] parameterTypes = null;
-		List<Object> parameterList = new ArrayList<Object>();
-		Method selectedMethod = null;
-
+	 * Method used to compile the batch script into a plan. Each line is resolved and its
+	 * parameter values converted exactly as when executing, and anything the line would
+	 * print instead of being invoked is stored in the plan to be printed when it runs
+	 * @param scriptFile - batch script to compile
+	 * @throws IOException - thrown when the script cannot be read or the plan cannot be written
+	 */
+	private void compile(File scriptFile) throws IOException {
+		BatchScriptReader reader = openScript(scriptFile);
+		OutputCapture capture = new OutputCapture(System.out);
+		BatchLine line = new BatchLine();
+		long lineCount = 0;
+		
+		this.planWriter = new BatchPlanWriter(new File(this.compileTarget));
+		capture.install();
 		try {
-			clazz = Class.forName(className);
-			
-			Method[] allMethods = clazz.getDeclaredMethods();
-			for (Method m : allMethods) {
-				if (m != null && m.getName().equals(methodName)) {
-					selectedMethod = m;
+			while (reader.next(line)) {
+				byte[] output;
+				capture.begin();
+				try {
+					processLine(line);
+				} finally {
+					output = capture.end();
 				}
-			}
-			
-			if (selectedMethod != null) {
-				parameterTypes = selectedMethod.getParameterTypes();
-			
-				int index = 0;
-				for (Class<?> paramType: parameterTypes) {
-					parameterList.add(classCaster.cast(paramType, parameterValues[index++]));
+				
+				if (this.planWriteFailure != null) {
+					throw this.planWriteFailure;
 				}
+				if (output.length > 0) {
+					this.planWriter.writeOutput(output);
+				}
+				lineCount++;
+			}
+		} finally {
+			capture.uninstall();
+			this.planWriter.close();
+			reader.close();
+		}
+		
+		System.err.println("PLAN: compiled " + lineCount + " lines (" + this.planWriter.getCallCount() + " calls to "
+				+ this.planWriter.getMethodCount() + " methods) into " + this.compileTarget);
+		this.planWriter = null;
+	}
+	
+	
+	/**
+	 * Method that runs a batch script or plan on a pipeline of stages and reports how busy each stage was
+	 * @param fileToRead - batch script or plan to run
+	 * @throws IOException - thrown when the file cannot be read
+	 */
+	private void executePipeline(File fileToRead) throws IOException {
+		BatchPipeline pipeline = new BatchPipeline(this, this.pipelineWorkers, this.pipelineQueueCapacity);
+		BatchPipeline.Source source;
+		if (BatchPlan.isPlan(fileToRead)) {
+			source = new BatchPipeline.PlanSource(new BatchPlanReader(fileToRead, this.invocationCache));
+		} else {
+			source = new BatchPipeline.ScriptSource(openScript(fileToRead));
+		}
+		
+		try {
+			pipeline.run(source);
+		} finally {
+			pipeline.printSummary(System.err);
+		}
+	}
+	
+	
+	/**
+	 * Method that processes units of work on a pool of worker threads. Each unit's
+	 * output and test log entries are captured while it runs and printed and logged in
+	 * script order, so the output and the test log are the same as processing the lines
+	 * one at a time
+	 * @param source - source of the work to run
+	 * @throws IOException - thrown when the source cannot be read
+	 */
+	private void executeParallel(WorkSource source) throws IOException {
+		ExecutorService workers = Executors.newFixedThreadPool(this.parallelism);
+		OutputCapture capture = new OutputCapture(System.out);
+		Deque<Future<CapturedTask>> pending = new ArrayDeque<Future<CapturedTask>>();
+		int window = this.parallelism * FrameworkConstants.PARALLEL_LINES_PER_WORKER;
+		long lineCount = 0;
+		long startTime = System.nanoTime();
+		Runnable work;
+		
+		capture.install();
+		try {
+			while ((work = source.next(true)) != null) {
+				pending.add(workers.submit(new CapturedTask(work, capture)));
+				lineCount++;
 				
-				Object classInstance = clazz.newInstance();
-				System.out.print("INVOKE: " + className + "/" + methodName);
-				if (parameterList.size() > 0) {
-					System.out.print(" with parameter values [");
-					for (int paramIndex = 0; paramIndex < parameterList.size(); paramIndex++) {
-						if (paramIndex > 0)
-							System.out.print(",");
-						System.out.print(parameterList.get(paramIndex));
-					}
-					System.out.print("]\n");
+				// keep a bounded number of lines in flight, printing the oldest first
+				if (pending.size() >= window) {
+					writeLineOutput(pending.poll());
 				}
-				result = selectedMethod.invoke(classInstance,  parameterList.toArray());
-						
-				if (this.isArray(selectedMethod.getReturnType())) {
-					this.printArray(result);
-				} else { 
-					System.out.println("\nRESULT: " + result + "\n");
+			}
+			while (!pending.isEmpty()) {
+				writeLineOutput(pending.poll());
+			}
+		} finally {
+			workers.shutdownNow();
+			capture.uninstall();
+		}
+		
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		System.err.println("BATCH: processed " + lineCount + " lines in " + String.format("%.3f", seconds) + " s ("
+				+ String.format("%.1f", lineCount / Math.max(seconds, 1e-9)) + " lines/sec) using " + this.parallelism + " workers");
+	}
+	
+	
+	/**
+	 * Method used to wait for a line to finish, print its captured output and log its test log entries
+	 * @param lineOutput - future holding the finished line
+	 */
+	private void writeLineOutput(Future<CapturedTask> lineOutput) {
+		CapturedTask line;
+		try {
+			line = lineOutput.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			// errors that would have stopped a sequential run stop this one too
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		System.out.write(line.output, 0, line.output.length);
+		BuiltInTester.logRecording(line.recording);
+		lineWritten();
+	}
+	
+	
+	/**
+	 * Method used to flush the output once every flushInterval lines
+	 */
+	void lineWritten() {
+		if (++this.unflushedLines >= this.flushInterval) {
+			System.out.flush();
+			this.unflushedLines = 0;
+		}
+	}
+	
+	
+	/**
+	 * Method used to get the table of class and method names seen by the current thread
+	 * @return - NameTable of the current thread
+	 */
+	NameTable names() {
+		return nameTable.get();
+	}
+	
+	
+	/**
+	 * Method that processes a single line from the batch script run on the calling thread,
+	 * through the duplicate line cache if it is in use
+	 * @param line - line of text read from the batch script, split into fields
+	 */
+	private void runLine(BatchLine line) {
+		if (this.lineCapture != null) {
+			this.duplicateLineCache.process(line, this, this.lineCapture);
+		} else {
+			processLine(line);
+		}
+	}
+	
+	
+	/**
+	 * Method that processes a single line from the batch script
+	 * @param line - line of text read from the batch script, split into fields
+	 */
+	void processLine(BatchLine line) {
+		BatchCall call = BatchCall.parse(line, names());
+		
+		if (call.convert(invocationCache, line)) {
+			if (this.planWriter != null && call.isBulk()) {
+				// column files are read when the directive runs, a plan cannot hold it
+				resultSink.message(FrameworkConstants.BULK_PLAN_ERROR);
+				return;
+			} else if (this.planWriter != null) {
+				// compiling, record the resolved call instead of making it
+				try {
+					this.planWriter.writeCall(call.getClassName(), call.getMethodName(), call.getArity(), call.getInvoker(), call.getParameters());
+				} catch (IOException e) {
+					this.planWriteFailure = e;
 				}
-					
-			} else {
-				System.out.println(FrameworkConstants.METHOD_SELECTION_ERROR);
+				return;
 			}
-			
-		} catch (ClassNotFoundException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.CLASS_NOT_FOUND_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
-		} catch (ClassCastException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.CLASS_CAST_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
-		} catch (InstantiationException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.INSTANTIATION_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
-		} catch (IllegalAccessException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.ILLEGAL_ACCESS_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
-		} catch (IllegalArgumentException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.ILLEGAL_ARGUMENT_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
-		} catch (InvocationTargetException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.INVOCATION_TARGET_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
+			call.invoke(this, resultSink);
+		}
+		reportCall(call);
+	}
+	
+	
+	/**
+	 * Method to invoke a resolved method with converted parameter values and print the result
+	 * @param className - String representation of the class 
+	 * @param methodName - String representation of the method
+	 * @param selectedMethod - resolved method to invoke
+	 * @param parameters - converted parameter values
+	 */
+	private void invokeResolvedMethod(String className, String methodName, MethodInvoker selectedMethod, Object[] parameters) {
+		BatchCall call = BatchCall.resolved(className, methodName, selectedMethod, parameters);
+		call.invoke(this, resultSink);
+		reportCall(call);
+	}
+	
+	
+	/**
+	 * Method used to write the outcome of a script line or plan entry once it was invoked
+	 * @param call - call that was invoked, or that has only something to report
+	 */
+	void reportCall(BatchCall call) {
+		call.report(resultSink);
+	}
+	
+	
+	/**
+	 * Interface representing where batch work comes from, a text script or a compiled plan
+	 */
+	private interface WorkSource {
+		
+		/**
+		 * Method used to get the next unit of work
+		 * @param detached - true if the work may run after next() is called again, on another thread
+		 * @return - Runnable doing the work, null when there is no more work
+		 * @throws IOException - thrown when the source cannot be read
+		 */
+		Runnable next(boolean detached) throws IOException;
+		
+		/**
+		 * Method used to get where the work after the last unit returned starts
+		 * @return - long file offset, -1 if the source cannot be read from an offset
+		 */
+		long offset();
+		
+		/**
+		 * Method used to release the file behind the source
+		 * @throws IOException - thrown when the file cannot be closed
+		 */
+		void close() throws IOException;
+	}
+	
+	
+	/**
+	 * Class providing the lines of a text batch script as work
+	 */
+	private class ScriptSource implements WorkSource {
+		
+		private final BatchScriptReader reader;
+		private final BatchLine line = new BatchLine();
+		private final Runnable processCurrentLine = new Runnable() {
+			@Override
+			public void run() {
+				runLine(line);
+			}
+		};
+		
+		ScriptSource(BatchScriptReader reader) {
+			this.reader = reader;
+		}
+		
+		@Override
+		public Runnable next(boolean detached) throws IOException {
+			if (!reader.next(line)) {
+				return null;
+			}
+			if (!detached) {
+				// the line is processed before the next one is read, reuse it
+				return processCurrentLine;
+			}
+			final BatchLine copy = line.copy();
+			return new Runnable() {
+				@Override
+				public void run() {
+					processLine(copy);
+				}
+			};
+		}
+		
+		@Override
+		public long offset() {
+			return reader.offset();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+	
+	
+	/**
+	 * Class providing the entries of a compiled plan as work
+	 */
+	private class PlanSource implements WorkSource {
+		
+		private final BatchPlanReader reader;
+		
+		PlanSource(BatchPlanReader reader) {
+			this.reader = reader;
+		}
+		
+		@Override
+		public Runnable next(boolean detached) throws IOException {
+			byte tag = reader.next();
+			if (tag == BatchPlan.TAG_OUTPUT) {
+				final byte[] output = reader.getOutput();
+				return new Runnable() {
+					@Override
+					public void run() {
+						System.out.write(output, 0, output.length);
+					}
+				};
+			} else if (tag == BatchPlan.TAG_CALL) {
+				final String className = reader.getClassName();
+				final String methodName = reader.getMethodName();
+				final MethodInvoker invoker = reader.getInvoker();
+				final Object[] parameters = reader.getParameters();
+				return new Runnable() {
+					@Override
+					public void run() {
+						invokeResolvedMethod(className, methodName, invoker, parameters);
+					}
+				};
+			}
+			return null;
+		}
+		
+		@Override
+		public long offset() {
+			return -1;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+	
+	
+	/**
+	 * Class representing a unit of work run on a worker thread with its output and test
+	 * log entries captured, returned once run
+	 */
+	private static class CapturedTask implements Callable<CapturedTask> {
+		
+		private final Runnable work;
+		private final OutputCapture capture;
+		private byte[] output;
+		private Recording recording;
+		
+		CapturedTask(Runnable work, OutputCapture capture) {
+			this.work = work;
+			this.capture = capture;
+		}
+		
+		@Override
+		public CapturedTask call() {
+			capture.begin();
+			BuiltInTester.startHeldRecording();
+			try {
+				work.run();
+			} finally {
+				// always end the capture and recording so a pooled thread never keeps stale ones
+				recording = BuiltInTester.stopRecording();
+				output = capture.end();
+			}
+			return this;
 		}
 	}
 	
@@ -0,0 +1,574 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.Recording;
+
+/**
+ * Class running a batch script as a pipeline of stages: read, tokenize, convert, invoke,
+ * format and write. Each stage runs on threads of its own and hands chunks of lines to
+ * the next stage through a bounded queue, so a slow stage makes the stages before it
+ * wait instead of letting work pile up, and the other stages keep working meanwhile.
+ * <p>
+ * Read and write run on one thread each, the stages in between on as many workers as
+ * requested. Chunks are written in script order whatever order they finish in, so the
+ * output is the same as processing the lines one at a time. Statistics kept per stage
+ * show which stage is the bottleneck
+ */
+class BatchPipeline {
+
+	/**
+	 * names of the stages in pipeline order
+	 */
+	static final String[] STAGE_NAMES = {"read", "tokenize", "convert", "invoke", "format", "write"};
+
+	private static final int TOKENIZE = 1;
+	private static final int CONVERT = 2;
+	private static final int INVOKE = 3;
+	private static final int FORMAT = 4;
+
+	/**
+	 * marks the end of the script, passed down the pipeline after the last chunk
+	 */
+	private static final Chunk END = new Chunk(-1);
+
+	/**
+	 * mode the lines are processed for
+	 */
+	private final BatchMode mode;
+
+	/**
+	 * stages in pipeline order
+	 */
+	private final Stage[] stages;
+
+	/**
+	 * captures what the invoke and format stages print, per thread
+	 */
+	private final OutputCapture capture = new OutputCapture(System.out);
+
+	/**
+	 * limits the chunks between the read and the write stage, including those waiting to be written in order
+	 */
+	private final Semaphore inFlight;
+
+	/**
+	 * error raised while reading the script, reported once everything read before it is written
+	 */
+	private volatile IOException readFailure;
+
+	/**
+	 * nanoseconds the last run took
+	 */
+	private long elapsedNanos;
+
+
+	/**
+	 * package-private constructor for BatchPipeline
+	 * @param mode - mode the lines are processed for
+	 * @param workers - number of worker threads of the tokenize, convert, invoke and format stages
+	 * @param queueCapacity - number of chunks that may wait between two stages
+	 */
+	BatchPipeline(BatchMode mode, int[] workers, int queueCapacity) {
+		this.mode = mode;
+		this.stages = new Stage[STAGE_NAMES.length];
+
+		BlockingQueue<Chunk> input = null;
+		int threads = 0;
+		for (int i = 0; i < stages.length; i++) {
+			int stageWorkers = (i == 0 || i == stages.length - 1) ? 1 : Math.max(1, workers[i - 1]);
+			BlockingQueue<Chunk> output = (i < stages.length - 1) ? new ArrayBlockingQueue<Chunk>(queueCapacity) : null;
+			stages[i] = new Stage(i, stageWorkers, input, output);
+			input = output;
+			threads += stageWorkers;
+		}
+		this.inFlight = new Semaphore(queueCapacity * (stages.length - 1) + threads);
+	}
+
+
+	/**
+	 * Method used to run every line of a source through the pipeline, writing the output
+	 * to System.out from the calling thread
+	 * @param source - source of the lines
+	 * @throws IOException - thrown when the source cannot be read
+	 */
+	void run(final Source source) throws IOException {
+		int threads = 0;
+		for (int i = 0; i < stages.length - 1; i++) {
+			threads += stages[i].workers;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long startTime = System.nanoTime();
+
+		capture.install();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					read(source);
+				}
+			});
+			for (int i = 1; i < stages.length - 1; i++) {
+				for (int worker = 0; worker < stages[i].workers; worker++) {
+					executor.execute(stages[i]);
+				}
+			}
+			write();
+		} finally {
+			executor.shutdownNow();
+			capture.uninstall();
+			source.close();
+			elapsedNanos = System.nanoTime() - startTime;
+		}
+
+		if (readFailure != null) {
+			throw readFailure;
+		}
+	}
+
+
+	/**
+	 * Method run by the read stage, fills chunks from the source until it runs out
+	 * @param source - source of the lines
+	 */
+	private void read(Source source) {
+		Stage stage = stages[0];
+		long sequence = 0;
+		try {
+			while (true) {
+				inFlight.acquire();
+				long busyStart = System.nanoTime();
+				Chunk chunk = new Chunk(sequence++);
+				try {
+					while (chunk.size < FrameworkConstants.PIPELINE_CHUNK_LINES && source.read(chunk)) {
+						// the source adds the line to the chunk
+					}
+				} catch (IOException e) {
+					readFailure = e;
+				} catch (RuntimeException | Error e) {
+					// thrown once the lines read before it are written
+					chunk.failure = e;
+				}
+				stage.busyNanos.addAndGet(System.nanoTime() - busyStart);
+				stage.lines.addAndGet(chunk.size);
+
+				if (chunk.size > 0 || chunk.failure != null) {
+					stage.forward(chunk);
+				}
+				if (chunk.size < FrameworkConstants.PIPELINE_CHUNK_LINES || chunk.failure != null) {
+					stage.forward(END);
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			// the pipeline was stopped
+		}
+	}
+
+
+	/**
+	 * Method run by the write stage on the calling thread, writes chunks in script order
+	 */
+	private void write() {
+		Stage stage = stages[stages.length - 1];
+		Map<Long, Chunk> waiting = new HashMap<Long, Chunk>();
+		long nextSequence = 0;
+		try {
+			while (true) {
+				Chunk chunk = stage.take();
+				if (chunk == END) {
+					return;
+				}
+
+				// chunks may finish out of order when a stage has several workers
+				waiting.put(chunk.sequence, chunk);
+				while ((chunk = waiting.remove(nextSequence)) != null) {
+					long busyStart = System.nanoTime();
+					System.out.write(chunk.formatted, 0, chunk.formatted.length);
+					BuiltInTester.logRecording(chunk.recording);
+					for (int i = 0; i < chunk.limit; i++) {
+						mode.lineWritten();
+					}
+					stage.busyNanos.addAndGet(System.nanoTime() - busyStart);
+					stage.lines.addAndGet(chunk.limit);
+					nextSequence++;
+					inFlight.release();
+
+					// errors that would have stopped a sequential run stop this one too
+					if (chunk.failure instanceof RuntimeException) {
+						throw (RuntimeException) chunk.failure;
+					} else if (chunk.failure instanceof Error) {
+						throw (Error) chunk.failure;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * Method that does the work of a stage between read and write on one line of a chunk
+	 * @param stageIndex - index of the stage in STAGE_NAMES
+	 * @param chunk - chunk holding the line
+	 * @param index - index of the line in the chunk
+	 */
+	private void process(int stageIndex, Chunk chunk, int index) {
+		BatchCall call = chunk.calls[index];
+		switch (stageIndex) {
+		case TOKENIZE:
+			// lines read from a plan are tokenized and converted already
+			if (call == null) {
+				BatchLine line = new BatchLine();
+				line.set(ByteBuffer.wrap(chunk.raw[index]), 0, chunk.raw[index].length);
+				chunk.lines[index] = line;
+				chunk.calls[index] = BatchCall.parse(line, mode.names());
+				chunk.raw[index] = null;
+			}
+			break;
+		case CONVERT:
+			if (chunk.lines[index] != null) {
+				call.convert(mode.invocationCache, chunk.lines[index]);
+				chunk.lines[index] = null;
+			}
+			break;
+		case INVOKE:
+			// keep what the method prints, it is written after the invoking record
+			if (call.isReady()) {
+				capture.begin();
+				try {
+					call.invoke(mode, null);
+				} finally {
+					call.setOutput(capture.end());
+				}
+			}
+			break;
+		case FORMAT:
+			// printed into the capture the format stage began for the chunk
+			call.report(mode.resultSink);
+			chunk.calls[index] = null;
+			break;
+		default:
+			throw new IllegalArgumentException(STAGE_NAMES[stageIndex]);
+		}
+	}
+
+
+	/**
+	 * Method used to print how busy each stage was during the last run
+	 * @param out - stream to print to
+	 */
+	void printSummary(PrintStream out) {
+		double seconds = elapsedNanos / 1e9;
+		long lines = stages[stages.length - 1].lines.get();
+		out.println("PIPELINE: processed " + lines + " lines in " + String.format("%.3f", seconds) + " s ("
+				+ String.format("%.1f", lines / Math.max(seconds, 1e-9)) + " lines/sec)");
+		out.println(String.format("%-10s %8s %10s %14s %7s %9s %9s %10s %10s", "stage", "workers", "lines",
+				"max lines/sec", "busy%", "starved%", "blocked%", "queue avg", "queue max"));
+
+		Stage bottleneck = null;
+		for (Stage stage : stages) {
+			String queueAverage = (stage.input != null) ? String.format("%.1f", stage.averageDepth()) : "-";
+			String queueMax = (stage.input != null) ? String.valueOf(stage.maxDepth.get()) : "-";
+			out.println(String.format("%-10s %8d %10d %14.0f %7.1f %9.1f %9.1f %10s %10s", stage.name, stage.workers,
+					stage.lines.get(), stage.capacity(), stage.percentOf(stage.busyNanos), stage.percentOf(stage.starvedNanos),
+					stage.percentOf(stage.blockedNanos), queueAverage, queueMax));
+			if (bottleneck == null || stage.capacity() < bottleneck.capacity()) {
+				bottleneck = stage;
+			}
+		}
+		out.println("PIPELINE: the " + bottleneck.name + " stage is the bottleneck, give it more workers first");
+	}
+
+
+	/**
+	 * Interface representing where the read stage gets lines from, a text script or a compiled plan
+	 */
+	interface Source {
+
+		/**
+		 * Method used to add the next line to a chunk
+		 * @param chunk - chunk to add to
+		 * @return - true if a line was added, false when there are no more lines
+		 * @throws IOException - thrown when the source cannot be read
+		 */
+		boolean read(Chunk chunk) throws IOException;
+
+		/**
+		 * Method used to release the file behind the source
+		 * @throws IOException - thrown when the file cannot be closed
+		 */
+		void close() throws IOException;
+	}
+
+
+	/**
+	 * Class providing the lines of a text batch script, tokenized and converted by the pipeline
+	 */
+	static class ScriptSource implements Source {
+
+		private final BatchScriptReader reader;
+
+		ScriptSource(BatchScriptReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean read(Chunk chunk) throws IOException {
+			byte[] line = reader.nextLine();
+			if (line == null) {
+				return false;
+			}
+			chunk.add(line, null);
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+
+	/**
+	 * Class providing the entries of a compiled plan, which are resolved and converted already
+	 */
+	static class PlanSource implements Source {
+
+		private final BatchPlanReader reader;
+
+		PlanSource(BatchPlanReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean read(Chunk chunk) throws IOException {
+			byte tag = reader.next();
+			if (tag == BatchPlan.TAG_OUTPUT) {
+				chunk.add(null, BatchCall.output(reader.getOutput()));
+			} else if (tag == BatchPlan.TAG_CALL) {
+				chunk.add(null, BatchCall.resolved(reader.getClassName(), reader.getMethodName(), reader.getInvoker(), reader.getParameters()));
+			} else {
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+
+
+	/**
+	 * Class representing consecutive lines handed from stage to stage together
+	 */
+	static final class Chunk {
+
+		/**
+		 * position of the chunk in the script, starting at 0
+		 */
+		final long sequence;
+
+		/**
+		 * text of each line, null once tokenized or if the line came from a plan
+		 */
+		final byte[][] raw = new byte[FrameworkConstants.PIPELINE_CHUNK_LINES][];
+
+		/**
+		 * fields of each line, set by the tokenize stage and dropped once converted
+		 */
+		final BatchLine[] lines = new BatchLine[FrameworkConstants.PIPELINE_CHUNK_LINES];
+
+		/**
+		 * call of each line, null until tokenized and again once formatted
+		 */
+		final BatchCall[] calls = new BatchCall[FrameworkConstants.PIPELINE_CHUNK_LINES];
+
+		/**
+		 * number of lines in the chunk
+		 */
+		int size;
+
+		/**
+		 * number of lines to carry on with, less than size once a line failed
+		 */
+		int limit;
+
+		/**
+		 * output of the lines, set by the format stage
+		 */
+		byte[] formatted;
+
+		/**
+		 * test log entries of the lines, set by the invoke stage and logged when the chunk is written
+		 */
+		Recording recording;
+
+		/**
+		 * error that stopped line limit, thrown once the lines before it are written
+		 */
+		Throwable failure;
+
+		Chunk(long sequence) {
+			this.sequence = sequence;
+		}
+
+		void add(byte[] line, BatchCall call) {
+			raw[size] = line;
+			calls[size] = call;
+			size++;
+			limit = size;
+		}
+	}
+
+
+	/**
+	 * Class representing one stage of the pipeline, its queues and its statistics.
+	 * Running it makes the calling thread one worker of the stage
+	 */
+	private final class Stage implements Runnable {
+
+		private final String name;
+		private final int index;
+		private final int workers;
+		private final BlockingQueue<Chunk> input;
+		private final BlockingQueue<Chunk> output;
+
+		/**
+		 * workers of this stage that have not seen the end of the script yet
+		 */
+		private final AtomicInteger running;
+
+		private final AtomicLong lines = new AtomicLong();
+		private final AtomicLong busyNanos = new AtomicLong();
+		private final AtomicLong starvedNanos = new AtomicLong();
+		private final AtomicLong blockedNanos = new AtomicLong();
+		private final AtomicLong depthTotal = new AtomicLong();
+		private final AtomicLong depthSamples = new AtomicLong();
+		private final AtomicInteger maxDepth = new AtomicInteger();
+
+		Stage(int index, int workers, BlockingQueue<Chunk> input, BlockingQueue<Chunk> output) {
+			this.name = STAGE_NAMES[index];
+			this.index = index;
+			this.workers = workers;
+			this.input = input;
+			this.output = output;
+			this.running = new AtomicInteger(workers);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Chunk chunk = take();
+					if (chunk == END) {
+						// leave the end for the other workers, the last one passes it on
+						input.put(END);
+						if (running.decrementAndGet() == 0) {
+							forward(END);
+						}
+						return;
+					}
+
+					long busyStart = System.nanoTime();
+					if (index == FORMAT) {
+						capture.begin();
+					} else if (index == INVOKE) {
+						BuiltInTester.startHeldRecording();
+					}
+					try {
+						for (int i = 0; i < chunk.limit; i++) {
+							try {
+								process(index, chunk, i);
+							} catch (RuntimeException | Error e) {
+								// the lines before it are still written, then the run stops
+								chunk.limit = i;
+								chunk.failure = e;
+							}
+						}
+					} finally {
+						if (index == FORMAT) {
+							chunk.formatted = capture.end();
+						} else if (index == INVOKE) {
+							chunk.recording = BuiltInTester.stopRecording();
+						}
+						busyNanos.addAndGet(System.nanoTime() - busyStart);
+					}
+					lines.addAndGet(chunk.limit);
+					forward(chunk);
+				}
+			} catch (InterruptedException e) {
+				// the pipeline was stopped
+			} finally {
+				if (index == INVOKE) {
+					// invoke workers are pooled threads, drop the instances they invoked methods on
+					mode.invocationCache.releaseReceivers();
+				}
+			}
+		}
+
+		/**
+		 * Method used to wait for the next chunk, recording the queue depth it found
+		 * @return - next chunk from the previous stage
+		 * @throws InterruptedException - thrown when the pipeline is stopped
+		 */
+		Chunk take() throws InterruptedException {
+			int depth = input.size();
+			depthTotal.addAndGet(depth);
+			depthSamples.incrementAndGet();
+			int max;
+			while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) {
+				// another worker raised the maximum, compare again
+			}
+
+			long waitStart = System.nanoTime();
+			Chunk chunk = input.take();
+			starvedNanos.addAndGet(System.nanoTime() - waitStart);
+			return chunk;
+		}
+
+		/**
+		 * Method used to hand a chunk to the next stage, waiting while its queue is full
+		 * @param chunk - chunk to hand on
+		 * @throws InterruptedException - thrown when the pipeline is stopped
+		 */
+		void forward(Chunk chunk) throws InterruptedException {
+			long waitStart = System.nanoTime();
+			output.put(chunk);
+			blockedNanos.addAndGet(System.nanoTime() - waitStart);
+		}
+
+		double averageDepth() {
+			return (double) depthTotal.get() / Math.max(1, depthSamples.get());
+		}
+
+		/**
+		 * Method used to estimate how many lines per second the stage could handle if it never waited
+		 * @return - double lines per second of busy time over all workers
+		 */
+		double capacity() {
+			return lines.get() * workers / Math.max(busyNanos.get() / 1e9, 1e-9);
+		}
+
+		double percentOf(AtomicLong nanos) {
+			return 100.0 * nanos.get() / Math.max(1, elapsedNanos * workers);
+		}
+	}
+
+}
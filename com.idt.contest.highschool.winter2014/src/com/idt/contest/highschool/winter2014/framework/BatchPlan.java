@@ -0,0 +1,224 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class containing the layout of compiled batch plan files. A plan is a binary
+ * form of a batch script in which every line has already been resolved to a method
+ * and its parameter values converted to their types, so running it again skips all
+ * text parsing and conversion.
+ * <p>
+ * A plan starts with MAGIC and VERSION followed by tagged entries:
+ * <ul>
+ * <li>TAG_METHOD - class name, method name, number of supplied values and parameter
+ * type names of the next method id, written before the first call that uses it</li>
+ * <li>TAG_CALL - method id followed by one encoded value per parameter</li>
+ * <li>TAG_OUTPUT - text printed for a line that could not be resolved or converted</li>
+ * <li>TAG_END - end of the plan</li>
+ * </ul>
+ */
+public class BatchPlan {
+
+	/**
+	 * first four bytes of every plan file, "IDTP"
+	 */
+	public static final int MAGIC = 0x49445450;
+
+	/**
+	 * version of the plan layout
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * tag of an entry defining a method id
+	 */
+	public static final byte TAG_METHOD = 1;
+
+	/**
+	 * tag of an entry calling a method
+	 */
+	public static final byte TAG_CALL = 2;
+
+	/**
+	 * tag of an entry holding text to print
+	 */
+	public static final byte TAG_OUTPUT = 3;
+
+	/**
+	 * tag of the entry ending the plan
+	 */
+	public static final byte TAG_END = 4;
+
+
+	/**
+	 * Method used to check whether a file is a compiled plan rather than a text script
+	 * @param file - file to check
+	 * @return - true if the file starts with MAGIC
+	 */
+	public static boolean isPlan(File file) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			return file.length() >= 4 && in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// only the header was read
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to encode a parameter value of a given type
+	 * @param out - stream to write to
+	 * @param type - parameter type of the value
+	 * @param value - value produced by ClassCaster for the type
+	 * @throws IOException - thrown when the value cannot be written or its type is not supported
+	 */
+	public static void writeValue(DataOutputStream out, Class<?> type, Object value) throws IOException {
+		if (!type.isPrimitive()) {
+			// reference types carry a flag because ClassCaster returns null for unsupported types
+			out.writeBoolean(value != null);
+			if (value == null) {
+				return;
+			}
+		}
+
+		if (type == int.class || type == Integer.class) {
+			out.writeInt((Integer) value);
+		} else if (type == long.class || type == Long.class) {
+			out.writeLong((Long) value);
+		} else if (type == double.class || type == Double.class) {
+			out.writeDouble((Double) value);
+		} else if (type == float.class || type == Float.class) {
+			out.writeFloat((Float) value);
+		} else if (type == short.class || type == Short.class) {
+			out.writeShort((Short) value);
+		} else if (type == byte.class || type == Byte.class) {
+			out.writeByte((Byte) value);
+		} else if (type == char.class || type == Character.class) {
+			out.writeChar((Character) value);
+		} else if (type == boolean.class || type == Boolean.class) {
+			out.writeBoolean((Boolean) value);
+		} else if (type == String.class) {
+			writeString(out, (String) value);
+		} else if (type.isArray()) {
+			int length = Array.getLength(value);
+			out.writeInt(length);
+			for (int i = 0; i < length; i++) {
+				writeValue(out, type.getComponentType(), Array.get(value, i));
+			}
+		} else {
+			throw new IOException("type cannot be stored in a batch plan: " + type.getName());
+		}
+	}
+
+
+	/**
+	 * Method used to decode a parameter value written by writeValue
+	 * @param in - stream to read from
+	 * @param type - parameter type of the value
+	 * @return - decoded value
+	 * @throws IOException - thrown when the value cannot be read or its type is not supported
+	 */
+	public static Object readValue(DataInputStream in, Class<?> type) throws IOException {
+		if (!type.isPrimitive() && !in.readBoolean()) {
+			return null;
+		}
+
+		if (type == int.class || type == Integer.class) {
+			return in.readInt();
+		} else if (type == long.class || type == Long.class) {
+			return in.readLong();
+		} else if (type == double.class || type == Double.class) {
+			return in.readDouble();
+		} else if (type == float.class || type == Float.class) {
+			return in.readFloat();
+		} else if (type == short.class || type == Short.class) {
+			return in.readShort();
+		} else if (type == byte.class || type == Byte.class) {
+			return in.readByte();
+		} else if (type == char.class || type == Character.class) {
+			return in.readChar();
+		} else if (type == boolean.class || type == Boolean.class) {
+			return in.readBoolean();
+		} else if (type == String.class) {
+			return readString(in);
+		} else if (type == int[].class) {
+			// int arrays are the common case, read them without boxing each element
+			int[] values = new int[in.readInt()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = in.readInt();
+			}
+			return values;
+		} else if (type.isArray()) {
+			int length = in.readInt();
+			Object values = Array.newInstance(type.getComponentType(), length);
+			for (int i = 0; i < length; i++) {
+				Array.set(values, i, readValue(in, type.getComponentType()));
+			}
+			return values;
+		} else {
+			throw new IOException("type cannot be read from a batch plan: " + type.getName());
+		}
+	}
+
+
+	/**
+	 * Method used to write a String of any length as UTF-8
+	 * @param out - stream to write to
+	 * @param value - String to write
+	 * @throws IOException - thrown when the stream cannot be written
+	 */
+	public static void writeString(DataOutputStream out, String value) throws IOException {
+		writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/**
+	 * Method used to read a String written by writeString
+	 * @param in - stream to read from
+	 * @return - String that was written
+	 * @throws IOException - thrown when the stream cannot be read
+	 */
+	public static String readString(DataInputStream in) throws IOException {
+		return new String(readBytes(in), StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * Method used to write a length prefixed run of bytes
+	 * @param out - stream to write to
+	 * @param bytes - bytes to write
+	 * @throws IOException - thrown when the stream cannot be written
+	 */
+	public static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+
+	/**
+	 * Method used to read a run of bytes written by writeBytes
+	 * @param in - stream to read from
+	 * @return - bytes that were written
+	 * @throws IOException - thrown when the stream cannot be read
+	 */
+	public static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,198 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class used to read a compiled batch plan entry by entry, see BatchPlan for the
+ * file layout. Methods named by the plan are resolved once, when their definition is read
+ */
+public class BatchPlanReader implements Closeable {
+
+	/**
+	 * stream the plan is read from
+	 */
+	private final DataInputStream in;
+
+	/**
+	 * cache used to resolve the methods named by the plan
+	 */
+	private final InvocationCache invocationCache;
+
+	/**
+	 * resolved methods indexed by method id
+	 */
+	private final List<MethodInvoker> invokers = new ArrayList<MethodInvoker>();
+
+	/**
+	 * class names indexed by method id
+	 */
+	private final List<String> classNames = new ArrayList<String>();
+
+	/**
+	 * method names indexed by method id
+	 */
+	private final List<String> methodNames = new ArrayList<String>();
+
+	/**
+	 * method id of the current call entry
+	 */
+	private int currentId;
+
+	/**
+	 * parameter values of the current call entry
+	 */
+	private Object[] currentParameters;
+
+	/**
+	 * text of the current output entry
+	 */
+	private byte[] currentOutput;
+
+
+	/**
+	 * public constructor for BatchPlanReader
+	 * @param file - plan file to read
+	 * @param invocationCache - cache used to resolve the methods named by the plan
+	 * @throws IOException - thrown when the file cannot be opened or is not a plan
+	 */
+	public BatchPlanReader(File file, InvocationCache invocationCache) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), FrameworkConstants.PLAN_BUFFER_SIZE));
+		this.invocationCache = invocationCache;
+		if (in.readInt() != BatchPlan.MAGIC || in.readInt() != BatchPlan.VERSION) {
+			in.close();
+			throw new IOException("not a batch plan of version " + BatchPlan.VERSION + ": " + file.getPath());
+		}
+	}
+
+
+	/**
+	 * Method used to advance to the next call or output entry
+	 * @return - BatchPlan.TAG_CALL, BatchPlan.TAG_OUTPUT or BatchPlan.TAG_END
+	 * @throws IOException - thrown when the plan cannot be read or no longer matches the classes
+	 */
+	public byte next() throws IOException {
+		while (true) {
+			byte tag = in.readByte();
+			if (tag == BatchPlan.TAG_METHOD) {
+				readMethod();
+			} else if (tag == BatchPlan.TAG_CALL) {
+				currentId = in.readInt();
+				Class<?>[] parameterTypes = invokers.get(currentId).getParameterTypes();
+				currentParameters = new Object[parameterTypes.length];
+				for (int i = 0; i < parameterTypes.length; i++) {
+					currentParameters[i] = BatchPlan.readValue(in, parameterTypes[i]);
+				}
+				return tag;
+			} else if (tag == BatchPlan.TAG_OUTPUT) {
+				currentOutput = BatchPlan.readBytes(in);
+				return tag;
+			} else if (tag == BatchPlan.TAG_END) {
+				return tag;
+			} else {
+				throw new IOException("corrupt batch plan, unknown entry " + tag);
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to read a method definition and resolve it
+	 * @throws IOException - thrown when the method no longer resolves to the same signature
+	 */
+	private void readMethod() throws IOException {
+		String className = BatchPlan.readString(in);
+		String methodName = BatchPlan.readString(in);
+		int arity = in.readInt();
+		String[] typeNames = new String[in.readInt()];
+		for (int i = 0; i < typeNames.length; i++) {
+			typeNames[i] = BatchPlan.readString(in);
+		}
+
+		MethodInvoker invoker;
+		try {
+			invoker = invocationCache.resolve(className, methodName, arity);
+		} catch (ClassNotFoundException e) {
+			invoker = null;
+		}
+		if (invoker == null || !Arrays.equals(typeNames, typeNames(invoker.getParameterTypes()))) {
+			throw new IOException("batch plan is out of date, recompile it: " + className + "/" + methodName);
+		}
+
+		invokers.add(invoker);
+		classNames.add(className);
+		methodNames.add(methodName);
+	}
+
+
+	/**
+	 * Method used to get the names of parameter types
+	 * @param parameterTypes - parameter types
+	 * @return - String array of type names
+	 */
+	private static String[] typeNames(Class<?>[] parameterTypes) {
+		String[] names = new String[parameterTypes.length];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			names[i] = parameterTypes[i].getName();
+		}
+		return names;
+	}
+
+
+	/**
+	 * Method used to get the method of the current call entry
+	 * @return - MethodInvoker to call
+	 */
+	public MethodInvoker getInvoker() {
+		return invokers.get(currentId);
+	}
+
+
+	/**
+	 * Method used to get the class name of the current call entry as written in the script
+	 * @return - String class name
+	 */
+	public String getClassName() {
+		return classNames.get(currentId);
+	}
+
+
+	/**
+	 * Method used to get the method name of the current call entry as written in the script
+	 * @return - String method name
+	 */
+	public String getMethodName() {
+		return methodNames.get(currentId);
+	}
+
+
+	/**
+	 * Method used to get the parameter values of the current call entry
+	 * @return - Object array of converted parameter values
+	 */
+	public Object[] getParameters() {
+		return currentParameters;
+	}
+
+
+	/**
+	 * Method used to get the text of the current output entry
+	 * @return - bytes to print
+	 */
+	public byte[] getOutput() {
+		return currentOutput;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,126 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class used to write a compiled batch plan, see BatchPlan for the file layout
+ */
+public class BatchPlanWriter implements Closeable {
+
+	/**
+	 * stream the plan is written to
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * ids already assigned to resolved methods
+	 */
+	private final Map<MethodInvoker, Integer> methodIds = new HashMap<MethodInvoker, Integer>();
+
+	/**
+	 * number of calls written so far
+	 */
+	private long callCount;
+
+
+	/**
+	 * public constructor for BatchPlanWriter
+	 * @param file - plan file to create
+	 * @throws IOException - thrown when the file cannot be created
+	 */
+	public BatchPlanWriter(File file) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), FrameworkConstants.PLAN_BUFFER_SIZE));
+		out.writeInt(BatchPlan.MAGIC);
+		out.writeInt(BatchPlan.VERSION);
+	}
+
+
+	/**
+	 * Method used to write a call to a method with converted parameter values
+	 * @param className - String name of the class as written in the script
+	 * @param methodName - String name of the method as written in the script
+	 * @param arity - number of parameter values supplied in the script
+	 * @param invoker - resolved method
+	 * @param parameters - converted parameter values
+	 * @throws IOException - thrown when the plan cannot be written
+	 */
+	public void writeCall(String className, String methodName, int arity, MethodInvoker invoker, Object[] parameters) throws IOException {
+		Integer id = methodIds.get(invoker);
+		if (id == null) {
+			id = methodIds.size();
+			methodIds.put(invoker, id);
+			writeMethod(className, methodName, arity, invoker.getParameterTypes());
+		}
+
+		Class<?>[] parameterTypes = invoker.getParameterTypes();
+		out.writeByte(BatchPlan.TAG_CALL);
+		out.writeInt(id);
+		for (int i = 0; i < parameterTypes.length; i++) {
+			BatchPlan.writeValue(out, parameterTypes[i], parameters[i]);
+		}
+		callCount++;
+	}
+
+
+	/**
+	 * Method used to write the definition of the next method id
+	 * @param className - String name of the class
+	 * @param methodName - String name of the method
+	 * @param arity - number of parameter values supplied in the script
+	 * @param parameterTypes - parameter types of the resolved method
+	 * @throws IOException - thrown when the plan cannot be written
+	 */
+	private void writeMethod(String className, String methodName, int arity, Class<?>[] parameterTypes) throws IOException {
+		out.writeByte(BatchPlan.TAG_METHOD);
+		BatchPlan.writeString(out, className);
+		BatchPlan.writeString(out, methodName);
+		out.writeInt(arity);
+		out.writeInt(parameterTypes.length);
+		for (Class<?> parameterType : parameterTypes) {
+			BatchPlan.writeString(out, parameterType.getName());
+		}
+	}
+
+
+	/**
+	 * Method used to write text that is printed when the plan reaches this point
+	 * @param output - bytes to print
+	 * @throws IOException - thrown when the plan cannot be written
+	 */
+	public void writeOutput(byte[] output) throws IOException {
+		out.writeByte(BatchPlan.TAG_OUTPUT);
+		BatchPlan.writeBytes(out, output);
+	}
+
+
+	/**
+	 * Method used to get the number of calls written
+	 * @return - long number of calls
+	 */
+	public long getCallCount() {
+		return callCount;
+	}
+
+
+	/**
+	 * Method used to get the number of distinct methods called
+	 * @return - int number of methods
+	 */
+	public int getMethodCount() {
+		return methodIds.size();
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		out.writeByte(BatchPlan.TAG_END);
+		out.close();
+	}
+}
@@ -0,0 +1,232 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class used to read a batch script line by line through a memory mapped window
+ * onto the file. Only the window is mapped at any time, so scripts larger than the
+ * heap are read in constant memory. Lines end with \n, \r\n or \r like the lines
+ * returned by Scanner.nextLine()
+ */
+public class BatchScriptReader implements Closeable {
+
+	/**
+	 * channel of the script file
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * size of the script file in bytes
+	 */
+	private final long fileSize;
+
+	/**
+	 * file offset at which no more lines start, the end of the range being read
+	 */
+	private final long rangeEnd;
+
+	/**
+	 * currently mapped part of the file
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * view of the window whose position is moved to copy lines out in bulk
+	 */
+	private ByteBuffer copyView;
+
+	/**
+	 * file offset of the first byte of the window
+	 */
+	private long windowStart;
+
+	/**
+	 * index in the window of the next unread byte
+	 */
+	private int position;
+
+	/**
+	 * number of bytes mapped at a time, grows if a single line does not fit
+	 */
+	private int windowSize = FrameworkConstants.BATCH_WINDOW_SIZE;
+
+	/**
+	 * index in the window of the first byte of the line found by advance()
+	 */
+	private int lineStart;
+
+	/**
+	 * index in the window one past the last byte of the line found by advance()
+	 */
+	private int lineEnd;
+
+
+	/**
+	 * public constructor for BatchScriptReader
+	 * @param file - batch script file to read
+	 * @throws FileNotFoundException - thrown when the file does not exist
+	 * @throws IOException - thrown when the file cannot be mapped
+	 */
+	public BatchScriptReader(File file) throws FileNotFoundException, IOException {
+		this(file, 0, Long.MAX_VALUE);
+	}
+
+
+	/**
+	 * public constructor for a BatchScriptReader that reads the lines starting in a range
+	 * of the file. A line starting before the end of the range is read to its end, a line
+	 * cut by the start of the range belongs to the previous range, so ranges that meet
+	 * read every line exactly once wherever they are split
+	 * @param file - batch script file to read
+	 * @param start - file offset where the range starts
+	 * @param end - file offset where the range ends
+	 * @throws FileNotFoundException - thrown when the file does not exist
+	 * @throws IOException - thrown when the file cannot be mapped
+	 */
+	public BatchScriptReader(File file, long start, long end) throws FileNotFoundException, IOException {
+		this.channel = new FileInputStream(file).getChannel();
+		this.fileSize = channel.size();
+		this.rangeEnd = Math.min(end, fileSize);
+		map(Math.min(Math.max(start, 0), fileSize));
+
+		if (windowStart > 0 && !startsLine(windowStart)) {
+			// skip the rest of the line cut by the start of the range
+			advance();
+		}
+	}
+
+
+	/**
+	 * Method used to check whether a line starts at a file offset
+	 * @param offset - file offset greater than 0
+	 * @return - true if the byte before the offset ends a line
+	 * @throws IOException - thrown when the file cannot be read
+	 */
+	private boolean startsLine(long offset) throws IOException {
+		ByteBuffer previous = ByteBuffer.allocate(1);
+		channel.read(previous, offset - 1);
+		byte b = previous.get(0);
+		// the \n of a \r\n does not start a line
+		return b == '\n' || (b == '\r' && (offset >= fileSize || window.get(0) != '\n'));
+	}
+
+
+	/**
+	 * Method used to map the window starting at a file offset
+	 * @param offset - file offset of the first byte to map
+	 * @throws IOException - thrown when the file cannot be mapped
+	 */
+	private void map(long offset) throws IOException {
+		long size = Math.min(windowSize, fileSize - offset);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+		copyView = window.duplicate();
+		windowStart = offset;
+		position = 0;
+	}
+
+
+	/**
+	 * Method used to get the file offset of the next unread line
+	 * @return - long byte offset into the script file
+	 */
+	public long offset() {
+		return windowStart + position;
+	}
+
+
+	/**
+	 * Method used to read the next line of the script
+	 * @param line - line to fill, its previous contents are replaced
+	 * @return - true if a line was read, false at the end of the script
+	 * @throws IOException - thrown when the file cannot be mapped
+	 */
+	public boolean next(BatchLine line) throws IOException {
+		if (!advance()) {
+			return false;
+		}
+		line.set(window, lineStart, lineEnd);
+		return true;
+	}
+
+
+	/**
+	 * Method used to read the next line of the script without splitting it into fields
+	 * @return - bytes of the line without the line terminator, null at the end of the script
+	 * @throws IOException - thrown when the file cannot be mapped
+	 */
+	public byte[] nextLine() throws IOException {
+		if (!advance()) {
+			return null;
+		}
+		byte[] bytes = new byte[lineEnd - lineStart];
+		copyView.position(lineStart);
+		copyView.get(bytes);
+		return bytes;
+	}
+
+
+	/**
+	 * Method used to find the bounds of the next line in the window, mapping the
+	 * window again if the line does not fit
+	 * @return - true if a line was found, false at the end of the script
+	 * @throws IOException - thrown when the file cannot be mapped
+	 */
+	private boolean advance() throws IOException {
+		while (true) {
+			if (windowStart + position >= rangeEnd) {
+				return false;
+			}
+
+			int limit = window.limit();
+			boolean windowReachesEnd = windowStart + limit >= fileSize;
+			int end = position;
+			while (end < limit) {
+				byte b = window.get(end);
+				if (b == '\n' || b == '\r') {
+					break;
+				}
+				end++;
+			}
+
+			if (end < limit) {
+				byte terminator = window.get(end);
+				// a \r at the end of the window may be followed by a \n in the next window
+				if (terminator != '\r' || end + 1 < limit || windowReachesEnd) {
+					lineStart = position;
+					lineEnd = end;
+					position = end + 1;
+					if (terminator == '\r' && position < limit && window.get(position) == '\n') {
+						position++;
+					}
+					return true;
+				}
+			} else if (windowReachesEnd) {
+				// last line of the script without a terminator
+				lineStart = position;
+				lineEnd = end;
+				position = end;
+				return true;
+			}
+
+			// the line runs past the window, map again from the start of the line
+			if (position == 0) {
+				// the line is longer than the window itself
+				windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+			}
+			map(windowStart + position);
+		}
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
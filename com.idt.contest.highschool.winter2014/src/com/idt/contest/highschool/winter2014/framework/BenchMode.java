@@ -0,0 +1,267 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+import org.ohs1.winter2013.BuiltInTester;
+
+/**
+ * Class that represents the benchmark mode of this application. Every line of the batch
+ * script is run and reported as in batch mode, then its method is called again over a
+ * number of warmup iterations, for the JIT to compile it, and the same number of measured
+ * iterations. Each iteration calls the method for FrameworkConstants.BENCH_ITERATION_MILLIS.
+ * Output and BuiltInTester logging are suppressed while iterating.
+ * <p>
+ * Iterations slowed down by garbage collection or compilation are outliers, more than
+ * 1.5 interquartile ranges away from the middle half of the iterations, and are left
+ * out of the time per call. A line is reported with its mean time per call and standard
+ * deviation, calls per second and the bytes allocated per call on the calling thread
+ */
+public class BenchMode extends BatchMode {
+
+	/**
+	 * stream output printed while iterating is thrown away in
+	 */
+	private static final PrintStream DISCARD = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	});
+
+	/**
+	 * number of warmup iterations and of measured iterations
+	 */
+	private final int iterations;
+
+	/**
+	 * bean reporting the bytes allocated by a thread, null if the JVM cannot
+	 */
+	private final com.sun.management.ThreadMXBean allocationBean;
+
+	/**
+	 * number of calls per check of the clock, grown until a check is cheap next to the calls
+	 */
+	private long callsPerCheck;
+
+	/**
+	 * value depending on every result, so the calls cannot be optimized away
+	 */
+	private int consumed;
+
+
+	/**
+	 * public constructor for BenchMode
+	 * @param _filepath - path of the batch script or plan to benchmark
+	 * @param registry - registry of the classes and methods that can be invoked
+	 * @param iterations - number of warmup iterations and of measured iterations of each line
+	 */
+	public BenchMode(String _filepath, InvocationRegistry registry, int iterations) {
+		super(_filepath, registry);
+		this.iterations = Math.max(1, iterations);
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean allocations = null;
+		if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+			allocations = (com.sun.management.ThreadMXBean) threads;
+			allocations.setThreadAllocatedMemoryEnabled(true);
+		}
+		this.allocationBean = allocations;
+	}
+
+
+	/**
+	 * Method used to ignore parallel workers, lines are benchmarked one at a time
+	 * @param parallelism - number of worker threads
+	 */
+	@Override
+	public void setParallelism(int parallelism) {
+		if (parallelism > 1) {
+			System.err.println("BENCH: lines are benchmarked one at a time, parallel workers are not used");
+		}
+	}
+
+
+	/**
+	 * Method used to ignore pipelines, lines are benchmarked one at a time
+	 * @param workers - number of worker threads of the pipeline stages
+	 * @param queueCapacity - number of chunks of lines that may wait between two stages
+	 */
+	@Override
+	public void setPipeline(int[] workers, int queueCapacity) {
+		System.err.println("BENCH: lines are benchmarked one at a time, the pipeline is not used");
+	}
+
+
+	/**
+	 * Method used to report a call, and then to benchmark it if the method returned normally
+	 * @param call - call that was invoked, or that has only something to report
+	 */
+	@Override
+	void reportCall(BatchCall call) {
+		super.reportCall(call);
+		if (call.returned() && !call.isBulk()) {
+			benchmark(call);
+		}
+	}
+
+
+	/**
+	 * Method used to run the warmup and measured iterations of a call and report the timings
+	 * @param call - call that returned normally
+	 */
+	private void benchmark(BatchCall call) {
+		MethodInvoker invoker = call.getInvoker();
+		Object[] parameters = call.getParameters();
+		double[] nanosPerCall = new double[this.iterations];
+		long calls = 0;
+		long allocated = -1;
+		String failure = null;
+
+		PrintStream output = System.out;
+		System.out.flush();
+		System.setOut(DISCARD);
+		BuiltInTester.suspend();
+		try {
+			Object receiver = invocationCache.receiver(invoker);
+			this.callsPerCheck = 1;
+			for (int iteration = 0; iteration < this.iterations; iteration++) {
+				iterate(invoker, receiver, parameters, null);
+			}
+
+			// start measuring with a clean heap
+			System.gc();
+			long[] callCount = new long[1];
+			long allocatedBefore = allocatedBytes();
+			for (int iteration = 0; iteration < this.iterations; iteration++) {
+				callCount[0] = 0;
+				long nanos = iterate(invoker, receiver, parameters, callCount);
+				nanosPerCall[iteration] = (double) nanos / callCount[0];
+				calls += callCount[0];
+			}
+			long allocatedAfter = allocatedBytes();
+			if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+				allocated = allocatedAfter - allocatedBefore;
+			}
+
+		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			// the call returned normally once, so only a method that fails now and then gets here
+			failure = "BENCH: " + call.getClassName() + "/" + call.getMethodName() + " stopped - " + e;
+		} finally {
+			BuiltInTester.resume();
+			System.setOut(output);
+		}
+
+		resultSink.message((failure != null) ? failure : describe(call, nanosPerCall, calls, allocated));
+	}
+
+
+	/**
+	 * Method used to call a method for one iteration
+	 * @param invoker - method to call
+	 * @param receiver - instance to call the method on
+	 * @param parameters - converted parameter values
+	 * @param callCount - array whose first element is increased by the number of calls made, null if not counted
+	 * @return - long nanoseconds the iteration took
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws IllegalArgumentException - thrown when parameter values do not match the parameter types
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
+	 */
+	private long iterate(MethodInvoker invoker, Object receiver, Object[] parameters, long[] callCount) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		long target = FrameworkConstants.BENCH_ITERATION_MILLIS * 1000000L;
+		long start = System.nanoTime();
+		long elapsed;
+		long calls = 0;
+		do {
+			for (long call = 0; call < this.callsPerCheck; call++) {
+				consume(invoker.invoke(receiver, parameters));
+			}
+			calls += this.callsPerCheck;
+			elapsed = System.nanoTime() - start;
+
+			// check the clock about a hundred times per iteration
+			if (elapsed < target / 100) {
+				this.callsPerCheck *= 2;
+			}
+		} while (elapsed < target);
+
+		if (callCount != null) {
+			callCount[0] += calls;
+		}
+		return elapsed;
+	}
+
+
+	/**
+	 * Method used to make a result part of the consumed value
+	 * @param result - Object returned by a call
+	 */
+	private void consume(Object result) {
+		// never true, but the JIT cannot know that and has to keep the call
+		if (result == this) {
+			this.consumed++;
+		}
+	}
+
+
+	/**
+	 * Method used to get the number of bytes the current thread has allocated
+	 * @return - long number of bytes, -1 if the JVM does not report it
+	 */
+	private long allocatedBytes() {
+		if (this.allocationBean == null) {
+			return -1;
+		}
+		return this.allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+
+	/**
+	 * Method used to describe the timings of a call, without the outlying iterations
+	 * @param call - call that was benchmarked
+	 * @param nanosPerCall - nanoseconds per call of each measured iteration
+	 * @param calls - number of calls made in the measured iterations
+	 * @param allocated - bytes allocated in the measured iterations, -1 if unknown
+	 * @return - String message reporting the call
+	 */
+	private String describe(BatchCall call, double[] nanosPerCall, long calls, long allocated) {
+		double[] sorted = nanosPerCall.clone();
+		Arrays.sort(sorted);
+		double lowerQuartile = sorted[(sorted.length - 1) / 4];
+		double upperQuartile = sorted[(3 * (sorted.length - 1)) / 4];
+		double fence = 1.5 * (upperQuartile - lowerQuartile);
+
+		double sum = 0;
+		double sumOfSquares = 0;
+		int kept = 0;
+		for (double nanos : sorted) {
+			if (nanos >= lowerQuartile - fence && nanos <= upperQuartile + fence) {
+				sum += nanos;
+				sumOfSquares += nanos * nanos;
+				kept++;
+			}
+		}
+		double mean = sum / kept;
+		double deviation = Math.sqrt(Math.max(0.0, sumOfSquares / kept - mean * mean));
+
+		StringBuilder message = new StringBuilder("BENCH: ");
+		message.append(call.getClassName()).append('/').append(call.getMethodName()).append(' ');
+		message.append(Arrays.deepToString(call.getParameters())).append(": ");
+		message.append(String.format("%.1f +- %.1f ns/op, %.0f ops/sec, ", mean, deviation, 1e9 / mean));
+		if (allocated >= 0) {
+			message.append(String.format("%.1f B/op", (double) allocated / calls));
+		} else {
+			message.append("allocation unknown");
+		}
+		message.append(" (").append(kept).append(" of ").append(sorted.length).append(" iterations, ");
+		message.append(sorted.length - kept).append(" outliers)");
+		return message.toString();
+	}
+}
@@ -0,0 +1,200 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Class writing records in a compact binary format. The output starts with MAGIC and
+ * VERSION followed by one tagged record per result, error or message:
+ * <ul>
+ * <li>TAG_RESULT - class, method, parameters, result</li>
+ * <li>TAG_ERROR - class, method, parameters, category, message</li>
+ * <li>TAG_MESSAGE - message</li>
+ * </ul>
+ * Every field is a value: a type code from TYPES (NULL_CODE for null, PARAMETERS_CODE
+ * for a count followed by that many values) followed by the value encoded as
+ * BatchPlan.writeValue encodes that type. Values of other types are written as Strings
+ */
+public class BinaryResultSink extends ResultSink {
+
+	/**
+	 * first four bytes of the output, "IDTR"
+	 */
+	public static final int MAGIC = 0x49445452;
+
+	/**
+	 * version of the record layout
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * tag of a record holding a result
+	 */
+	public static final byte TAG_RESULT = 1;
+
+	/**
+	 * tag of a record holding an error
+	 */
+	public static final byte TAG_ERROR = 2;
+
+	/**
+	 * tag of a record holding a message
+	 */
+	public static final byte TAG_MESSAGE = 3;
+
+	/**
+	 * type code of a null value
+	 */
+	public static final byte NULL_CODE = -1;
+
+	/**
+	 * type code of a parameter list
+	 */
+	public static final byte PARAMETERS_CODE = -2;
+
+	/**
+	 * types with their own type code, the code is the index in this array
+	 */
+	public static final Class<?>[] TYPES = {
+		int.class, long.class, double.class, float.class, short.class, byte.class, char.class, boolean.class, String.class,
+		int[].class, long[].class, double[].class, float[].class, short[].class, byte[].class, char[].class, boolean[].class
+	};
+
+
+	@Override
+	public void start() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		} catch (IOException e) {
+			// writing to memory does not fail
+		}
+		write(bytes);
+	}
+
+
+	@Override
+	public void result(String className, String methodName, Object[] parameters, Class<?> returnType, Object result) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(TAG_RESULT);
+			writeValue(out, className);
+			writeValue(out, methodName);
+			writeValue(out, parameters);
+			writeValue(out, result);
+		} catch (IOException e) {
+			// writing to memory does not fail
+		}
+		write(bytes);
+	}
+
+
+	@Override
+	public void error(String className, String methodName, Object[] parameters, String category, String message) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(TAG_ERROR);
+			writeValue(out, className);
+			writeValue(out, methodName);
+			writeValue(out, parameters);
+			writeValue(out, category);
+			writeValue(out, message);
+		} catch (IOException e) {
+			// writing to memory does not fail
+		}
+		write(bytes);
+	}
+
+
+	@Override
+	public void message(String text) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeByte(TAG_MESSAGE);
+			writeValue(out, text);
+		} catch (IOException e) {
+			// writing to memory does not fail
+		}
+		write(bytes);
+	}
+
+
+	/**
+	 * Method used to write a complete record in one write
+	 * @param bytes - encoded record
+	 */
+	private static void write(ByteArrayOutputStream bytes) {
+		System.out.write(bytes.toByteArray(), 0, bytes.size());
+	}
+
+
+	/**
+	 * Method used to encode a value with its type code
+	 * @param out - stream to write to
+	 * @param value - value of any type
+	 * @throws IOException - thrown when the stream cannot be written
+	 */
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL_CODE);
+			return;
+		}
+		if (value instanceof Object[]) {
+			Object[] values = (Object[]) value;
+			out.writeByte(PARAMETERS_CODE);
+			out.writeInt(values.length);
+			for (Object element : values) {
+				writeValue(out, element);
+			}
+			return;
+		}
+
+		Class<?> type = value.getClass();
+		for (byte code = 0; code < TYPES.length; code++) {
+			Class<?> candidate = TYPES[code];
+			if (candidate == type || (candidate.isPrimitive() && isWrapper(candidate, type))) {
+				out.writeByte(code);
+				BatchPlan.writeValue(out, candidate, value);
+				return;
+			}
+		}
+		// anything else is written the way the text output shows it
+		out.writeByte(indexOf(String.class));
+		BatchPlan.writeValue(out, String.class, value.toString());
+	}
+
+
+	/**
+	 * Method used to check whether a class is the wrapper of a primitive type
+	 * @param primitive - primitive type
+	 * @param type - class of a value
+	 * @return - true if values of type are boxed primitives of that type
+	 */
+	private static boolean isWrapper(Class<?> primitive, Class<?> type) {
+		return (primitive == int.class && type == Integer.class) || (primitive == long.class && type == Long.class)
+				|| (primitive == double.class && type == Double.class) || (primitive == float.class && type == Float.class)
+				|| (primitive == short.class && type == Short.class) || (primitive == byte.class && type == Byte.class)
+				|| (primitive == char.class && type == Character.class) || (primitive == boolean.class && type == Boolean.class);
+	}
+
+
+	/**
+	 * Method used to find the type code of a type
+	 * @param type - one of TYPES
+	 * @return - byte type code
+	 */
+	private static byte indexOf(Class<?> type) {
+		for (byte code = 0; code < TYPES.length; code++) {
+			if (TYPES[code] == type) {
+				return code;
+			}
+		}
+		throw new IllegalArgumentException(type.getName());
+	}
+}
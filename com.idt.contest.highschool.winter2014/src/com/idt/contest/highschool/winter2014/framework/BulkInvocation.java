@@ -0,0 +1,211 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class representing a bulk directive of a batch script, a line of the form
+ * "@bulk,CLASS,METHOD,INPUT,OUTPUT". Instead of calling METHOD once per script line,
+ * every row of the INPUT column file is converted, one comma separated column per
+ * parameter, and the bulk overload of the method, which takes an array per parameter,
+ * is called once over all the rows. Its results are written to the OUTPUT column file,
+ * one row per input row, as the text a script line would show as its result.
+ * See InvocationRegistry.getBulkMethod for the methods that have bulk overloads
+ */
+final class BulkInvocation {
+
+	/**
+	 * number of fields of a bulk directive
+	 */
+	private static final int FIELD_COUNT = 5;
+
+	/**
+	 * String name of the class as written in the directive
+	 */
+	private final String className;
+
+	/**
+	 * String name of the method as written in the directive
+	 */
+	private final String methodName;
+
+	/**
+	 * path of the column file holding the parameter values
+	 */
+	private final String inputPath;
+
+	/**
+	 * path of the column file the results are written to
+	 */
+	private final String outputPath;
+
+
+	/**
+	 * private constructor for BulkInvocation, use parse
+	 */
+	private BulkInvocation(String className, String methodName, String inputPath, String outputPath) {
+		this.className = className;
+		this.methodName = methodName;
+		this.inputPath = inputPath;
+		this.outputPath = outputPath;
+	}
+
+
+	/**
+	 * Method used to check whether a script line is a bulk directive
+	 * @param line - line of the script split into fields
+	 * @return - true if the first field is FrameworkConstants.BULK_DIRECTIVE
+	 */
+	static boolean isDirective(BatchLine line) {
+		return line.fieldCount() > 0 && line.field(0).contentEquals(FrameworkConstants.BULK_DIRECTIVE);
+	}
+
+
+	/**
+	 * Method used to read a bulk directive
+	 * @param line - line of the script split into fields, a bulk directive
+	 * @param names - table of names seen by the current thread
+	 * @return - BulkInvocation described by the line, null if the line does not have the right fields
+	 */
+	static BulkInvocation parse(BatchLine line, NameTable names) {
+		if (line.fieldCount() != FIELD_COUNT) {
+			return null;
+		}
+		return new BulkInvocation(names.intern(line.field(1)), names.intern(line.field(2)), line.field(3).toString(), line.field(4).toString());
+	}
+
+
+	/**
+	 * Method used to convert the input column file, call the bulk overload and write the result column file
+	 * @param mode - mode whose caches are used to resolve and make the call
+	 * @return - String message describing what was run
+	 * @throws ClassNotFoundException - thrown when the class cannot be found
+	 * @throws IOException - thrown when a column file cannot be read or written, or the mode does not allow it
+	 * @throws IllegalArgumentException - thrown when the method has no bulk overload or a value cannot be converted
+	 * @throws InstantiationException - thrown when the class cannot be instantiated
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws InvocationTargetException - thrown when the bulk overload generates an exception
+	 */
+	String run(Mode mode) throws ClassNotFoundException, IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
+		MethodInvoker scalar = null;
+		MethodInvoker bulk = null;
+		Object[] columns = null;
+		int rows = 0;
+
+		for (String path : new String[] { inputPath, outputPath }) {
+			if (!mode.isAllowedFile(path)) {
+				throw new IOException(path + " is outside the directory files must be in");
+			}
+		}
+
+		BatchScriptReader reader = new BatchScriptReader(new File(inputPath));
+		BatchLine row = new BatchLine();
+		try {
+			while (reader.next(row)) {
+				if (columns == null) {
+					// the first row decides how many parameters the method takes
+					scalar = mode.invocationCache.resolve(className, methodName, row.fieldCount());
+					bulk = (scalar != null) ? mode.invocationCache.bulkInvoker(scalar) : null;
+					if (bulk == null || scalar.getParameterTypes().length != row.fieldCount()) {
+						throw new IllegalArgumentException(className + "/" + methodName + " has no bulk overload taking " + row.fieldCount() + " columns");
+					}
+					columns = new Object[row.fieldCount()];
+					for (int column = 0; column < columns.length; column++) {
+						columns[column] = Array.newInstance(scalar.getParameterTypes()[column], 1024);
+					}
+				}
+				if (row.fieldCount() != columns.length) {
+					throw new IllegalArgumentException(inputPath + " row " + (rows + 1) + " has " + row.fieldCount() + " columns instead of " + columns.length);
+				}
+
+				for (int column = 0; column < columns.length; column++) {
+					if (rows == Array.getLength(columns[column])) {
+						columns[column] = grow(columns[column]);
+					}
+					Object value = scalar.convertParameter(column, row.field(column));
+					if (value == null) {
+						throw new IllegalArgumentException(inputPath + " row " + (rows + 1) + " column " + (column + 1) + " cannot be converted");
+					}
+					Array.set(columns[column], rows, value);
+				}
+				rows++;
+			}
+		} finally {
+			reader.close();
+		}
+		if (columns == null) {
+			throw new IllegalArgumentException(inputPath + " has no rows");
+		}
+
+		for (int column = 0; column < columns.length; column++) {
+			columns[column] = trim(columns[column], rows);
+		}
+		Object results = bulk.invoke(mode.invocationCache.receiver(bulk), columns);
+		writeColumn(results);
+
+		return "BULK: " + rows + " calls of " + className + "/" + methodName + " written to " + outputPath;
+	}
+
+
+	/**
+	 * Method used to write the result column file
+	 * @param results - array returned by the bulk overload
+	 * @throws IOException - thrown when the file cannot be written
+	 */
+	private void writeColumn(Object results) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(outputPath), StandardCharsets.UTF_8);
+		try (Writer out = new BufferedWriter(writer, FrameworkConstants.PLAN_BUFFER_SIZE)) {
+			int length = Array.getLength(results);
+			for (int index = 0; index < length; index++) {
+				out.write(String.valueOf(Array.get(results, index)));
+				out.write('\n');
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to double the capacity of a column
+	 * @param column - array holding the values of a column
+	 * @return - array of the same type with the same values and twice the length
+	 */
+	private static Object grow(Object column) {
+		int length = Array.getLength(column);
+		Object grown = Array.newInstance(column.getClass().getComponentType(), length * 2);
+		System.arraycopy(column, 0, grown, 0, length);
+		return grown;
+	}
+
+
+	/**
+	 * Method used to cut a column down to the number of rows read
+	 * @param column - array holding the values of a column
+	 * @param rows - number of rows read
+	 * @return - array of the same type holding exactly the values read
+	 */
+	private static Object trim(Object column, int rows) {
+		if (Array.getLength(column) == rows) {
+			return column;
+		}
+		Object trimmed = Array.newInstance(column.getClass().getComponentType(), rows);
+		System.arraycopy(column, 0, trimmed, 0, rows);
+		return trimmed;
+	}
+
+
+	String getClassName() {
+		return className;
+	}
+
+
+	String getMethodName() {
+		return methodName;
+	}
+}
@@ -0,0 +1,123 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class representing a run of bytes inside a ByteBuffer as a CharSequence, so a
+ * field of a batch script line can be examined without copying it into a String.
+ * Characters are read as single bytes, which is exact for the ASCII text batch
+ * scripts are made of; toString() decodes the bytes as UTF-8
+ */
+public class ByteSlice implements CharSequence {
+
+	/**
+	 * buffer holding the bytes
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * absolute index of the first byte in the buffer
+	 */
+	private int start;
+
+	/**
+	 * number of bytes in the slice
+	 */
+	private int length;
+
+
+	/**
+	 * Method used to point this slice at a run of bytes
+	 * @param buffer - buffer holding the bytes
+	 * @param start - absolute index of the first byte
+	 * @param end - absolute index one past the last byte
+	 * @return - this slice
+	 */
+	public ByteSlice set(ByteBuffer buffer, int start, int end) {
+		this.buffer = buffer;
+		this.start = start;
+		this.length = end - start;
+		return this;
+	}
+
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new StringIndexOutOfBoundsException(index);
+		}
+		return (char) (buffer.get(start + index) & 0xFF);
+	}
+
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		if (from < 0 || to > length || from > to) {
+			throw new StringIndexOutOfBoundsException(from);
+		}
+		return new ByteSlice().set(buffer, start + from, start + to);
+	}
+
+
+	/**
+	 * Method used to check whether the slice holds only ASCII bytes, in which case
+	 * charAt() returns exactly the characters of toString()
+	 * @return - true if every byte is below 0x80
+	 */
+	public boolean isAscii() {
+		for (int i = start; i < start + length; i++) {
+			if (buffer.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Method used to compare the slice with a String without decoding it
+	 * @param s - String to compare with
+	 * @return - true if the slice holds exactly the characters of s
+	 */
+	public boolean contentEquals(String s) {
+		if (s.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (s.charAt(i) != (char) (buffer.get(start + i) & 0xFF)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Method used to hash the slice the same way String.hashCode() hashes its ASCII equivalent
+	 * @return - int hash of the slice contents
+	 */
+	public int contentHash() {
+		int hash = 0;
+		for (int i = start; i < start + length; i++) {
+			hash = 31 * hash + (buffer.get(i) & 0xFF);
+		}
+		return hash;
+	}
+
+
+	@Override
+	public String toString() {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -1,45 +1,502 @@
 package com.idt.contest.highschool.winter2014.framework;
 
+import java.lang.reflect.Array;
+
 /**
- * Class used to cast String values to particular class types
+ * Class used to cast String values to particular class types.
+ * Plain decimal numbers, booleans, characters and arrays of them are parsed straight
+ * from the characters without creating intermediate Strings. Anything else is handed
+ * to the JDK parsers, so results and exceptions are the same as theirs
  */
 public class ClassCaster {
 
 	/**
-	 * Utility method used to cast a String value to a particular class type
-	 * @param paramType - Class type to cast String value to
-	 * @param value - String value to cast to specific class type
-	 * @return - Object representation of String value after casting to a particular class type
+	 * character separating the elements of an array value
+	 */
+	private static final char ARRAY_DELIMITER = FrameworkConstants.SEMICOLON_DELIMITER.charAt(0);
+
+	/**
+	 * returned by parseDigits when the text is not a plain decimal number it can handle
 	 */
-	public Object cast(Class<?> paramType, String value) {
+	private static final long NOT_PLAIN = Long.MIN_VALUE;
+
+	/**
+	 * most digits a plain double may have and still be exact before dividing, 10^15 < 2^53
+	 */
+	private static final int MAX_DOUBLE_DIGITS = 15;
+
+	/**
+	 * most digits a plain float may have and still be exact before dividing, 10^7 < 2^24
+	 */
+	private static final int MAX_FLOAT_DIGITS = 7;
+
+	/**
+	 * powers of ten exactly representable as double
+	 */
+	private static final double[] DOUBLE_POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/**
+	 * powers of ten exactly representable as float
+	 */
+	private static final float[] FLOAT_POWERS = {
+		1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+
+	/**
+	 * Utility method used to cast a value to a particular class type
+	 * @param paramType - Class type to cast the value to
+	 * @param value - String or other character sequence holding the value
+	 * @return - Object representation of the value after casting to a particular class type
+	 */
+	public Object cast(Class<?> paramType, CharSequence value) {
+		return converterFor(paramType).convert(value);
+	}
+
+
+	/**
+	 * Method used to choose the converter for a particular class type
+	 * @param paramType - Class type values will be cast to
+	 * @return - Converter for the type, converting to null if the type is not supported
+	 */
+	public static Converter converterFor(Class<?> paramType) {
 		if (paramType == String.class) {
-			return value;
+			return STRING;
 		} else if (paramType == Integer.class || paramType == int.class) {
-			return Integer.parseInt(value);
+			return INT;
 		} else if (paramType == Long.class || paramType == long.class) {
-			return Long.parseLong(value);
+			return LONG;
 		} else if (paramType == Double.class || paramType == double.class) {
-			return Double.parseDouble(value);
+			return DOUBLE;
 		} else if (paramType == Float.class || paramType == float.class) {
-			return Float.parseFloat(value);
+			return FLOAT;
 		} else if (paramType == Short.class || paramType == short.class) {
-				return Short.parseShort(value);
+			return SHORT;
 		} else if (paramType == Byte.class || paramType == byte.class) {
-			return Byte.parseByte(value);
+			return BYTE;
 		} else if (paramType == Character.class || paramType == char.class) {
-			return value.charAt(0);
+			return CHAR;
 		} else if (paramType == Boolean.class || paramType == boolean.class) {
-			return Boolean.parseBoolean(value);
-		} else if (paramType == int[].class) {
-			String[] splitString = value.split(FrameworkConstants.SEMICOLON_DELIMITER);
-			int[] returnArray = new int[splitString.length];
-			for(int i = 0; i < splitString.length; i++) {
-				returnArray[i] = Integer.parseInt(splitString[i]);
-			}
-			return returnArray;
+			return BOOLEAN;
+		} else if (paramType.isArray() && paramType.getComponentType().isPrimitive()) {
+			return new ArrayConverter(paramType.getComponentType());
 		} else {
+			return UNSUPPORTED;
+		}
+	}
+
+
+	/**
+	 * converter for Strings, which are copied out of the value
+	 */
+	private static final Converter STRING = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return value.toString();
+		}
+	};
+
+	/**
+	 * converter for int and Integer
+	 */
+	private static final Converter INT = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseInt(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for long and Long
+	 */
+	private static final Converter LONG = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseLong(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for double and Double
+	 */
+	private static final Converter DOUBLE = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseDouble(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for float and Float
+	 */
+	private static final Converter FLOAT = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseFloat(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for short and Short
+	 */
+	private static final Converter SHORT = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseShort(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for byte and Byte
+	 */
+	private static final Converter BYTE = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseByte(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for char and Character, the first character is used
+	 */
+	private static final Converter CHAR = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseChar(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for boolean and Boolean
+	 */
+	private static final Converter BOOLEAN = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
+			return parseBoolean(value, 0, value.length());
+		}
+	};
+
+	/**
+	 * converter for types that cannot be cast, always null
+	 */
+	private static final Converter UNSUPPORTED = new Converter() {
+		@Override
+		public Object convert(CharSequence value) {
 			return null;
 		}
+	};
+
+
+	/**
+	 * Class converting semicolon separated values to an array of a primitive type.
+	 * Elements are found the way String.split(";") would find them, trailing empty
+	 * elements dropped, and each is parsed in place
+	 */
+	private static final class ArrayConverter implements Converter {
+
+		/**
+		 * primitive type of the array elements
+		 */
+		private final Class<?> componentType;
+
+		ArrayConverter(Class<?> componentType) {
+			this.componentType = componentType;
+		}
+
+		@Override
+		public Object convert(CharSequence value) {
+			int length = value.length();
+			int delimiters = 0;
+			for (int i = 0; i < length; i++) {
+				if (value.charAt(i) == ARRAY_DELIMITER) {
+					delimiters++;
+				}
+			}
+
+			// String.split keeps a lone value even if empty, otherwise drops trailing empty elements
+			int end = length;
+			int count = 1;
+			if (delimiters > 0) {
+				while (end > 0 && value.charAt(end - 1) == ARRAY_DELIMITER) {
+					end--;
+					delimiters--;
+				}
+				count = end == 0 ? 0 : delimiters + 1;
+			}
+
+			Object array = Array.newInstance(componentType, count);
+			int start = 0;
+			for (int index = 0; index < count; index++) {
+				int stop = start;
+				while (stop < end && value.charAt(stop) != ARRAY_DELIMITER) {
+					stop++;
+				}
+				set(array, index, value, start, stop);
+				start = stop + 1;
+			}
+			return array;
+		}
+
+		/**
+		 * Method used to parse one element into the array
+		 * @param array - array being filled
+		 * @param index - index of the element
+		 * @param value - characters holding the whole array value
+		 * @param start - index of the first character of the element
+		 * @param end - index one past the last character of the element
+		 */
+		private void set(Object array, int index, CharSequence value, int start, int end) {
+			if (componentType == int.class) {
+				((int[]) array)[index] = parseInt(value, start, end);
+			} else if (componentType == long.class) {
+				((long[]) array)[index] = parseLong(value, start, end);
+			} else if (componentType == double.class) {
+				((double[]) array)[index] = parseDouble(value, start, end);
+			} else if (componentType == float.class) {
+				((float[]) array)[index] = parseFloat(value, start, end);
+			} else if (componentType == short.class) {
+				((short[]) array)[index] = parseShort(value, start, end);
+			} else if (componentType == byte.class) {
+				((byte[]) array)[index] = parseByte(value, start, end);
+			} else if (componentType == char.class) {
+				((char[]) array)[index] = parseChar(value, start, end);
+			} else {
+				((boolean[]) array)[index] = parseBoolean(value, start, end);
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to parse an optionally signed run of ASCII digits
+	 * @param value - characters holding the number
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @param maxDigits - most digits accepted, chosen so the result cannot overflow
+	 * @return - long value, NOT_PLAIN if the text is anything else
+	 */
+	private static long parseDigits(CharSequence value, int start, int end, int maxDigits) {
+		if (start == end) {
+			return NOT_PLAIN;
+		}
+		boolean negative = false;
+		char first = value.charAt(start);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			start++;
+		}
+		if (start == end || end - start > maxDigits) {
+			return NOT_PLAIN;
+		}
+
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return NOT_PLAIN;
+			}
+			result = result * 10 + (c - '0');
+		}
+		return negative ? -result : result;
+	}
+
+
+	/**
+	 * Method used to parse the digits of an optionally signed decimal number with an optional fraction, e.g. -12.375
+	 * @param value - characters holding the number
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @param maxDigits - most digits accepted
+	 * @param maxFractionDigits - most digits accepted after the decimal point
+	 * @return - all digits as an unsigned long (12375 for -12.375), NOT_PLAIN if the text is anything else
+	 */
+	private static long parseDecimal(CharSequence value, int start, int end, int maxDigits, int maxFractionDigits) {
+		if (start == end) {
+			return NOT_PLAIN;
+		}
+		char first = value.charAt(start);
+		if (first == '-' || first == '+') {
+			start++;
+		}
+
+		long result = 0;
+		int digits = 0;
+		int point = -1;
+		for (int i = start; i < end; i++) {
+			char c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (++digits > maxDigits) {
+					return NOT_PLAIN;
+				}
+				result = result * 10 + (c - '0');
+			} else if (c == '.' && point < 0) {
+				point = i;
+			} else {
+				return NOT_PLAIN;
+			}
+		}
+		if (digits == 0 || (point >= 0 && end - point - 1 > maxFractionDigits)) {
+			return NOT_PLAIN;
+		}
+		return result;
+	}
+
+
+	/**
+	 * Method used to count the digits after the decimal point of a number accepted by parseDecimal
+	 * @param value - characters holding the number
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - int number of fraction digits, 0 if there is no decimal point
+	 */
+	private static int fractionDigits(CharSequence value, int start, int end) {
+		for (int i = end - 1; i >= start; i--) {
+			if (value.charAt(i) == '.') {
+				return end - i - 1;
+			}
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Method used to copy part of a character sequence for the JDK parsers
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - String of the characters
+	 */
+	private static String text(CharSequence value, int start, int end) {
+		return value.subSequence(start, end).toString();
+	}
+
+
+	/**
+	 * Method used to parse a int from part of a character sequence, same result as Integer.parseInt
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - int value
+	 */
+	private static int parseInt(CharSequence value, int start, int end) {
+		long result = parseDigits(value, start, end, 9);
+		return result != NOT_PLAIN ? (int) result : Integer.parseInt(text(value, start, end));
+	}
+
+
+	/**
+	 * Method used to parse a long from part of a character sequence, same result as Long.parseLong
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - long value
+	 */
+	private static long parseLong(CharSequence value, int start, int end) {
+		long result = parseDigits(value, start, end, 18);
+		return result != NOT_PLAIN ? result : Long.parseLong(text(value, start, end));
+	}
+
+
+	/**
+	 * Method used to parse a short from part of a character sequence, same result as Short.parseShort
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - short value
+	 */
+	private static short parseShort(CharSequence value, int start, int end) {
+		long result = parseDigits(value, start, end, 5);
+		if (result >= Short.MIN_VALUE && result <= Short.MAX_VALUE) {
+			return (short) result;
+		}
+		// out of range or not plain, let the JDK report it
+		return Short.parseShort(text(value, start, end));
+	}
+
+
+	/**
+	 * Method used to parse a byte from part of a character sequence, same result as Byte.parseByte
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - byte value
+	 */
+	private static byte parseByte(CharSequence value, int start, int end) {
+		long result = parseDigits(value, start, end, 3);
+		if (result >= Byte.MIN_VALUE && result <= Byte.MAX_VALUE) {
+			return (byte) result;
+		}
+		return Byte.parseByte(text(value, start, end));
+	}
+
+
+	/**
+	 * Method used to parse a double from part of a character sequence, same result as Double.parseDouble
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - double value
+	 */
+	private static double parseDouble(CharSequence value, int start, int end) {
+		long digits = parseDecimal(value, start, end, MAX_DOUBLE_DIGITS, DOUBLE_POWERS.length - 1);
+		if (digits == NOT_PLAIN) {
+			return Double.parseDouble(text(value, start, end));
+		}
+		// both operands are exact so the single division is correctly rounded, as parseDouble is
+		double result = digits / DOUBLE_POWERS[fractionDigits(value, start, end)];
+		return value.charAt(start) == '-' ? -result : result;
+	}
+
+
+	/**
+	 * Method used to parse a float from part of a character sequence, same result as Float.parseFloat
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - float value
+	 */
+	private static float parseFloat(CharSequence value, int start, int end) {
+		long digits = parseDecimal(value, start, end, MAX_FLOAT_DIGITS, FLOAT_POWERS.length - 1);
+		if (digits == NOT_PLAIN) {
+			return Float.parseFloat(text(value, start, end));
+		}
+		float result = (float) digits / FLOAT_POWERS[fractionDigits(value, start, end)];
+		return value.charAt(start) == '-' ? -result : result;
+	}
+
+
+	/**
+	 * Method used to parse a char from part of a character sequence, same result as String.charAt(0)
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - char value
+	 */
+	private static char parseChar(CharSequence value, int start, int end) {
+		// only ASCII is the same character in every encoding of the value
+		if (start < end && value.charAt(start) < 0x80) {
+			return value.charAt(start);
+		}
+		return text(value, start, end).charAt(0);
+	}
+
+
+	/**
+	 * Method used to parse a boolean from part of a character sequence, same result as Boolean.parseBoolean
+	 * @param value - characters holding the text
+	 * @param start - index of the first character
+	 * @param end - index one past the last character
+	 * @return - boolean value
+	 */
+	private static boolean parseBoolean(CharSequence value, int start, int end) {
+		// same as Boolean.parseBoolean, ASCII case is folded by setting bit 0x20
+		return end - start == 4
+				&& (value.charAt(start) | 0x20) == 't'
+				&& (value.charAt(start + 1) | 0x20) == 'r'
+				&& (value.charAt(start + 2) | 0x20) == 'u'
+				&& (value.charAt(start + 3) | 0x20) == 'e';
 	}
-	
 }
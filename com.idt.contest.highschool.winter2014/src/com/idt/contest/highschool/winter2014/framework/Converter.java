@@ -0,0 +1,16 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+/**
+ * Interface for an object that converts text to a value of one particular parameter type.
+ * A converter is chosen once per parameter type by ClassCaster.converterFor and then
+ * reused for every value of that type
+ */
+public interface Converter {
+
+	/**
+	 * Method used to convert text to a value
+	 * @param value - characters holding the text, only read during the call
+	 * @return - Object representation of the text, null if the type is not supported
+	 */
+	Object convert(CharSequence value);
+}
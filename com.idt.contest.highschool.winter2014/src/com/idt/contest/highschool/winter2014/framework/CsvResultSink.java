@@ -0,0 +1,122 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+/**
+ * Class writing one comma separated row per record after a header row. Parameter
+ * values are written as they appear in a batch script, separated by commas, with
+ * array elements separated by semicolons. Fields are quoted as RFC 4180 describes
+ */
+public class CsvResultSink extends ResultSink {
+
+	/**
+	 * first row of the output
+	 */
+	private static final String HEADER = "class,method,parameters,status,result\n";
+
+	/**
+	 * status of a row holding a result
+	 */
+	private static final String STATUS_OK = "ok";
+
+	/**
+	 * status of a row holding an error
+	 */
+	private static final String STATUS_ERROR = "error";
+
+	/**
+	 * status of a row holding a message that does not belong to an invocation
+	 */
+	private static final String STATUS_MESSAGE = "message";
+
+
+	@Override
+	public void start() {
+		System.out.print(HEADER);
+	}
+
+
+	@Override
+	public void result(String className, String methodName, Object[] parameters, Class<?> returnType, Object result) {
+		StringBuilder value = new StringBuilder();
+		if (result != null && result.getClass().isArray()) {
+			appendElements(value, result, FrameworkConstants.SEMICOLON_DELIMITER);
+		} else {
+			value.append(result);
+		}
+		writeRow(className, methodName, parameters, STATUS_OK, value.toString());
+	}
+
+
+	@Override
+	public void error(String className, String methodName, Object[] parameters, String category, String message) {
+		writeRow(className, methodName, parameters, STATUS_ERROR, category + ": " + message);
+	}
+
+
+	@Override
+	public void message(String text) {
+		writeRow(null, null, null, STATUS_MESSAGE, text);
+	}
+
+
+	/**
+	 * Method used to write a row
+	 * @param className - String name of the class, may be null
+	 * @param methodName - String name of the method, may be null
+	 * @param parameters - parameter values, may be null
+	 * @param status - one of the STATUS_* values
+	 * @param value - result, error or message text
+	 */
+	private static void writeRow(String className, String methodName, Object[] parameters, String status, String value) {
+		StringBuilder row = new StringBuilder(128);
+		appendField(row, className == null ? "" : className);
+		row.append(',');
+		appendField(row, methodName == null ? "" : methodName);
+		row.append(',');
+
+		StringBuilder values = new StringBuilder();
+		for (int i = 0; parameters != null && i < parameters.length; i++) {
+			if (i > 0) {
+				values.append(',');
+			}
+			if (parameters[i] != null && parameters[i].getClass().isArray()) {
+				appendElements(values, parameters[i], FrameworkConstants.SEMICOLON_DELIMITER);
+			} else {
+				values.append(parameters[i]);
+			}
+		}
+		appendField(row, values.toString());
+		row.append(',');
+		appendField(row, status);
+		row.append(',');
+		appendField(row, value);
+		row.append('\n');
+		System.out.print(row);
+	}
+
+
+	/**
+	 * Method used to append a field, quoted if it contains a comma, quote or line break
+	 * @param row - builder to append to
+	 * @param field - String field value
+	 */
+	private static void appendField(StringBuilder row, String field) {
+		boolean quote = false;
+		for (int i = 0; i < field.length() && !quote; i++) {
+			char c = field.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			row.append(field);
+			return;
+		}
+		row.append('"');
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == '"') {
+				row.append('"');
+			}
+			row.append(c);
+		}
+		row.append('"');
+	}
+}
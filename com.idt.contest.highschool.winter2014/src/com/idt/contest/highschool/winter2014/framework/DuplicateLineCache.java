@@ -0,0 +1,188 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.Recording;
+
+/**
+ * Class used to run each distinct line of a batch script once. Lines are compared by
+ * their normalized text, the fields without the line terminator and the empty fields
+ * dropped from the end of the line, which is all that processing a line looks at. The
+ * first time a line is seen it is processed with its output captured and its
+ * BuiltInTester log entries recorded; every duplicate writes the captured output again
+ * and replays the log entries, so the output and the test log are the same as processing
+ * every line. This relies on the invoked methods depending only on their parameter
+ * values, which holds for every class in FrameworkConstants.CLASSES.
+ * The cache holds a bounded number of lines and evicts the least recently used
+ */
+public class DuplicateLineCache {
+
+	/**
+	 * processed lines in least recently used order
+	 */
+	private final LinkedHashMap<LineKey, ProcessedLine> lines;
+
+	/**
+	 * maximum number of lines kept
+	 */
+	private final int maxEntries;
+
+	/**
+	 * reusable key used to look lines up without allocating
+	 */
+	private final LineKey probe = new LineKey();
+
+	/**
+	 * number of lines answered from the cache
+	 */
+	private long duplicates;
+
+	/**
+	 * number of lines that had to be processed
+	 */
+	private long processed;
+
+	/**
+	 * number of lines dropped to respect maxEntries
+	 */
+	private long evictions;
+
+
+	/**
+	 * public constructor for DuplicateLineCache
+	 * @param maxEntries - maximum number of distinct lines kept
+	 */
+	public DuplicateLineCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.lines = new LinkedHashMap<LineKey, ProcessedLine>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<LineKey, ProcessedLine> eldest) {
+				if (size() > DuplicateLineCache.this.maxEntries) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+
+	/**
+	 * Method used to process a line, or to repeat what an identical line did before
+	 * @param line - line to process
+	 * @param processor - processes lines that were not seen before
+	 * @param capture - installed capture used to collect the output of processed lines
+	 */
+	public void process(BatchLine line, BatchMode processor, OutputCapture capture) {
+		probe.set(line);
+		ProcessedLine previous = lines.get(probe);
+		if (previous != null) {
+			duplicates++;
+			System.out.write(previous.output, 0, previous.output.length);
+			BuiltInTester.replay(previous.recording);
+			return;
+		}
+
+		byte[] output;
+		Recording recording;
+		capture.begin();
+		BuiltInTester.startRecording();
+		try {
+			processor.processLine(line);
+		} finally {
+			recording = BuiltInTester.stopRecording();
+			output = capture.end();
+		}
+		processed++;
+
+		System.out.write(output, 0, output.length);
+		lines.put(probe.copy(), new ProcessedLine(output, recording));
+	}
+
+
+	/**
+	 * Method used to describe how many lines were duplicates
+	 * @param out - stream to print to
+	 */
+	public void printSummary(PrintStream out) {
+		long total = duplicates + processed;
+		out.println("DEDUP: " + duplicates + " duplicate lines, " + processed + " processed (" + String.format("%.1f", total == 0 ? 0.0 : 100.0 * duplicates / total)
+				+ "% duplicates), " + evictions + " evictions, " + lines.size() + "/" + maxEntries + " entries");
+	}
+
+
+	/**
+	 * Class representing the normalized text of a line, compared by contents
+	 */
+	private static final class LineKey {
+
+		private byte[] bytes = new byte[128];
+		private int length;
+		private int hash;
+
+		void set(BatchLine line) {
+			length = line.contentLength();
+			if (length > bytes.length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			}
+			line.copyContent(bytes);
+
+			int h = 0;
+			for (int i = 0; i < length; i++) {
+				h = 31 * h + bytes[i];
+			}
+			hash = h;
+		}
+
+		LineKey copy() {
+			LineKey copy = new LineKey();
+			copy.bytes = new byte[length];
+			System.arraycopy(bytes, 0, copy.bytes, 0, length);
+			copy.length = length;
+			copy.hash = hash;
+			return copy;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof LineKey)) {
+				return false;
+			}
+			LineKey other = (LineKey) o;
+			if (other.length != length || other.hash != hash) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[i] != other.bytes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+
+	/**
+	 * Class representing the output of a processed line and the log entries it created
+	 */
+	private static final class ProcessedLine {
+
+		private final byte[] output;
+		private final Recording recording;
+
+		ProcessedLine(byte[] output, Recording recording) {
+			this.output = output;
+			this.recording = recording;
+		}
+	}
+}
@@ -14,6 +14,14 @@ public class FrameworkConstants {
 											"com.idt.contest.highschool.winter2014.codetotest.TimeUtility",
 											"com.idt.contest.highschool.winter2014.codetotest.MazeGenerator"};
 	
+	/**
+	 * Array of methods (class name followed by method name) whose results depend only on their
+	 * parameter values and may be cached when memoization is enabled
+	 */
+	final public static String[] MEMOIZED_METHODS = {"com.idt.contest.highschool.winter2014.codetotest.MathUtility.primeFactor",
+													 "com.idt.contest.highschool.winter2014.codetotest.TimeUtility.dateToPosix",
+													 "com.idt.contest.highschool.winter2014.codetotest.MazeGenerator.generateMaze"};
+	
 	/**
 	 * Array of proper titles regarding order for requesting parameters from user
 	 */
@@ -77,6 +85,11 @@ public class FrameworkConstants {
 	 */
 	final public static String FILE_NOT_FOUND_EXCEPTION = "file not found exception";
 	
+	/**
+	 * text for failure reading a file that exists
+	 */
+	final public static String FILE_READ_EXCEPTION = "file read exception";
+	
 	/**
 	 * text for instantiation exception
 	 */
@@ -102,6 +115,11 @@ public class FrameworkConstants {
 	 */
 	final public static String INVOCATION_TARGET_EXCEPTION = "invocation target exception";
 	
+	/**
+	 * Text for an invocation that did not return before its deadline
+	 */
+	final public static String INVOCATION_TIMEOUT_EXCEPTION = "invocation timed out";
+	
 	/**
 	 * Text for null pointer exception
 	 */
@@ -137,6 +155,339 @@ public class FrameworkConstants {
 	 */
 	final public static int EXIT_CODE = 0;
 	
+	/**
+	 * Command line option used to process batch lines on several worker threads
+	 */
+	final public static String PARALLEL_OPTION = "--parallel";
+	
+	/**
+	 * Number of batch lines each worker thread may have in flight before output is written
+	 */
+	final public static int PARALLEL_LINES_PER_WORKER = 64;
+	
+	/**
+	 * Command line option used to enable the result cache with a given maximum number of entries
+	 */
+	final public static String MEMO_OPTION = "--memo";
+	
+	/**
+	 * Command line option used to run each distinct batch line once, keeping up to a given number of lines
+	 */
+	final public static String DEDUP_OPTION = "--dedup";
+	
+	/**
+	 * First field of a batch line running a bulk overload over a column file, see BulkInvocation
+	 */
+	final public static String BULK_DIRECTIVE = "@bulk";
+	
+	/**
+	 * Number of bytes of a batch script mapped into memory at a time
+	 */
+	final public static int BATCH_WINDOW_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * Command line option used to compile a batch script into a plan file instead of executing it
+	 */
+	final public static String COMPILE_OPTION = "--compile";
+	
+	/**
+	 * Size of the buffer used when reading and writing batch plan files
+	 */
+	final public static int PLAN_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Number of slots in the table used to share class and method name Strings between batch lines
+	 */
+	final public static int NAME_TABLE_SIZE = 1024;
+	
+	/**
+	 * Command line option used to choose the format results are written in
+	 */
+	final public static String FORMAT_OPTION = "--format";
+	
+	/**
+	 * Command line option used to write batch results to a file instead of the console
+	 */
+	final public static String OUTPUT_OPTION = "--output";
+	
+	/**
+	 * Command line option used to choose how many batch lines are written between flushes
+	 */
+	final public static String FLUSH_OPTION = "--flush";
+	
+	/**
+	 * Command line option used to load the invocation registry from an index file, written if missing
+	 */
+	final public static String INDEX_OPTION = "--index";
+	
+	/**
+	 * Command line option used to start the application as a server on a local port
+	 */
+	final public static String SERVE_OPTION = "--serve";
+	
+	/**
+	 * Server request running the batch script or plan whose path follows
+	 */
+	final public static String SERVER_RUN_COMMAND = "@run ";
+	
+	/**
+	 * Server request stopping the server once every client has disconnected
+	 */
+	final public static String SERVER_SHUTDOWN_COMMAND = "@shutdown";
+	
+	/**
+	 * Number of clients a server serves at once, later clients wait until one disconnects
+	 */
+	final public static int SERVER_MAX_CLIENTS = 8;
+	
+	/**
+	 * Number of bytes a line sent to a server may have, a longer line ends the connection
+	 */
+	final public static int SERVER_MAX_LINE_LENGTH = 1 << 20;
+	
+	/**
+	 * Command line option used to time every invocation and print per method latencies at the end
+	 */
+	final public static String LATENCY_OPTION = "--latency";
+	
+	/**
+	 * Command line option used like LATENCY_OPTION that also writes a report next to the test log
+	 */
+	final public static String LATENCY_REPORT_OPTION = "--latency-report";
+	
+	/**
+	 * Name of the latency report file, numbered like the test log
+	 */
+	final public static String LATENCY_REPORT_NAME = "LatencyReport.csv";
+	
+	/**
+	 * Command line option used to write test log entries to disk as they are created instead of keeping them in memory
+	 */
+	final public static String STREAM_LOG_OPTION = "--stream-log";
+	
+	/**
+	 * Command line option used to choose the comma separated formats the test log is written in
+	 */
+	final public static String REPORT_OPTION = "--report";
+	
+	/**
+	 * Name of the html test log format, a single sortable page
+	 */
+	final public static String HTML_REPORT = "html";
+	
+	/**
+	 * Name of the paged html test log format, which loads its rows a page at a time
+	 */
+	final public static String PAGED_REPORT = "paged";
+	
+	/**
+	 * Name of the JSON lines test log format
+	 */
+	final public static String JSONL_REPORT = "jsonl";
+	
+	/**
+	 * Name of the JUnit XML test log format
+	 */
+	final public static String JUNIT_REPORT = "junit";
+	
+	/**
+	 * Name of the html test log files
+	 */
+	final public static String HTML_REPORT_NAME = "TestProgramLog.html";
+	
+	/**
+	 * Name of the paged html test log files
+	 */
+	final public static String PAGED_REPORT_NAME = "TestProgramPages.html";
+	
+	/**
+	 * Name of the JSON lines test log files
+	 */
+	final public static String JSONL_REPORT_NAME = "TestProgramLog.jsonl";
+	
+	/**
+	 * Name of the JUnit XML test log files
+	 */
+	final public static String JUNIT_REPORT_NAME = "TestProgramLog.xml";
+	
+	/**
+	 * Command line option used to keep only a given number of the newest test logs of each format
+	 */
+	final public static String LOG_KEEP_OPTION = "--log-keep";
+	
+	/**
+	 * Command line option used to delete test logs older than a given number of hours
+	 */
+	final public static String LOG_MAX_AGE_OPTION = "--log-max-age";
+	
+	/**
+	 * Command line option used to compress all but a given number of the newest test logs of each format with gzip
+	 */
+	final public static String LOG_COMPRESS_OPTION = "--log-compress";
+	
+	/**
+	 * Number of milliseconds in an hour, the unit of the maximum test log age
+	 */
+	final public static long MILLIS_PER_HOUR = 60L * 60L * 1000L;
+	
+	/**
+	 * Command line option used to benchmark every batch line over a given number of warmup and measured iterations
+	 */
+	final public static String BENCH_OPTION = "--bench";
+	
+	/**
+	 * Number of milliseconds a benchmark iteration keeps calling the method of a batch line
+	 */
+	final public static long BENCH_ITERATION_MILLIS = 100;
+	
+	/**
+	 * Command line option used to give every invocation a deadline of a given number of milliseconds
+	 */
+	final public static String TIMEOUT_OPTION = "--timeout";
+	
+	/**
+	 * Number of milliseconds an invocation that missed its deadline has to end once interrupted before its worker is counted as left running
+	 */
+	final public static long TIMEOUT_GRACE_MILLIS = 100;
+	
+	/**
+	 * Command line option used to run batch scripts on a pipeline of stages with a given
+	 * number of worker threads for the tokenize, convert, invoke and format stages
+	 */
+	final public static String PIPELINE_OPTION = "--pipeline";
+	
+	/**
+	 * Command line option used to set how many chunks of lines may wait between two pipeline stages
+	 */
+	final public static String PIPELINE_QUEUE_OPTION = "--pipeline-queue";
+	
+	/**
+	 * Number of batch lines handed from one pipeline stage to the next at a time
+	 */
+	final public static int PIPELINE_CHUNK_LINES = 64;
+	
+	/**
+	 * Default number of chunks of lines that may wait between two pipeline stages
+	 */
+	final public static int DEFAULT_PIPELINE_QUEUE_CAPACITY = 16;
+	
+	/**
+	 * Command line option used to split a batch script between a given number of worker processes
+	 */
+	final public static String SHARDS_OPTION = "--shards";
+	
+	/**
+	 * Command line option used to run only the batch script lines starting in a START:END range of bytes,
+	 * passed to its worker processes by ShardMode
+	 */
+	final public static String RANGE_OPTION = "--range";
+	
+	/**
+	 * Command line option used to save the test log entries to a file for another process to merge,
+	 * passed to its worker processes by ShardMode
+	 */
+	final public static String LOG_EXPORT_OPTION = "--log-export";
+	
+	/**
+	 * Command line option used to save a checkpoint of a batch run every given number of lines
+	 */
+	final public static String CHECKPOINT_OPTION = "--checkpoint";
+	
+	/**
+	 * Command line option used to resume a batch run from the last checkpoint saved next to its output
+	 */
+	final public static String RESUME_OPTION = "--resume";
+	
+	/**
+	 * Default number of batch lines run between checkpoints when resuming without CHECKPOINT_OPTION
+	 */
+	final public static int DEFAULT_CHECKPOINT_INTERVAL = 100000;
+	
+	/**
+	 * Class started by ShardMode to run each shard
+	 */
+	final public static String MAIN_CLASS = "com.idt.contest.highschool.winter2014.Main";
+	
+	/**
+	 * Name of the human readable result format
+	 */
+	final public static String TEXT_FORMAT = "text";
+	
+	/**
+	 * Name of the comma separated result format
+	 */
+	final public static String CSV_FORMAT = "csv";
+	
+	/**
+	 * Name of the JSON lines result format
+	 */
+	final public static String JSON_FORMAT = "json";
+	
+	/**
+	 * Name of the binary result format
+	 */
+	final public static String BINARY_FORMAT = "binary";
+	
+	/**
+	 * Size of the buffer batch output is collected in before it is written
+	 */
+	final public static int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+	
+	/**
+	 * Default number of batch lines written between flushes of the output
+	 */
+	final public static int DEFAULT_FLUSH_INTERVAL = 4096;
+	
+	/**
+	 * text for command line option failure
+	 */
+	final public static String OPTION_ERROR = "ERROR: Option requires a positive integer value - ";
+	
+	/**
+	 * text for unknown result format failure
+	 */
+	final public static String FORMAT_ERROR = "ERROR: Unknown result format, use text, csv, json or binary - ";
+	
+	/**
+	 * text for unknown test log format failure
+	 */
+	final public static String REPORT_ERROR = "ERROR: Unknown test log format, use html, paged, jsonl or junit separated by commas - ";
+	
+	/**
+	 * text for pipeline stage sizes failure
+	 */
+	final public static String PIPELINE_ERROR = "ERROR: Option requires positive worker counts for tokenize,convert,invoke,format - ";
+	
+	/**
+	 * text for byte range failure
+	 */
+	final public static String RANGE_ERROR = "ERROR: Option requires a START:END range of byte offsets - ";
+	
+	/**
+	 * text for deduplication requested with lines run on several threads
+	 */
+	final public static String DEDUP_ERROR = "ERROR: --dedup cannot be combined with --parallel or --pipeline, duplicate lines are only collapsed when lines are run one at a time";
+	
+	/**
+	 * text for checkpoint failure
+	 */
+	final public static String CHECKPOINT_ERROR = "ERROR: Could not resume from a checkpoint - ";
+	
+	/**
+	 * text for malformed bulk directive failure
+	 */
+	final public static String BULK_DIRECTIVE_ERROR = "ERROR: Bulk directive must be @bulk,CLASS,METHOD,INPUT,OUTPUT";
+	
+	/**
+	 * text for bulk directive found while compiling a plan
+	 */
+	final public static String BULK_PLAN_ERROR = "ERROR: Bulk directives cannot be compiled into a plan";
+	
+	/**
+	 * text for server request running a file outside the working directory
+	 */
+	final public static String SERVER_RUN_ERROR = "ERROR: Only files in the server's working directory can be run - ";
+	
 	/**
 	 * Index in a single line of batch file to find the class
 	 */
@@ -0,0 +1,255 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class used to cache resolved methods and receiver instances so that a
+ * class/method pair named in a batch script is only looked up by reflection once.
+ * Resolved methods are shared between threads, receiver instances are kept per
+ * thread because the classes being invoked are not thread safe
+ */
+public class InvocationCache {
+
+	/**
+	 * registry the methods of a class are looked up in
+	 */
+	private final InvocationRegistry registry;
+
+	/**
+	 * true if only classes of the registry can be resolved, false to load any class by name
+	 */
+	private final boolean registeredOnly;
+
+	/**
+	 * map of lookup keys to resolved invokers
+	 */
+	private Map<Key, MethodInvoker> invokers = new ConcurrentHashMap<Key, MethodInvoker>();
+
+	/**
+	 * map of reflected methods to their invokers, used when a method was chosen directly
+	 */
+	private Map<Method, MethodInvoker> methodInvokers = new ConcurrentHashMap<Method, MethodInvoker>();
+
+	/**
+	 * map of classes to the instance methods are invoked on, one map per thread
+	 */
+	private ThreadLocal<Map<Class<?>, Object>> receivers = new ThreadLocal<Map<Class<?>, Object>>() {
+		@Override
+		protected Map<Class<?>, Object> initialValue() {
+			return new HashMap<Class<?>, Object>();
+		}
+	};
+
+
+	/**
+	 * public constructor for InvocationCache
+	 * @param registry - registry the methods of a class are looked up in
+	 */
+	public InvocationCache(InvocationRegistry registry) {
+		this(registry, false);
+	}
+
+
+	/**
+	 * public constructor for InvocationCache
+	 * @param registry - registry the methods of a class are looked up in
+	 * @param registeredOnly - true if only classes of the registry can be resolved
+	 */
+	public InvocationCache(InvocationRegistry registry, boolean registeredOnly) {
+		this.registry = registry;
+		this.registeredOnly = registeredOnly;
+	}
+
+
+	/**
+	 * Method used to find the invoker for a method of a class
+	 * @param className - String fully qualified name of the class
+	 * @param methodName - String name of the method
+	 * @param arity - number of parameter values supplied for the method
+	 * @return - MethodInvoker for the method, null if the class does not declare a method with that name
+	 * @throws ClassNotFoundException - thrown when the class cannot be found, or is not in the
+	 * registry if only its classes can be resolved
+	 */
+	public MethodInvoker resolve(String className, String methodName, int arity) throws ClassNotFoundException {
+		Key key = new Key(className, methodName, arity);
+		MethodInvoker invoker = invokers.get(key);
+		if (invoker != null) {
+			return invoker;
+		}
+
+		// lookups that fail are not cached, they only happen on lines that report an error
+		Class<?> clazz = registry.getRegisteredClass(className);
+		if (clazz == null) {
+			if (registeredOnly) {
+				throw new ClassNotFoundException(className);
+			}
+			clazz = Class.forName(className);
+		}
+		Method selectedMethod = selectMethod(clazz, methodName, arity);
+		if (selectedMethod != null) {
+			invoker = new MethodInvoker(selectedMethod);
+			invokers.put(key, invoker);
+		}
+		return invoker;
+	}
+
+
+	/**
+	 * Method used to find the invoker for the bulk overload of a method, see InvocationRegistry.getBulkMethod
+	 * @param invoker - invoker of a method taking one value per parameter
+	 * @return - MethodInvoker for the method taking an array of values per parameter, null if there is none
+	 */
+	public MethodInvoker bulkInvoker(MethodInvoker invoker) {
+		Method bulk = registry.getBulkMethod(invoker.getMethod());
+		return (bulk != null) ? invoker(bulk) : null;
+	}
+
+
+	/**
+	 * Method used to find the invoker for a method that has already been reflected
+	 * @param method - method to invoke
+	 * @return - MethodInvoker for the method
+	 */
+	public MethodInvoker invoker(Method method) {
+		MethodInvoker invoker = methodInvokers.get(method);
+		if (invoker == null) {
+			invoker = new MethodInvoker(method);
+			methodInvokers.put(method, invoker);
+		}
+		return invoker;
+	}
+
+
+	/**
+	 * Method used to get the instance of a class that its methods are invoked on,
+	 * the instance is created on first use by the current thread and reused afterwards
+	 * @param invoker - invoker whose declaring class is needed
+	 * @return - Object instance of the declaring class
+	 * @throws InstantiationException - thrown when the class cannot be instantiated
+	 * @throws IllegalAccessException - thrown when the constructor is not accessible
+	 */
+	public Object receiver(MethodInvoker invoker) throws InstantiationException, IllegalAccessException {
+		Class<?> clazz = invoker.getMethod().getDeclaringClass();
+		Map<Class<?>, Object> threadReceivers = receivers.get();
+		Object receiver = threadReceivers.get(clazz);
+		if (receiver == null) {
+			receiver = instantiate(clazz);
+			threadReceivers.put(clazz, receiver);
+		}
+		return receiver;
+	}
+
+
+	/**
+	 * Method used to create an instance with the no-argument constructor, reporting failures as Class.newInstance did
+	 * @param clazz - class to instantiate
+	 * @return - Object new instance
+	 * @throws InstantiationException - thrown when the class cannot be instantiated
+	 * @throws IllegalAccessException - thrown when the constructor is not accessible
+	 */
+	private static Object instantiate(Class<?> clazz) throws InstantiationException, IllegalAccessException {
+		try {
+			return clazz.getDeclaredConstructor().newInstance();
+		} catch (NoSuchMethodException e) {
+			InstantiationException missing = new InstantiationException(clazz.getName());
+			missing.initCause(e);
+			throw missing;
+		} catch (InvocationTargetException e) {
+			// Class.newInstance threw what the constructor threw, unchecked exceptions are passed on the same way
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			InstantiationException failed = new InstantiationException(clazz.getName());
+			failed.initCause(cause);
+			throw failed;
+		}
+	}
+
+
+	/**
+	 * Method used to drop the current thread's instance of a class if it is still the
+	 * given one, so the next invocation on this thread starts from a fresh instance
+	 * @param invoker - invoker whose declaring class the instance belongs to
+	 * @param receiver - instance to drop
+	 */
+	public void releaseReceiver(MethodInvoker invoker, Object receiver) {
+		Map<Class<?>, Object> threadReceivers = receivers.get();
+		Class<?> clazz = invoker.getMethod().getDeclaringClass();
+		if (receiver != null && threadReceivers.get(clazz) == receiver) {
+			threadReceivers.remove(clazz);
+		}
+	}
+
+
+	/**
+	 * Method used to drop the receiver instances created by the current thread, so
+	 * the next invocation on this thread starts from fresh instances
+	 */
+	public void releaseReceivers() {
+		receivers.remove();
+	}
+
+
+	/**
+	 * Method used to pick a method by name, preferring one whose parameter count
+	 * matches the number of supplied values and otherwise falling back to the
+	 * last method with that name in registry order
+	 * @param clazz - class to search
+	 * @param methodName - String name of the method
+	 * @param arity - number of parameter values supplied
+	 * @return - selected Method, null if no method has that name
+	 */
+	private Method selectMethod(Class<?> clazz, String methodName, int arity) {
+		Method byName = null;
+		Method byArity = null;
+		for (Method m : registry.getDeclaredMethods(clazz)) {
+			if (m.getName().equals(methodName)) {
+				byName = m;
+				if (m.getParameterTypes().length == arity) {
+					byArity = m;
+				}
+			}
+		}
+		return (byArity != null) ? byArity : byName;
+	}
+
+
+	/**
+	 * Class representing the class/method/arity combination used to look up an invoker
+	 */
+	private static final class Key {
+
+		private final String className;
+		private final String methodName;
+		private final int arity;
+		private final int hash;
+
+		Key(String className, String methodName, int arity) {
+			this.className = className;
+			this.methodName = methodName;
+			this.arity = arity;
+			this.hash = (className.hashCode() * 31 + methodName.hashCode()) * 31 + arity;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return arity == other.arity && className.equals(other.className) && methodName.equals(other.methodName);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,388 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class describing every class, method and signature the application can invoke.
+ * The registry is built once at startup, by reflection or from an index file saved
+ * by an earlier run, and never changes afterwards, so every mode can share it.
+ * Methods are kept sorted by name and then by parameter types, which gives the
+ * menus the same numbering on every run and JVM. Bulk overloads, methods taking
+ * one array per parameter of a method with the same name, are kept apart: they are
+ * not shown in menus or invoked by script lines, only by bulk directives
+ */
+public final class InvocationRegistry {
+
+	/**
+	 * first line of an index file
+	 */
+	private static final String INDEX_HEADER = "IDT invocation index 1";
+
+	/**
+	 * separator between the fields of an index line
+	 */
+	private static final String INDEX_SEPARATOR = "\t";
+
+	/**
+	 * primitive types by name, Class.forName does not know them
+	 */
+	private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+	static {
+		for (Class<?> type : new Class<?>[] {int.class, long.class, double.class, float.class, short.class,
+				byte.class, char.class, boolean.class, void.class}) {
+			PRIMITIVES.put(type.getName(), type);
+		}
+	}
+
+	/**
+	 * orders methods by name, then parameter count, then parameter type names
+	 */
+	private static final Comparator<Method> METHOD_ORDER = new Comparator<Method>() {
+		@Override
+		public int compare(Method a, Method b) {
+			int result = a.getName().compareTo(b.getName());
+			Class<?>[] aTypes = a.getParameterTypes();
+			Class<?>[] bTypes = b.getParameterTypes();
+			if (result == 0) {
+				result = aTypes.length - bTypes.length;
+			}
+			for (int i = 0; result == 0 && i < aTypes.length; i++) {
+				result = aTypes[i].getName().compareTo(bTypes[i].getName());
+			}
+			return result;
+		}
+	};
+
+	/**
+	 * registry of FrameworkConstants.CLASSES, built on first use
+	 */
+	private static InvocationRegistry standard;
+
+	/**
+	 * registered classes by name, in the order they were registered
+	 */
+	private final Map<String, ClassEntry> classes;
+
+	/**
+	 * names of the registered classes, in the order they were registered
+	 */
+	private final List<String> classNames;
+
+
+	/**
+	 * private constructor for InvocationRegistry, use build, load or standard
+	 * @param classes - registered classes by name, in registration order
+	 */
+	private InvocationRegistry(Map<String, ClassEntry> classes) {
+		this.classes = classes;
+		this.classNames = Collections.unmodifiableList(new ArrayList<String>(classes.keySet()));
+	}
+
+
+	/**
+	 * Method used to get the registry of the classes in FrameworkConstants.CLASSES
+	 * @return - InvocationRegistry shared by every caller
+	 */
+	public static synchronized InvocationRegistry standard() {
+		if (standard == null) {
+			standard = build(FrameworkConstants.CLASSES);
+		}
+		return standard;
+	}
+
+
+	/**
+	 * Method used to build a registry by reflecting on classes
+	 * @param classNames - fully qualified names of the classes to register
+	 * @return - InvocationRegistry of the classes, classes that cannot be loaded are
+	 * 			 registered without methods and report ClassNotFoundException when used
+	 */
+	public static InvocationRegistry build(String[] classNames) {
+		Map<String, ClassEntry> classes = new LinkedHashMap<String, ClassEntry>();
+		for (String className : classNames) {
+			try {
+				Class<?> clazz = Class.forName(className);
+				classes.put(className, new ClassEntry(clazz, clazz.getDeclaredMethods(), null));
+			} catch (ClassNotFoundException e) {
+				classes.put(className, new ClassEntry(null, new Method[0], e));
+			}
+		}
+		return new InvocationRegistry(classes);
+	}
+
+
+	/**
+	 * Method used to load the registry saved in an index file, or to build the
+	 * standard registry and save it there if the file is missing or out of date.
+	 * Delete the file to pick up methods added since it was written
+	 * @param indexFile - index file to read or create
+	 * @return - InvocationRegistry of the indexed classes
+	 */
+	public static InvocationRegistry loadOrBuild(File indexFile) {
+		if (indexFile.exists()) {
+			try {
+				return load(indexFile);
+			} catch (IOException e) {
+				System.err.println("INDEX: rebuilding " + indexFile.getPath() + " - " + e.getMessage());
+			}
+		}
+
+		InvocationRegistry registry = standard();
+		try {
+			registry.save(indexFile);
+		} catch (IOException e) {
+			System.err.println("INDEX: could not write " + indexFile.getPath() + " - " + e.getMessage());
+		}
+		return registry;
+	}
+
+
+	/**
+	 * Method used to load a registry from an index file written by save
+	 * @param indexFile - index file to read
+	 * @return - InvocationRegistry of the indexed classes
+	 * @throws IOException - thrown when the file cannot be read or names a class or method that no longer exists
+	 */
+	public static InvocationRegistry load(File indexFile) throws IOException {
+		Map<String, List<Method>> methods = new LinkedHashMap<String, List<Method>>();
+		Map<String, Class<?>> loaded = new HashMap<String, Class<?>>();
+		Reader reader = new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8);
+		try (BufferedReader in = new BufferedReader(reader)) {
+			if (!INDEX_HEADER.equals(in.readLine())) {
+				throw new IOException("not an invocation index");
+			}
+
+			String line;
+			while ((line = in.readLine()) != null) {
+				// class name, then method name and parameter type names if the class has a method
+				String[] fields = line.split(INDEX_SEPARATOR, -1);
+				Class<?> clazz = loaded.get(fields[0]);
+				if (clazz == null) {
+					clazz = Class.forName(fields[0]);
+					loaded.put(fields[0], clazz);
+					methods.put(fields[0], new ArrayList<Method>());
+				}
+				if (fields.length > 1) {
+					Class<?>[] parameterTypes = new Class<?>[fields.length - 2];
+					for (int i = 0; i < parameterTypes.length; i++) {
+						parameterTypes[i] = typeForName(fields[i + 2]);
+					}
+					methods.get(fields[0]).add(clazz.getDeclaredMethod(fields[1], parameterTypes));
+				}
+			}
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			throw new IOException("index is out of date: " + e.getMessage());
+		}
+
+		Map<String, ClassEntry> classes = new LinkedHashMap<String, ClassEntry>();
+		for (Map.Entry<String, List<Method>> entry : methods.entrySet()) {
+			Method[] declared = entry.getValue().toArray(new Method[entry.getValue().size()]);
+			classes.put(entry.getKey(), new ClassEntry(loaded.get(entry.getKey()), declared, null));
+		}
+		return new InvocationRegistry(classes);
+	}
+
+
+	/**
+	 * Method used to save the registry to an index file that load can read
+	 * @param indexFile - index file to create
+	 * @throws IOException - thrown when the file cannot be written
+	 */
+	public void save(File indexFile) throws IOException {
+		try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(indexFile), StandardCharsets.UTF_8))) {
+			out.print(INDEX_HEADER + "\n");
+			for (ClassEntry entry : classes.values()) {
+				if (entry.failure != null) {
+					continue;
+				}
+				if (entry.declared.length == 0) {
+					out.print(entry.clazz.getName() + "\n");
+				}
+				List<Method> indexed = new ArrayList<Method>(Arrays.asList(entry.declared));
+				indexed.addAll(entry.bulkMethods.values());
+				for (Method method : indexed) {
+					StringBuilder line = new StringBuilder(entry.clazz.getName());
+					line.append(INDEX_SEPARATOR).append(method.getName());
+					for (Class<?> parameterType : method.getParameterTypes()) {
+						line.append(INDEX_SEPARATOR).append(parameterType.getName());
+					}
+					out.print(line.append('\n'));
+				}
+			}
+			if (out.checkError()) {
+				throw new IOException("could not write " + indexFile.getPath());
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to get the names of the registered classes
+	 * @return - unmodifiable List of class names in registration order
+	 */
+	public List<String> getClassNames() {
+		return classNames;
+	}
+
+
+	/**
+	 * Method used to get a registered class
+	 * @param className - String fully qualified name of the class
+	 * @return - Class, null if the class is not registered
+	 * @throws ClassNotFoundException - thrown when the class is registered but could not be loaded
+	 */
+	public Class<?> getRegisteredClass(String className) throws ClassNotFoundException {
+		ClassEntry entry = classes.get(className);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.failure != null) {
+			throw entry.failure;
+		}
+		return entry.clazz;
+	}
+
+
+	/**
+	 * Method used to get the public methods of a class in registry order, e.g. to show in a menu
+	 * @param clazz - class to look at
+	 * @return - unmodifiable List of methods
+	 */
+	public List<Method> getPublicMethods(Class<?> clazz) {
+		ClassEntry entry = classes.get(clazz.getName());
+		if (entry != null && entry.clazz == clazz) {
+			return entry.publicMethods;
+		}
+		return new ClassEntry(clazz, clazz.getDeclaredMethods(), null).publicMethods;
+	}
+
+
+	/**
+	 * Method used to get every method declared by a class in registry order. Classes that
+	 * are not registered are reflected on each call, so callers should cache what they find
+	 * @param clazz - class to look at
+	 * @return - Method array, must not be modified
+	 */
+	public Method[] getDeclaredMethods(Class<?> clazz) {
+		ClassEntry entry = classes.get(clazz.getName());
+		if (entry != null && entry.clazz == clazz) {
+			return entry.declared;
+		}
+		Method[] declared = clazz.getDeclaredMethods();
+		Arrays.sort(declared, METHOD_ORDER);
+		return declared;
+	}
+
+
+	/**
+	 * Method used to find the bulk overload of a method, see BulkInvocation
+	 * @param method - method taking one value per parameter
+	 * @return - Method with the same name taking an array of values per parameter, null if there is none
+	 */
+	public Method getBulkMethod(Method method) {
+		ClassEntry entry = classes.get(method.getDeclaringClass().getName());
+		if (entry != null && entry.clazz == method.getDeclaringClass()) {
+			return entry.bulkMethods.get(method);
+		}
+		return new ClassEntry(method.getDeclaringClass(), method.getDeclaringClass().getDeclaredMethods(), null).bulkMethods.get(method);
+	}
+	
+	
+	/**
+	 * Method used to find a type by the name Class.getName() gives it
+	 * @param name - String type name, e.g. int, [I or java.lang.String
+	 * @return - Class of the type
+	 * @throws ClassNotFoundException - thrown when the type cannot be found
+	 */
+	private static Class<?> typeForName(String name) throws ClassNotFoundException {
+		Class<?> type = PRIMITIVES.get(name);
+		return (type != null) ? type : Class.forName(name);
+	}
+
+
+	/**
+	 * Class representing a registered class and its methods
+	 */
+	private static final class ClassEntry {
+
+		private final Class<?> clazz;
+		private final Method[] declared;
+		private final List<Method> publicMethods;
+		private final Map<Method, Method> bulkMethods = new HashMap<Method, Method>();
+		private final ClassNotFoundException failure;
+
+		ClassEntry(Class<?> clazz, Method[] declared, ClassNotFoundException failure) {
+			this.clazz = clazz;
+			this.failure = failure;
+
+			// set the bulk overloads apart from the methods they belong to
+			List<Method> methods = new ArrayList<Method>();
+			for (Method m : declared) {
+				Method scalar = scalarMethod(m, declared);
+				if (scalar != null && Modifier.isPublic(m.getModifiers())) {
+					bulkMethods.put(scalar, m);
+				} else {
+					methods.add(m);
+				}
+			}
+			this.declared = methods.toArray(new Method[methods.size()]);
+			Arrays.sort(this.declared, METHOD_ORDER);
+
+			List<Method> publicMethods = new ArrayList<Method>();
+			for (Method m : this.declared) {
+				if (Modifier.isPublic(m.getModifiers())) {
+					publicMethods.add(m);
+				}
+			}
+			this.publicMethods = Collections.unmodifiableList(publicMethods);
+		}
+
+		/**
+		 * Method used to find the method a bulk overload takes arrays of values for
+		 * @param m - method that may be a bulk overload
+		 * @param declared - methods declared by the same class
+		 * @return - Method taking one value of each array component type, null if m is not a bulk overload
+		 */
+		private static Method scalarMethod(Method m, Method[] declared) {
+			Class<?>[] types = m.getParameterTypes();
+			for (Class<?> type : types) {
+				if (!type.isArray()) {
+					return null;
+				}
+			}
+			for (Method candidate : declared) {
+				Class<?>[] candidateTypes = candidate.getParameterTypes();
+				if (types.length == 0 || candidate == m || !candidate.getName().equals(m.getName()) || candidateTypes.length != types.length) {
+					continue;
+				}
+				boolean matches = true;
+				for (int i = 0; i < types.length && matches; i++) {
+					matches = (candidateTypes[i] == types[i].getComponentType());
+				}
+				if (matches) {
+					return candidate;
+				}
+			}
+			return null;
+		}
+	}
+}
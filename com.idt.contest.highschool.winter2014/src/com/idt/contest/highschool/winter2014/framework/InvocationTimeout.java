@@ -0,0 +1,255 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.Recording;
+
+/**
+ * Class used to give every invocation a deadline. The method is called on a pooled worker
+ * thread while the calling thread waits for it; what the method prints goes where the
+ * calling thread's output goes, and the test log entries it creates are logged by the
+ * calling thread once it returns, so the call looks the same as one made directly.
+ * <p>
+ * A call still running at its deadline is abandoned with an InvocationTimeoutException.
+ * Its worker is interrupted, and if the method ignores that it is left running as a
+ * daemon while the pool starts another thread for the next call, so the run keeps going.
+ * The worker is never stopped, since a stop could arrive while it updates the shared
+ * result cache. Anything it prints after the deadline is dropped, as are the test log
+ * entries it created, and the instance the call was made on is dropped from the
+ * InvocationCache, so later calls never share it with a worker still running
+ */
+final class InvocationTimeout {
+
+	/**
+	 * milliseconds a call may take
+	 */
+	private final long timeoutMillis;
+
+	/**
+	 * worker threads the calls are made on
+	 */
+	private final ExecutorService workers = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "invocation-worker");
+			// a worker left running must not keep the JVM alive
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * number of calls that timed out
+	 */
+	private final AtomicLong timeouts = new AtomicLong();
+
+	/**
+	 * number of timed out calls whose worker kept running after it was interrupted
+	 */
+	private final AtomicLong abandoned = new AtomicLong();
+
+
+	/**
+	 * package-private constructor for InvocationTimeout
+	 * @param timeoutMillis - milliseconds a call may take
+	 */
+	InvocationTimeout(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+
+	/**
+	 * Method used to make a call on a worker and wait for it until the deadline
+	 * @param mode - mode making the call, see Mode.invokeUntimed
+	 * @param invoker - method to invoke
+	 * @param receiver - instance to invoke the method on
+	 * @param parameters - converted parameter values
+	 * @return - Object returned by the method
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws IllegalArgumentException - thrown when parameter values do not match the parameter types
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
+	 * @throws InvocationTimeoutException - thrown when the method did not return before the deadline
+	 */
+	Object invoke(Mode mode, MethodInvoker invoker, Object receiver, Object[] parameters) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		OutputCapture capture = OutputCapture.installed();
+		GatedStream output = (capture != null) ? new GatedStream(capture.target()) : null;
+		Call call = new Call(mode, invoker, receiver, parameters, capture, output);
+		Future<Object> future = workers.submit(call);
+
+		try {
+			Object result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			BuiltInTester.logRecording(call.recording);
+			return result;
+
+		} catch (ExecutionException e) {
+			BuiltInTester.logRecording(call.recording);
+			throw rethrow(e.getCause());
+		} catch (TimeoutException e) {
+			cancel(call, future, output);
+			throw new InvocationTimeoutException(invoker.getQualifiedName() + " did not return within " + timeoutMillis + " ms");
+		} catch (InterruptedException e) {
+			cancel(call, future, output);
+			Thread.currentThread().interrupt();
+			throw new InvocationTimeoutException(invoker.getQualifiedName() + " was cancelled");
+		}
+	}
+
+
+	/**
+	 * Method used to describe how many calls timed out
+	 * @return - String summary, null if no call timed out
+	 */
+	String getStatistics() {
+		if (timeouts.get() == 0) {
+			return null;
+		}
+		return "TIMEOUT: " + timeouts.get() + " calls did not return within " + timeoutMillis + " ms, " + abandoned.get() + " workers kept running";
+	}
+
+
+	/**
+	 * Method used to free the worker of a call that missed its deadline and drop the
+	 * instance it was made on
+	 * @param call - call to cancel
+	 * @param future - future of the call
+	 * @param output - stream the call prints to, null if it prints to the console
+	 */
+	private void cancel(Call call, Future<Object> future, GatedStream output) {
+		timeouts.incrementAndGet();
+		if (output != null) {
+			output.close();
+		}
+		call.mode.invocationCache.releaseReceiver(call.invoker, call.receiver);
+		future.cancel(true);
+
+		try {
+			if (!call.finished.await(FrameworkConstants.TIMEOUT_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+				// the method ignores interrupts, its daemon worker is left to it
+				abandoned.incrementAndGet();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Method used to throw the exception a call ended with on the calling thread
+	 * @param cause - exception raised by the call
+	 * @return - never returns, declared so callers can write throw rethrow(cause)
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
+	 */
+	private static RuntimeException rethrow(Throwable cause) throws IllegalAccessException, InvocationTargetException {
+		if (cause instanceof IllegalAccessException) {
+			throw (IllegalAccessException) cause;
+		} else if (cause instanceof InvocationTargetException) {
+			throw (InvocationTargetException) cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new IllegalArgumentException(cause);
+	}
+
+
+	/**
+	 * Class representing one call made on a worker on behalf of a calling thread
+	 */
+	private static final class Call implements Callable<Object> {
+
+		private final Mode mode;
+		private final MethodInvoker invoker;
+		private final Object receiver;
+		private final Object[] parameters;
+		private final OutputCapture capture;
+		private final OutputStream output;
+
+		// counted down once the worker is done with the call, however it ended
+		private final CountDownLatch finished = new CountDownLatch(1);
+
+		// log entries created by the call, read by the calling thread once the call returned
+		private Recording recording;
+
+		Call(Mode mode, MethodInvoker invoker, Object receiver, Object[] parameters, OutputCapture capture, OutputStream output) {
+			this.mode = mode;
+			this.invoker = invoker;
+			this.receiver = receiver;
+			this.parameters = parameters;
+			this.capture = capture;
+			this.output = output;
+		}
+
+		@Override
+		public Object call() throws Exception {
+			if (capture != null) {
+				capture.route(output);
+			}
+			BuiltInTester.startHeldRecording();
+			try {
+				return mode.invokeUntimed(invoker, receiver, parameters);
+			} finally {
+				recording = BuiltInTester.stopRecording();
+				if (capture != null) {
+					capture.unroute();
+				}
+				finished.countDown();
+			}
+		}
+	}
+
+
+	/**
+	 * Class representing the calling thread's output as seen by a worker, closed when
+	 * the call is abandoned so a worker that keeps running cannot print into later lines
+	 */
+	private static final class GatedStream extends OutputStream {
+
+		private final OutputStream target;
+		private boolean closed;
+
+		GatedStream(OutputStream target) {
+			this.target = target;
+		}
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			if (!closed) {
+				target.write(b);
+			}
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			if (!closed) {
+				target.write(b, off, len);
+			}
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			if (!closed) {
+				target.flush();
+			}
+		}
+
+		@Override
+		public synchronized void close() {
+			closed = true;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+/**
+ * Exception thrown when an invoked method does not return before the deadline given
+ * by Mode.setInvocationTimeout. Unchecked, like the exceptions the methods under test
+ * raise themselves, so it passes through the invoke methods without changing them
+ */
+public class InvocationTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+
+	/**
+	 * public constructor for InvocationTimeoutException
+	 * @param message - String describing the call that timed out
+	 */
+	public InvocationTimeoutException(String message) {
+		super(message);
+	}
+}
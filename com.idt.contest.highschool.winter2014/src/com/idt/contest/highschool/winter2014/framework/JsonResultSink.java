@@ -0,0 +1,128 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.lang.reflect.Array;
+
+/**
+ * Class writing one JSON object per line (JSON lines). Results look like
+ * {"class":"...","method":"...","parameters":[...],"result":...}, errors carry
+ * "error" and "message" instead of "result", and other messages only "message"
+ */
+public class JsonResultSink extends ResultSink {
+
+
+	@Override
+	public void result(String className, String methodName, Object[] parameters, Class<?> returnType, Object result) {
+		StringBuilder builder = new StringBuilder(128);
+		appendCall(builder, className, methodName, parameters);
+		builder.append(",\"result\":");
+		appendValue(builder, result);
+		builder.append("}\n");
+		System.out.print(builder);
+	}
+
+
+	@Override
+	public void error(String className, String methodName, Object[] parameters, String category, String message) {
+		StringBuilder builder = new StringBuilder(128);
+		appendCall(builder, className, methodName, parameters);
+		builder.append(",\"error\":");
+		appendString(builder, category);
+		builder.append(",\"message\":");
+		appendValue(builder, message);
+		builder.append("}\n");
+		System.out.print(builder);
+	}
+
+
+	@Override
+	public void message(String text) {
+		StringBuilder builder = new StringBuilder(64);
+		builder.append("{\"message\":");
+		appendString(builder, text);
+		builder.append("}\n");
+		System.out.print(builder);
+	}
+
+
+	/**
+	 * Method used to start an object with the members describing a call
+	 * @param builder - builder to append to
+	 * @param className - String name of the class, may be null
+	 * @param methodName - String name of the method, may be null
+	 * @param parameters - parameter values, may be null
+	 */
+	private static void appendCall(StringBuilder builder, String className, String methodName, Object[] parameters) {
+		builder.append("{\"class\":");
+		appendValue(builder, className);
+		builder.append(",\"method\":");
+		appendValue(builder, methodName);
+		builder.append(",\"parameters\":");
+		appendValue(builder, parameters);
+	}
+
+
+	/**
+	 * Method used to append a value as JSON
+	 * @param builder - builder to append to
+	 * @param value - null, boxed primitive, String or array
+	 */
+	private static void appendValue(StringBuilder builder, Object value) {
+		if (value == null) {
+			builder.append("null");
+		} else if (value instanceof Boolean || value instanceof Integer || value instanceof Long
+				|| value instanceof Short || value instanceof Byte) {
+			builder.append(value);
+		} else if (value instanceof Double || value instanceof Float) {
+			// JSON has no NaN or Infinity, write those as strings
+			double number = ((Number) value).doubleValue();
+			if (Double.isNaN(number) || Double.isInfinite(number)) {
+				appendString(builder, value.toString());
+			} else {
+				builder.append(value);
+			}
+		} else if (value.getClass().isArray()) {
+			builder.append('[');
+			if (value instanceof int[]) {
+				appendElements(builder, value, ",");
+			} else {
+				int length = Array.getLength(value);
+				for (int i = 0; i < length; i++) {
+					if (i > 0) {
+						builder.append(',');
+					}
+					appendValue(builder, Array.get(value, i));
+				}
+			}
+			builder.append(']');
+		} else {
+			appendString(builder, value.toString());
+		}
+	}
+
+
+	/**
+	 * Method used to append a quoted and escaped JSON string
+	 * @param builder - builder to append to
+	 * @param value - String to append
+	 */
+	private static void appendString(StringBuilder builder, String value) {
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c == '\n') {
+				builder.append("\\n");
+			} else if (c == '\r') {
+				builder.append("\\r");
+			} else if (c == '\t') {
+				builder.append("\\t");
+			} else if (c < 0x20) {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+}
@@ -0,0 +1,125 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class counting durations in log-linear buckets, like an HDR histogram. Values below
+ * 2^PRECISION_BITS nanoseconds get a bucket each, larger values share a bucket with
+ * values that agree in their top PRECISION_BITS bits, so every percentile is within
+ * 1 / 2^(PRECISION_BITS - 1) of the true value while memory stays fixed. Recording is
+ * lock free and safe from several threads
+ */
+public class LatencyHistogram {
+
+	/**
+	 * number of significant bits kept for each value
+	 */
+	private static final int PRECISION_BITS = 7;
+
+	/**
+	 * number of buckets sharing one power of two
+	 */
+	private static final int HALF_BUCKET_COUNT = 1 << (PRECISION_BITS - 1);
+
+	/**
+	 * number of recorded values per bucket
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(Long.MAX_VALUE) + 1);
+
+	/**
+	 * number of recorded values
+	 */
+	private final AtomicLong totalCount = new AtomicLong();
+
+	/**
+	 * largest recorded value, kept exactly
+	 */
+	private final AtomicLong maxValue = new AtomicLong();
+
+
+	/**
+	 * Method used to record a duration
+	 * @param nanos - duration in nanoseconds, negative values count as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.incrementAndGet();
+
+		long max = maxValue.get();
+		while (value > max && !maxValue.compareAndSet(max, value)) {
+			max = maxValue.get();
+		}
+	}
+
+
+	/**
+	 * Method used to get the number of recorded durations
+	 * @return - long count
+	 */
+	public long getCount() {
+		return totalCount.get();
+	}
+
+
+	/**
+	 * Method used to get the largest recorded duration
+	 * @return - long nanoseconds
+	 */
+	public long getMax() {
+		return maxValue.get();
+	}
+
+
+	/**
+	 * Method used to get the duration that a percentage of recorded durations do not exceed
+	 * @param percentile - percentage between 0 and 100, e.g. 99.9
+	 * @return - long nanoseconds, the upper end of the bucket holding the percentile, 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long count = totalCount.get();
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int index = 0; index < counts.length(); index++) {
+			seen += counts.get(index);
+			if (seen >= rank) {
+				return Math.min(highestValue(index), getMax());
+			}
+		}
+		return getMax();
+	}
+
+
+	/**
+	 * Method used to find the bucket of a value
+	 * @param value - non-negative value
+	 * @return - int bucket index
+	 */
+	private static int bucketIndex(long value) {
+		if (value < 2 * HALF_BUCKET_COUNT) {
+			return (int) value;
+		}
+		// keep the top PRECISION_BITS bits, the shift says which power of two they belong to
+		int shift = 64 - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+		return shift * HALF_BUCKET_COUNT + (int) (value >>> shift);
+	}
+
+
+	/**
+	 * Method used to find the largest value that falls in a bucket
+	 * @param index - bucket index
+	 * @return - long value
+	 */
+	private static long highestValue(int index) {
+		if (index < 2 * HALF_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / HALF_BUCKET_COUNT - 1;
+		long top = index - shift * HALF_BUCKET_COUNT;
+		return ((top + 1) << shift) - 1;
+	}
+}
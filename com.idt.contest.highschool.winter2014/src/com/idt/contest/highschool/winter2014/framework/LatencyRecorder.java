@@ -0,0 +1,103 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class keeping one LatencyHistogram per invoked method, named class.method, and
+ * reporting them at the end of a run as a table or as a CSV report
+ */
+public class LatencyRecorder {
+
+	/**
+	 * percentiles shown for every method
+	 */
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+	/**
+	 * histograms by the qualified name of their method
+	 */
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+
+	/**
+	 * Method used to record how long an invocation took
+	 * @param invoker - method that was invoked
+	 * @param nanos - duration in nanoseconds
+	 */
+	public void record(MethodInvoker invoker, long nanos) {
+		LatencyHistogram histogram = histograms.get(invoker.getQualifiedName());
+		if (histogram == null) {
+			synchronized (histograms) {
+				histogram = histograms.get(invoker.getQualifiedName());
+				if (histogram == null) {
+					histogram = new LatencyHistogram();
+					histograms.put(invoker.getQualifiedName(), histogram);
+				}
+			}
+		}
+		histogram.record(nanos);
+	}
+
+
+	/**
+	 * Method used to print a table of counts and latencies in microseconds, one row per method
+	 * @param out - stream to print to
+	 */
+	public void printSummary(PrintStream out) {
+		out.println(String.format("LATENCY (us) %-50s %10s %10s %10s %10s %10s %10s", "method", "count", "p50", "p90", "p99", "p99.9", "max"));
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(histograms).entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			StringBuilder row = new StringBuilder(String.format("LATENCY (us) %-50s %10d", shortName(entry.getKey()), histogram.getCount()));
+			for (double percentile : PERCENTILES) {
+				row.append(String.format(" %10.1f", histogram.getPercentile(percentile) / 1e3));
+			}
+			row.append(String.format(" %10.1f", histogram.getMax() / 1e3));
+			out.println(row);
+		}
+	}
+
+
+	/**
+	 * Method used to write every histogram as a CSV row with latencies in nanoseconds
+	 * @param file - file to write
+	 * @throws IOException - thrown when the file cannot be written
+	 */
+	public void writeReport(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			out.print("class,method,count,p50_ns,p90_ns,p99_ns,p99.9_ns,max_ns\n");
+			for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(histograms).entrySet()) {
+				LatencyHistogram histogram = entry.getValue();
+				int split = entry.getKey().lastIndexOf('.');
+				StringBuilder row = new StringBuilder();
+				row.append(entry.getKey(), 0, split).append(',').append(entry.getKey().substring(split + 1));
+				row.append(',').append(histogram.getCount());
+				for (double percentile : PERCENTILES) {
+					row.append(',').append(histogram.getPercentile(percentile));
+				}
+				row.append(',').append(histogram.getMax()).append('\n');
+				out.print(row);
+			}
+			if (out.checkError()) {
+				throw new IOException("could not write " + file.getPath());
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to drop the package from a qualified method name
+	 * @param qualifiedName - String in the form package.Class.method
+	 * @return - String in the form Class.method
+	 */
+	private static String shortName(String qualifiedName) {
+		int method = qualifiedName.lastIndexOf('.');
+		return qualifiedName.substring(qualifiedName.lastIndexOf('.', method - 1) + 1);
+	}
+}
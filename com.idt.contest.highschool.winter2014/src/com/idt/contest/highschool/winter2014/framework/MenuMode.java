@@ -21,6 +21,14 @@ public class MenuMode extends Mode{
 		super();
 	}
 	
+	/**
+	 * public constructor for MenuMode
+	 * @param registry - registry of the classes and methods that can be invoked
+	 */
+	public MenuMode(InvocationRegistry registry) {
+		super(registry);
+	}
+	
 	/**
 	 * Method that starts menu mode and prompts user for input
 	 * in order to drive each method that has been contributed.
@@ -30,6 +38,7 @@ public class MenuMode extends Mode{
 		String userInput;
 		int convertedInput;
 		scanner = new Scanner(System.in);	
+		resultSink.start();
 		
 		// the top level menu is the class menu, where a user selects a class
 		// menu loop to show menu multiple times until user exits application
@@ -55,6 +64,8 @@ public class MenuMode extends Mode{
 				if (convertedInput == FrameworkConstants.EXIT_CODE) {
 					// user entered the EXIT_CODE, exit the application
 					System.out.println("\nexiting...");
+					resultSink.finish();
+					printRunStatistics();
 					showMenu = false;
 				} else {
 					// user entered a legitimate menu option, process menu
@@ -109,7 +120,7 @@ public class MenuMode extends Mode{
 		int convertedInput;
 		
 		try {
-			clazz = Class.forName(this.classNameMap.get(option));
+			clazz = registry.getRegisteredClass(this.classNameMap.get(option));
 			//Object t = clazz.newInstance();
 			buildMethodMap(clazz);
 				
@@ -145,23 +156,19 @@ public class MenuMode extends Mode{
 			}
 			
 		} catch (ClassNotFoundException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.CLASS_NOT_FOUND_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
+			resultSink.error(this.classNameMap.get(option), null, null, FrameworkConstants.CLASS_NOT_FOUND_EXCEPTION, e.getMessage());
 		} catch (ClassCastException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.CLASS_CAST_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
+			resultSink.error(this.classNameMap.get(option), null, null, FrameworkConstants.CLASS_CAST_EXCEPTION, e.getMessage());
 		} catch (InstantiationException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.INSTANTIATION_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
+			resultSink.error(this.classNameMap.get(option), null, null, FrameworkConstants.INSTANTIATION_EXCEPTION, e.getMessage());
 		} catch (IllegalAccessException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.ILLEGAL_ACCESS_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
+			resultSink.error(this.classNameMap.get(option), null, null, FrameworkConstants.ILLEGAL_ACCESS_EXCEPTION, e.getMessage());
 		} catch (IllegalArgumentException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.ILLEGAL_ARGUMENT_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
+			resultSink.error(this.classNameMap.get(option), null, null, FrameworkConstants.ILLEGAL_ARGUMENT_EXCEPTION, e.getMessage());
 		} catch (InvocationTargetException e) {
-			System.out.println(FrameworkConstants.MENU_OPTION_FAILED + " - " + FrameworkConstants.INVOCATION_TARGET_EXCEPTION);
-			System.out.println(e.getMessage()+"\n");
+			resultSink.error(this.classNameMap.get(option), null, null, FrameworkConstants.INVOCATION_TARGET_EXCEPTION, e.getMessage());
+		} catch (InvocationTimeoutException e) {
+			resultSink.error(this.classNameMap.get(option), null, null, FrameworkConstants.INVOCATION_TIMEOUT_EXCEPTION, e.getMessage());
 		} catch (NullPointerException e) {}
 		
 	}
@@ -200,14 +207,11 @@ public class MenuMode extends Mode{
 			parameterList.add(classCaster.cast(paramType, userInput));
 		}
 		
+		Object[] parameters = parameterList.toArray();
 		Object classInstance = clazz.newInstance();
-		result = selectedMethod.invoke(classInstance,  parameterList.toArray());
+		result = invokeMethod(invocationCache.invoker(selectedMethod), classInstance, parameters);
 		
-		if (this.isArray(selectedMethod.getReturnType())) {
-			this.printArray(result);
-		} else { 
-			System.out.println("\nRESULT: " + result + "\n");
-		}
+		resultSink.result(clazz.getName(), selectedMethod.getName(), parameters, selectedMethod.getReturnType(), result);
 	}
 
 }
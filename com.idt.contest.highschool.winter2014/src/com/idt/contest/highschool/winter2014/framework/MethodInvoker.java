@@ -0,0 +1,227 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Class representing a single resolved method that can be invoked repeatedly.
+ * The method is converted to a MethodHandle once so that every later call skips
+ * the access checks and argument boxing done by Method.invoke
+ */
+public class MethodInvoker {
+
+	/**
+	 * generic type every handle is adapted to: (receiver, arguments) -> result
+	 */
+	private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	/**
+	 * the reflected method this invoker calls
+	 */
+	private final Method method;
+
+	/**
+	 * cached parameter types of the method
+	 */
+	private final Class<?>[] parameterTypes;
+
+	/**
+	 * name of the method qualified by the name of its class, e.g. package.Class.method
+	 */
+	private final String qualifiedName;
+
+	/**
+	 * converters for the parameter types, chosen once when the method is resolved
+	 */
+	private final Converter[] converters;
+
+	/**
+	 * handle taking the receiver and a spread argument array, null if the method is not accessible
+	 */
+	private final MethodHandle handle;
+
+	/**
+	 * whether the method is static and ignores the receiver
+	 */
+	private final boolean isStatic;
+
+
+	/**
+	 * public constructor for MethodInvoker
+	 * @param method - method to be invoked
+	 */
+	public MethodInvoker(Method method) {
+		this.method = method;
+		this.parameterTypes = method.getParameterTypes();
+		this.qualifiedName = method.getDeclaringClass().getName() + "." + method.getName();
+		this.handle = createHandle(method, this.parameterTypes.length);
+		this.isStatic = Modifier.isStatic(method.getModifiers());
+		this.converters = new Converter[this.parameterTypes.length];
+		for (int i = 0; i < this.parameterTypes.length; i++) {
+			this.converters[i] = ClassCaster.converterFor(this.parameterTypes[i]);
+		}
+	}
+
+
+	/**
+	 * Method used to build a handle of the generic (Object, Object[])Object shape for a method
+	 * @param method - method to build a handle for
+	 * @param arity - number of parameters the method takes
+	 * @return - MethodHandle for the method, null if the method cannot be accessed from here
+	 */
+	private static MethodHandle createHandle(Method method, int arity) {
+		try {
+			MethodHandle target = MethodHandles.lookup().unreflect(method);
+			if (Modifier.isStatic(method.getModifiers())) {
+				// static methods ignore the receiver slot
+				target = MethodHandles.dropArguments(target, 0, Object.class);
+			}
+			return target.asSpreader(Object[].class, arity).asType(SPREAD_TYPE);
+		} catch (IllegalAccessException e) {
+			// leave access errors to Method.invoke so they are reported at invocation time
+			return null;
+		}
+	}
+
+
+	/**
+	 * Method used to invoke the underlying method
+	 * @param receiver - instance to invoke the method on, ignored for static methods
+	 * @param parameters - converted parameter values, one per parameter type
+	 * @return - Object returned by the method, boxed if primitive
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws IllegalArgumentException - thrown when parameter values do not match the parameter types
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
+	 */
+	public Object invoke(Object receiver, Object[] parameters) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		if (handle == null) {
+			return method.invoke(receiver, parameters);
+		}
+
+		// checked as Method.invoke checks them, so the handle cannot fail before calling the method
+		if (!isStatic) {
+			if (receiver == null) {
+				throw new NullPointerException();
+			}
+			if (!method.getDeclaringClass().isInstance(receiver)) {
+				throw new IllegalArgumentException("object is not an instance of declaring class");
+			}
+		}
+		if (parameters.length != parameterTypes.length) {
+			throw new IllegalArgumentException("wrong number of arguments");
+		}
+		for (int i = 0; i < parameterTypes.length; i++) {
+			Object value = parameters[i];
+			boolean matches;
+			if (parameterTypes[i].isPrimitive()) {
+				matches = value != null && widens(value.getClass(), parameterTypes[i]);
+			} else {
+				matches = value == null || parameterTypes[i].isInstance(value);
+			}
+			if (!matches) {
+				throw new IllegalArgumentException("argument type mismatch");
+			}
+		}
+
+		try {
+			return (Object) handle.invokeExact(receiver, parameters);
+		} catch (Throwable t) {
+			// only the method itself can have thrown
+			throw new InvocationTargetException(t);
+		}
+	}
+
+
+	/**
+	 * Method used to check that a boxed value can be passed as a primitive parameter, by unboxing
+	 * and a widening conversion as Method.invoke allows
+	 * @param valueType - class of the boxed value
+	 * @param parameterType - primitive parameter type
+	 * @return - true if the value can be passed
+	 */
+	private static boolean widens(Class<?> valueType, Class<?> parameterType) {
+		if (parameterType == boolean.class) {
+			return valueType == Boolean.class;
+		}
+		if (parameterType == char.class) {
+			return valueType == Character.class;
+		}
+		int valueRank = numericRank(valueType);
+		return valueRank > 0 && valueRank <= numericRank(parameterType);
+	}
+
+
+	/**
+	 * Method used to order the numeric types so that each one widens to those ranked above it
+	 * @param type - primitive or wrapper type
+	 * @return - int rank from 1 for byte to 6 for double, 0 if the type is not numeric
+	 */
+	private static int numericRank(Class<?> type) {
+		if (type == byte.class || type == Byte.class) {
+			return 1;
+		} else if (type == short.class || type == Short.class) {
+			return 2;
+		} else if (type == int.class || type == Integer.class || type == Character.class) {
+			// a char widens to int but not to short
+			return 3;
+		} else if (type == long.class || type == Long.class) {
+			return 4;
+		} else if (type == float.class || type == Float.class) {
+			return 5;
+		} else if (type == double.class || type == Double.class) {
+			return 6;
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Method used to get the reflected method behind this invoker
+	 * @return - Method this invoker calls
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+
+	/**
+	 * Method used to get the name of the method qualified by the name of its class
+	 * @return - String in the form package.Class.method
+	 */
+	public String getQualifiedName() {
+		return qualifiedName;
+	}
+
+
+	/**
+	 * Method used to get the parameter types of the method
+	 * @return - Class array of parameter types, must not be modified
+	 */
+	public Class<?>[] getParameterTypes() {
+		return parameterTypes;
+	}
+
+
+	/**
+	 * Method used to convert text to the value of one parameter
+	 * @param index - index of the parameter
+	 * @param value - characters holding the text
+	 * @return - Object of the parameter type, null if the type is not supported
+	 */
+	public Object convertParameter(int index, CharSequence value) {
+		return converters[index].convert(value);
+	}
+
+
+	/**
+	 * Method used to get the return type of the method
+	 * @return - Class returned by the method
+	 */
+	public Class<?> getReturnType() {
+		return method.getReturnType();
+	}
+}
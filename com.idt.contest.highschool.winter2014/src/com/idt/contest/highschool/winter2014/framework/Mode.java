@@ -1,13 +1,15 @@
 package com.idt.contest.highschool.winter2014.framework;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.TreeMap;
 
+import org.ohs1.winter2013.BuiltInTester;
+
 /**
  * Abstract class representing an execution mode for the 2014 winter contest sample application framework
  */
@@ -34,234 +36,247 @@ public abstract class Mode {
 	 */
 	protected ClassCaster classCaster;
 	
+	/**
+	 * registry of the classes and methods that can be invoked, shared by every mode
+	 */
+	protected final InvocationRegistry registry;
+	
+	/**
+	 * cache of resolved methods and receiver instances shared by every invocation
+	 */
+	protected InvocationCache invocationCache;
+	
+	/**
+	 * cache of results of deterministic methods, null unless memoization is enabled
+	 */
+	protected ResultCache resultCache;
+	
+	/**
+	 * latency histograms of invoked methods, null unless latency tracking is enabled
+	 */
+	protected LatencyRecorder latencyRecorder;
+	
+	/**
+	 * deadline of every invocation, null unless invocations are given one
+	 */
+	private InvocationTimeout invocationTimeout;
+	
+	/**
+	 * true to write the latency histograms to a report next to the BuiltInTester log
+	 */
+	protected boolean writeLatencyReport;
+	
+	/**
+	 * format invocation results and errors are written in
+	 */
+	protected ResultSink resultSink = new TextResultSink();
+	
+	/**
+	 * directory the files named by script lines must be in, null if any file can be used
+	 */
+	protected File fileDirectory;
+	
 	
 	/**
 	 * Protected constructor for abstract Mode class, called by constructors of derived types
 	 */
 	protected Mode() {
-		buildClassNameMap();
-		classCaster = new ClassCaster();
+		this(InvocationRegistry.standard());
 	}
 	
 	
 	/**
-	 * Abstract method to be implemented by derived classes - triggers execution of particular mode
+	 * Protected constructor for abstract Mode class, called by constructors of derived types
+	 * @param registry - registry of the classes and methods that can be invoked
 	 */
-	public abstract void execute();
+	protected Mode(InvocationRegistry registry) {
+		this.registry = registry;
+		this.invocationCache = new InvocationCache(registry);
+		buildClassNameMap();
+		classCaster = new ClassCaster();
+	}
 	
 	
 	/**
-	 * Method used to assemble a map of option values to class names used by the menu
+	 * Method used to check whether a file named by a script line may be used, see fileDirectory
+	 * @param path - String path of the file, relative to the working directory or absolute
+	 * @return - true if any file can be used or the file is in fileDirectory or one of its
+	 * subdirectories, once links and ".." are resolved
+	 * @throws IOException - thrown when the path cannot be resolved
 	 */
-	protected void buildClassNameMap() {
-		for (int i=0; i < FrameworkConstants.CLASSES.length; i++) {
-			classNameMap.put(i+1, FrameworkConstants.CLASSES[i]);
+	protected boolean isAllowedFile(String path) throws IOException {
+		if (fileDirectory == null) {
+			return true;
 		}
+		for (File parent = new File(path).getCanonicalFile().getParentFile(); parent != null; parent = parent.getParentFile()) {
+			if (parent.equals(fileDirectory)) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	
 	/**
-	 * Method used to assemble a map of option values to method names used by the menu
-	 * @param clazz
+	 * Abstract method to be implemented by derived classes - triggers execution of particular mode
 	 */
-	protected void buildMethodMap(Class<?> clazz) {
-		methodMap.clear();
-		Method[] allMethods = clazz.getDeclaredMethods();
-		int i = 1;
-		for (Method m : allMethods) {
-			// only add public methods to the method map
-			if (Modifier.isPublic(m.getModifiers())) {
-				methodMap.put(i++, m);
-			}
-		}
-	}
+	public abstract void execute();
 	
 	
 	/**
-	 * Method to determine whether or not a class is an Array
-	 * @param potentialArray - class that might or might not be an array
-	 * @return - true if the class is an array, false if the class is not an array
+	 * Method used to choose the format invocation results and errors are written in
+	 * @param resultSink - sink to write to
 	 */
-	protected boolean isArray(Class<?> potentialArray) {
-		
-		if (potentialArray == int[].class) {
-			return true;
-		} else if  (potentialArray == double[].class || potentialArray == float[].class || 
-				   potentialArray == byte[].class || potentialArray == short[].class || 
-				   potentialArray == long[].class || potentialArray == boolean[].class ||  
-				   potentialArray == Integer[].class || potentialArray == Long[].class ||
-				   potentialArray == Byte[].class || potentialArray == Short[].class ||
-				   potentialArray == Double[].class || potentialArray == Float[].class ||
-				   potentialArray == Character[].class || potentialArray == Boolean[].class ||
-				   potentialArray == char[].class || potentialArray == String[].class) {
-
-			return true;
-		} else {
-			return false;
-		}
+	public void setResultSink(ResultSink resultSink) {
+		this.resultSink = resultSink;
 	}
 	
-
+	
 	/**
-	 * Method to print the contents of an array instead of the address 
-	 * @param potentialArray - Object representing a potential array
+	 * Method used to cache the results of the methods listed in FrameworkConstants.MEMOIZED_METHODS
+	 * @param maxEntries - maximum number of results kept
 	 */
-	protected void printArray(Object potentialArray) {
-		
-		if (potentialArray == null) {
-			System.out.println("\nRESULT: " + FrameworkConstants.NULL_POINTER_EXCEPTION);
-		} else if (potentialArray.getClass() == int[].class) {
-			printIntArrayContents(potentialArray);
-		} else if  (potentialArray == double[].class) {
-			printDoubleArrayContents(potentialArray);
-		} else if  (potentialArray == float[].class) {
-			printFloatArrayContents(potentialArray);
-		} else if  (potentialArray == byte[].class) {
-			printByteArrayContents(potentialArray);
-		} else if  (potentialArray == short[].class) {
-			printShortArrayContents(potentialArray);
-		} else if  (potentialArray == long[].class) {
-			printLongArrayContents(potentialArray);
-		} else if  (potentialArray == boolean[].class) {
-			printBooleanArrayContents(potentialArray);
-		} else if  (potentialArray == char[].class) {
-			printCharacterArrayContents(potentialArray);
-		} else if (potentialArray == Integer[].class || potentialArray == Long[].class ||
-				   potentialArray == Byte[].class || potentialArray == Short[].class ||
-				   potentialArray == Double[].class || potentialArray == Float[].class ||
-				   potentialArray == Character[].class || potentialArray == Boolean[].class ||
-				   potentialArray == String[].class) {
-			printObjectArrayContents(potentialArray);
-		}
+	public void enableMemoization(int maxEntries) {
+		this.resultCache = new ResultCache(maxEntries);
 	}
 	
 	
 	/**
-	 * Method used to print contents of an int array instead of the array address
-	 * @param intArrayToPrint - int array to print the contents of 
+	 * Method used to time every invocation and print a latency summary when the mode finishes
+	 * @param writeReport - true to also write the latencies to a CSV report next to the BuiltInTester log
 	 */
-	protected void printIntArrayContents(Object intArrayToPrint) {		
-		int[] castArrayToPrint = (int[]) intArrayToPrint;
-		List<Integer> integerList = new ArrayList<Integer>();
-		for (int i: castArrayToPrint) {
-			integerList.add(i);
-		}
-		printObjectArrayContents(integerList.toArray());
+	public void enableLatencyTracking(boolean writeReport) {
+		this.latencyRecorder = new LatencyRecorder();
+		this.writeLatencyReport = writeReport;
 	}
 	
 	
 	/**
-	 * Method used to print contents of an long array instead of the array address
-	 * @param intArrayToPrint - long array to print the contents of 
+	 * Method used to give every invocation a deadline, calls that miss it are reported as
+	 * errors and their worker thread is freed, see InvocationTimeout
+	 * @param timeoutMillis - milliseconds an invocation may take
 	 */
-	protected void printLongArrayContents(Object longArrayToPrint) {		
-		long[] castArrayToPrint = (long[]) longArrayToPrint;
-		List<Long> longList = new ArrayList<Long>();
-		for (long l: castArrayToPrint) {
-			longList.add(l);
-		}
-		printObjectArrayContents(longList.toArray());
+	public void setInvocationTimeout(long timeoutMillis) {
+		this.invocationTimeout = new InvocationTimeout(timeoutMillis);
 	}
 	
 	
 	/**
-	 * Method used to print contents of an double array instead of the array address
-	 * @param doubleArrayToPrdouble - double array to print the contents of 
+	 * Method used to invoke a method, through the result cache if the method is memoized
+	 * @param invoker - method to invoke
+	 * @param receiver - instance to invoke the method on
+	 * @param parameters - converted parameter values
+	 * @return - Object returned by the method
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws IllegalArgumentException - thrown when parameter values do not match the parameter types
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
+	 * @throws InvocationTimeoutException - thrown when the method misses the deadline set by setInvocationTimeout
 	 */
-	protected void printDoubleArrayContents(Object doubleArrayToPrint) {		
-		double[] castArrayToPrint = (double[]) doubleArrayToPrint;
-		List<Double> doubleList = new ArrayList<Double>();
-		for (double d: castArrayToPrint) {
-			doubleList.add(d);
+	protected Object invokeMethod(MethodInvoker invoker, Object receiver, Object[] parameters) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		if (this.latencyRecorder == null) {
+			return invokeWithDeadline(invoker, receiver, parameters);
+		}
+		long start = System.nanoTime();
+		try {
+			return invokeWithDeadline(invoker, receiver, parameters);
+		} finally {
+			this.latencyRecorder.record(invoker, System.nanoTime() - start);
 		}
-		printObjectArrayContents(doubleList.toArray());
 	}
 	
 	
 	/**
-	 * Method used to print contents of an short array instead of the array address
-	 * @param shortArrayToPrshort - short array to print the contents of 
+	 * Method used to invoke a method on a worker that is abandoned at the deadline, if there is one
+	 * @param invoker - method to invoke
+	 * @param receiver - instance to invoke the method on
+	 * @param parameters - converted parameter values
+	 * @return - Object returned by the method
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws IllegalArgumentException - thrown when parameter values do not match the parameter types
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
 	 */
-	protected void printShortArrayContents(Object shortArrayToPrint) {		
-		short[] castArrayToPrint = (short[]) shortArrayToPrint;
-		List<Short> shortList = new ArrayList<Short>();
-		for (short s: castArrayToPrint) {
-			shortList.add(s);
+	private Object invokeWithDeadline(MethodInvoker invoker, Object receiver, Object[] parameters) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		if (this.invocationTimeout == null) {
+			return invokeUntimed(invoker, receiver, parameters);
 		}
-		printObjectArrayContents(shortList.toArray());
+		return this.invocationTimeout.invoke(this, invoker, receiver, parameters);
 	}
 	
 	
 	/**
-	 * Method used to print contents of an byte array instead of the array address
-	 * @param byteArrayToPrbyte - byte array to print the contents of 
+	 * Method used to invoke a method without timing it, see invokeMethod
+	 * @param invoker - method to invoke
+	 * @param receiver - instance to invoke the method on
+	 * @param parameters - converted parameter values
+	 * @return - Object returned by the method
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws IllegalArgumentException - thrown when parameter values do not match the parameter types
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
 	 */
-	protected void printByteArrayContents(Object byteArrayToPrint) {		
-		byte[] castArrayToPrint = (byte[]) byteArrayToPrint;
-		List<Byte> byteList = new ArrayList<Byte>();
-		for (byte b: castArrayToPrint) {
-			byteList.add(b);
+	Object invokeUntimed(MethodInvoker invoker, Object receiver, Object[] parameters) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		if (this.resultCache != null && this.resultCache.isMemoized(invoker)) {
+			return this.resultCache.invoke(invoker, receiver, parameters);
 		}
-		printObjectArrayContents(byteList.toArray());
+		return invoker.invoke(receiver, parameters);
 	}
 	
 	
 	/**
-	 * Method used to print contents of an float array instead of the array address
-	 * @param floatArrayToPrfloat - float array to print the contents of 
+	 * Method used to report result cache statistics and latencies once a mode has finished
 	 */
-	protected void printFloatArrayContents(Object floatArrayToPrint) {		
-		float[] castArrayToPrint = (float[]) floatArrayToPrint;
-		List<Float> floatList = new ArrayList<Float>();
-		for (float b: castArrayToPrint) {
-			floatList.add(b);
+	protected void printRunStatistics() {
+		if (this.resultCache != null) {
+			System.err.println(this.resultCache.getStatistics());
+		}
+		if (this.invocationTimeout != null && this.invocationTimeout.getStatistics() != null) {
+			System.err.println(this.invocationTimeout.getStatistics());
+		}
+		if (this.latencyRecorder != null) {
+			this.latencyRecorder.printSummary(System.err);
+			if (this.writeLatencyReport) {
+				writeLatencyReport();
+			}
 		}
-		printObjectArrayContents(floatList.toArray());
 	}
 	
 	
 	/**
-	 * Method used to print contents of an char array instead of the array address
-	 * @param charArrayToPrchar - char array to print the contents of 
+	 * Method used to write the latency histograms to a CSV report next to the BuiltInTester log
 	 */
-	protected void printCharacterArrayContents(Object charArrayToPrint) {		
-		char[] castArrayToPrint = (char[]) charArrayToPrint;
-		List<Character> charList = new ArrayList<Character>();
-		for (char b: castArrayToPrint) {
-			charList.add(b);
+	private void writeLatencyReport() {
+		try {
+			File report = BuiltInTester.createReportFile(FrameworkConstants.LATENCY_REPORT_NAME);
+			if (report != null) {
+				this.latencyRecorder.writeReport(report);
+				System.err.println("LATENCY: report written to " + report.getAbsolutePath());
+			}
+		} catch (IOException e) {
+			System.err.println("LATENCY: could not write report - " + e.getMessage());
 		}
-		printObjectArrayContents(charList.toArray());
 	}
 	
 	
 	/**
-	 * Method used to print contents of an boolean array instead of the array address
-	 * @param booleanArrayToPrboolean - boolean array to print the contents of 
+	 * Method used to assemble a map of option values to class names used by the menu
 	 */
-	protected void printBooleanArrayContents(Object booleanArrayToPrint) {		
-		boolean[] castArrayToPrint = (boolean[]) booleanArrayToPrint;
-		List<Boolean> booleanList = new ArrayList<Boolean>();
-		for (boolean b: castArrayToPrint) {
-			booleanList.add(b);
+	protected void buildClassNameMap() {
+		int i = 1;
+		for (String className : registry.getClassNames()) {
+			classNameMap.put(i++, className);
 		}
-		printObjectArrayContents(booleanList.toArray());
 	}
 	
 	
 	/**
-	 * Method used to print contents of an object array instead of the array address
-	 * @param objectArrayToPrboolean - object array to print the contents of 
+	 * Method used to assemble a map of option values to method names used by the menu,
+	 * numbered in registry order so the numbers are the same on every run
+	 * @param clazz - class whose public methods are listed
 	 */
-	protected void printObjectArrayContents(Object objectArrayToPrint) {
-		Object[] arrayToPrint = (Object[]) objectArrayToPrint;
-		
-		System.out.print("\nRESULT: ");
-		for (int i = 0; i < arrayToPrint.length; i++) {
-			if (i > 0) {
-				System.out.print(", ");
-			}
-			System.out.print(arrayToPrint[i]);
+	protected void buildMethodMap(Class<?> clazz) {
+		methodMap.clear();
+		int i = 1;
+		for (Method m : registry.getPublicMethods(clazz)) {
+			methodMap.put(i++, m);
 		}
-		System.out.println("\n");
 	}
 }
@@ -0,0 +1,49 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+/**
+ * Class used to turn class and method name fields of batch lines into Strings.
+ * Names seen before are returned from the table without allocating, so a script
+ * that names the same few classes and methods millions of times only creates
+ * each String once
+ */
+public class NameTable {
+
+	/**
+	 * open addressing table of interned names, the length is a power of two
+	 */
+	private final String[] names = new String[FrameworkConstants.NAME_TABLE_SIZE];
+
+	/**
+	 * number of names stored in the table
+	 */
+	private int size;
+
+
+	/**
+	 * Method used to get the String for a name field
+	 * @param field - field holding the name
+	 * @return - String equal to the field contents
+	 */
+	public String intern(ByteSlice field) {
+		if (!field.isAscii()) {
+			return field.toString();
+		}
+
+		int mask = names.length - 1;
+		int index = field.contentHash() & mask;
+		while (names[index] != null) {
+			if (field.contentEquals(names[index])) {
+				return names[index];
+			}
+			index = (index + 1) & mask;
+		}
+
+		// keep the table at most half full so probe sequences stay short
+		String name = field.toString();
+		if (size < names.length / 2) {
+			names[index] = name;
+			size++;
+		}
+		return name;
+	}
+}
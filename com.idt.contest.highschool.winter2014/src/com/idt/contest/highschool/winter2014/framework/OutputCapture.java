@@ -0,0 +1,146 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Class used to capture console output per thread. Once installed as System.out,
+ * anything a thread prints between begin() and end() is kept in a buffer for that
+ * thread instead of going to the console, so output produced concurrently can be
+ * written back in a chosen order. A thread may also route its output straight to
+ * a stream of its own, e.g. the connection of the client it is serving, or to the
+ * stream of another thread it prints on behalf of
+ */
+public class OutputCapture extends OutputStream {
+
+	/**
+	 * capture installed last, null when System.out is not being captured
+	 */
+	private static volatile OutputCapture installed;
+
+	/**
+	 * stream that receives output from threads that are not capturing
+	 */
+	private final OutputStream console;
+
+	/**
+	 * stream receiving the output of each thread, null when the thread writes to the console
+	 */
+	private final ThreadLocal<OutputStream> buffer = new ThreadLocal<OutputStream>();
+
+	/**
+	 * stream that was System.out before install() was called
+	 */
+	private PrintStream previousOut;
+
+	/**
+	 * capture that was installed before install() was called
+	 */
+	private OutputCapture previousCapture;
+
+
+	/**
+	 * public constructor for OutputCapture
+	 * @param console - stream that receives output that is not being captured
+	 */
+	public OutputCapture(OutputStream console) {
+		this.console = console;
+	}
+
+
+	/**
+	 * Method used to route System.out through this capture
+	 */
+	public void install() {
+		previousOut = System.out;
+		previousCapture = installed;
+		// no autoflush, the console decides when to flush
+		System.setOut(new PrintStream(this, false));
+		installed = this;
+	}
+
+
+	/**
+	 * Method used to restore the System.out that was in place before install()
+	 */
+	public void uninstall() {
+		System.out.flush();
+		System.setOut(previousOut);
+		installed = previousCapture;
+	}
+
+
+	/**
+	 * Method used to find the capture System.out currently goes through
+	 * @return - OutputCapture installed last, null if there is none
+	 */
+	static OutputCapture installed() {
+		return installed;
+	}
+
+
+	/**
+	 * Method used to start capturing output printed by the current thread
+	 */
+	public void begin() {
+		buffer.set(new ByteArrayOutputStream());
+	}
+
+
+	/**
+	 * Method used to stop capturing output printed by the current thread
+	 * @return - bytes printed by the current thread since begin()
+	 */
+	public byte[] end() {
+		OutputStream captured = buffer.get();
+		buffer.remove();
+		return (captured instanceof ByteArrayOutputStream) ? ((ByteArrayOutputStream) captured).toByteArray() : new byte[0];
+	}
+
+
+	/**
+	 * Method used to send output printed by the current thread to a stream until unroute()
+	 * @param target - stream that receives the output of the current thread
+	 */
+	public void route(OutputStream target) {
+		buffer.set(target);
+	}
+
+
+	/**
+	 * Method used to send output printed by the current thread to the console again
+	 */
+	public void unroute() {
+		buffer.remove();
+	}
+
+
+	/**
+	 * Method used to find where output from the current thread should go
+	 * @return - OutputStream for the current thread
+	 */
+	OutputStream target() {
+		OutputStream captured = buffer.get();
+		return (captured != null) ? captured : console;
+	}
+
+
+	@Override
+	public void write(int b) throws IOException {
+		target().write(b);
+	}
+
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		target().write(b, off, len);
+	}
+
+
+	@Override
+	public void flush() throws IOException {
+		target().flush();
+	}
+}
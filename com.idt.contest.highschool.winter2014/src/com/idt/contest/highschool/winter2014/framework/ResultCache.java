@@ -0,0 +1,185 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.ohs1.winter2013.BuiltInTester;
+import org.ohs1.winter2013.Recording;
+
+/**
+ * Class used to remember the results of deterministic methods so that calling one
+ * again with the same parameter values returns the earlier result without running
+ * it. Only the methods listed in FrameworkConstants.MEMOIZED_METHODS are cached.
+ * The cache holds a bounded number of results and evicts the least recently used.
+ * The BuiltInTester log entries of the first call are replayed on every hit, so the
+ * output log is the same as if the method had run
+ */
+public class ResultCache {
+
+	/**
+	 * fully qualified names (class.method) of the methods whose results may be cached
+	 */
+	private final Set<String> memoizedMethods = new HashSet<String>(Arrays.asList(FrameworkConstants.MEMOIZED_METHODS));
+
+	/**
+	 * cached results in least recently used order
+	 */
+	private final LinkedHashMap<Key, CachedResult> results;
+
+	/**
+	 * maximum number of results kept
+	 */
+	private final int maxEntries;
+
+	/**
+	 * number of calls answered from the cache
+	 */
+	private long hits;
+
+	/**
+	 * number of calls that had to run the method
+	 */
+	private long misses;
+
+	/**
+	 * number of results dropped to respect maxEntries
+	 */
+	private long evictions;
+
+
+	/**
+	 * public constructor for ResultCache
+	 * @param maxEntries - maximum number of results kept
+	 */
+	public ResultCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.results = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+				if (size() > ResultCache.this.maxEntries) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+
+	/**
+	 * Method used to check whether results of a method are cached
+	 * @param invoker - method to check
+	 * @return - true if the method is listed in FrameworkConstants.MEMOIZED_METHODS
+	 */
+	public boolean isMemoized(MethodInvoker invoker) {
+		return memoizedMethods.contains(invoker.getQualifiedName());
+	}
+
+
+	/**
+	 * Method used to invoke a method through the cache
+	 * @param invoker - method to invoke, must be memoized
+	 * @param receiver - instance to invoke the method on
+	 * @param parameters - converted parameter values
+	 * @return - Object returned by the method now or by an earlier call with equal parameter values
+	 * @throws IllegalAccessException - thrown when the method is not accessible
+	 * @throws IllegalArgumentException - thrown when parameter values do not match the parameter types
+	 * @throws InvocationTargetException - thrown when the invoked method generates an exception
+	 */
+	public Object invoke(MethodInvoker invoker, Object receiver, Object[] parameters) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+		Key key = new Key(invoker, parameters);
+		CachedResult cached;
+		synchronized (this) {
+			cached = results.get(key);
+			if (cached != null) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+
+		if (cached != null) {
+			BuiltInTester.replay(cached.recording);
+			return cached.value;
+		}
+
+		Object value;
+		Recording recording;
+		BuiltInTester.startRecording();
+		try {
+			value = invoker.invoke(receiver, parameters);
+		} finally {
+			recording = BuiltInTester.stopRecording();
+		}
+
+		// parameters are copied because the caller may reuse the array
+		synchronized (this) {
+			results.put(new Key(invoker, parameters.clone()), new CachedResult(value, recording));
+		}
+		return value;
+	}
+
+
+	/**
+	 * Method used to describe how well the cache performed
+	 * @return - String with hit, miss and eviction counts
+	 */
+	public synchronized String getStatistics() {
+		long calls = hits + misses;
+		return "MEMO: " + hits + " hits, " + misses + " misses (" + String.format("%.1f", calls == 0 ? 0.0 : 100.0 * hits / calls)
+				+ "% hit rate), " + evictions + " evictions, " + results.size() + "/" + maxEntries + " entries";
+	}
+
+
+	/**
+	 * Class representing a method together with parameter values, arrays are compared by contents
+	 */
+	private static final class Key {
+
+		private final Method method;
+		private final Object[] parameters;
+		private final int hash;
+
+		Key(MethodInvoker invoker, Object[] parameters) {
+			this.method = invoker.getMethod();
+			this.parameters = parameters;
+			this.hash = method.hashCode() * 31 + Arrays.deepHashCode(parameters);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return method.equals(other.method) && Arrays.deepEquals(parameters, other.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+
+	/**
+	 * Class representing a cached return value and the log entries its call created
+	 */
+	private static final class CachedResult {
+
+		private final Object value;
+		private final Recording recording;
+
+		CachedResult(Object value, Recording recording) {
+			this.value = value;
+			this.recording = recording;
+		}
+	}
+}
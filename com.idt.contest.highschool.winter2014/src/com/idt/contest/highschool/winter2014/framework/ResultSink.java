@@ -0,0 +1,114 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.lang.reflect.Array;
+
+/**
+ * Abstract class representing a format that invocation results and errors are written in.
+ * A sink formats each record into a single write to System.out, so records are never
+ * split when System.out is captured per thread, and where the bytes end up (console,
+ * buffer or file) is decided by whoever installed System.out. Sinks keep no state
+ * between records and may be used from several threads at once
+ */
+public abstract class ResultSink {
+
+
+	/**
+	 * Method used to create the sink for a format name
+	 * @param format - one of the FrameworkConstants.*_FORMAT names
+	 * @return - ResultSink for the format, null if the name is unknown
+	 */
+	public static ResultSink forFormat(String format) {
+		if (FrameworkConstants.TEXT_FORMAT.equals(format)) {
+			return new TextResultSink();
+		} else if (FrameworkConstants.CSV_FORMAT.equals(format)) {
+			return new CsvResultSink();
+		} else if (FrameworkConstants.JSON_FORMAT.equals(format)) {
+			return new JsonResultSink();
+		} else if (FrameworkConstants.BINARY_FORMAT.equals(format)) {
+			return new BinaryResultSink();
+		} else {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Method called once before the first record, e.g. to write a header
+	 */
+	public void start() {
+	}
+
+
+	/**
+	 * Method called right before a method is invoked, before anything the method prints itself
+	 * @param className - String name of the class as requested
+	 * @param methodName - String name of the method as requested
+	 * @param parameters - converted parameter values
+	 */
+	public void invoking(String className, String methodName, Object[] parameters) {
+	}
+
+
+	/**
+	 * Method used to write the result of a successful invocation
+	 * @param className - String name of the class as requested, null if not known
+	 * @param methodName - String name of the method as requested, null if not known
+	 * @param parameters - converted parameter values
+	 * @param returnType - declared return type of the method
+	 * @param result - Object returned by the method
+	 */
+	public abstract void result(String className, String methodName, Object[] parameters, Class<?> returnType, Object result);
+
+
+	/**
+	 * Method used to write an error that stopped a method from being resolved or invoked
+	 * @param className - String name of the class as requested, null if not known
+	 * @param methodName - String name of the method as requested, null if not known
+	 * @param parameters - converted parameter values, null if the error happened before conversion finished
+	 * @param category - one of the FrameworkConstants.*_EXCEPTION descriptions
+	 * @param message - message of the exception, may be null
+	 */
+	public abstract void error(String className, String methodName, Object[] parameters, String category, String message);
+
+
+	/**
+	 * Method used to write a message that does not belong to an invocation, e.g. a malformed line
+	 * @param text - String message
+	 */
+	public abstract void message(String text);
+
+
+	/**
+	 * Method called once after the last record, e.g. to write a trailer
+	 */
+	public void finish() {
+	}
+
+
+	/**
+	 * Method used to append the elements of an array separated by a delimiter
+	 * @param builder - builder to append to
+	 * @param array - array of any component type
+	 * @param delimiter - String placed between elements
+	 */
+	protected static void appendElements(StringBuilder builder, Object array, String delimiter) {
+		if (array instanceof int[]) {
+			// the common case, appended without boxing each element
+			int[] values = (int[]) array;
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					builder.append(delimiter);
+				}
+				builder.append(values[i]);
+			}
+			return;
+		}
+		int length = Array.getLength(array);
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				builder.append(delimiter);
+			}
+			builder.append(Array.get(array, i));
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that represents the server mode of this application. Server mode keeps the
+ * application running and accepts clients on a local socket, so a pipeline running
+ * many small scripts pays for JVM startup, class loading and warm up only once.
+ * <p>
+ * A client sends lines of text. A batch script line is run right away, a line
+ * "@run PATH" runs a whole batch script or plan in the server's working directory,
+ * and "@shutdown" stops the server once every connected client has disconnected.
+ * Results are streamed back on the same connection in the chosen result format,
+ * flushed after every request. A line longer than FrameworkConstants.SERVER_MAX_LINE_LENGTH
+ * ends the connection. Clients can only invoke the classes of the InvocationRegistry,
+ * and every file a line names, with "@run" or in a bulk directive, must be in the
+ * server's working directory.
+ * <p>
+ * Each client is served on its own thread with its own output and its own
+ * instances of the classes being invoked, up to FrameworkConstants.SERVER_MAX_CLIENTS
+ * clients at once. Resolved methods and cached results are shared, so later clients
+ * start warm
+ */
+public class ServerMode extends Mode {
+
+	/**
+	 * port to listen on, 0 to let the system choose a free port
+	 */
+	private final int port;
+
+	/**
+	 * routes what each client thread prints to that client's connection
+	 */
+	private OutputCapture capture;
+
+	/**
+	 * socket clients connect to
+	 */
+	private ServerSocket serverSocket;
+
+
+	/**
+	 * public constructor for ServerMode
+	 * @param port - port on the loopback interface to listen on, 0 for any free port
+	 * @param registry - registry of the classes and methods that can be invoked
+	 */
+	public ServerMode(int port, InvocationRegistry registry) {
+		super(registry);
+		this.port = port;
+		// clients must not reach classes outside the registry by naming them
+		this.invocationCache = new InvocationCache(registry, true);
+	}
+
+
+	/**
+	 * Method that accepts clients until a client asks the server to shut down
+	 */
+	public void execute() {
+		ExecutorService clients = Executors.newFixedThreadPool(FrameworkConstants.SERVER_MAX_CLIENTS);
+		// a client is only accepted once a thread is free to serve it
+		final Semaphore freeThreads = new Semaphore(FrameworkConstants.SERVER_MAX_CLIENTS);
+		capture = new OutputCapture(System.out);
+		capture.install();
+		try {
+			fileDirectory = new File("").getCanonicalFile();
+			serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+			System.err.println("SERVER: listening on " + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort());
+
+			while (true) {
+				freeThreads.acquireUninterruptibly();
+				final Socket client;
+				try {
+					client = serverSocket.accept();
+				} catch (IOException e) {
+					freeThreads.release();
+					throw e;
+				}
+				clients.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							serve(client);
+						} finally {
+							freeThreads.release();
+						}
+					}
+				});
+			}
+		} catch (SocketException e) {
+			// the socket was closed by a shutdown request
+		} catch (IOException e) {
+			System.err.println("SERVER: " + e.getMessage());
+		} finally {
+			clients.shutdown();
+			awaitClients(clients);
+			capture.uninstall();
+		}
+
+		printRunStatistics();
+	}
+
+
+	/**
+	 * Method used to wait until every connected client has disconnected
+	 * @param clients - executor serving the clients
+	 */
+	private void awaitClients(ExecutorService clients) {
+		try {
+			while (!clients.awaitTermination(1, TimeUnit.MINUTES)) {
+				System.err.println("SERVER: waiting for clients to disconnect");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Method used to serve one client until it disconnects
+	 * @param client - connection to the client
+	 */
+	private void serve(Socket client) {
+		BatchMode session = new BatchMode(null, this);
+		BatchLine line = new BatchLine();
+		try {
+			InputStream in = new BufferedInputStream(client.getInputStream());
+			OutputStream out = new BufferedOutputStream(client.getOutputStream(), FrameworkConstants.OUTPUT_BUFFER_SIZE);
+			capture.route(out);
+			resultSink.start();
+			out.flush();
+
+			byte[] request;
+			while ((request = readLine(in)) != null) {
+				if (startsWith(request, FrameworkConstants.SERVER_SHUTDOWN_COMMAND)) {
+					serverSocket.close();
+				} else if (startsWith(request, FrameworkConstants.SERVER_RUN_COMMAND)) {
+					int offset = FrameworkConstants.SERVER_RUN_COMMAND.length();
+					String path = new String(request, offset, request.length - offset, StandardCharsets.UTF_8);
+					if (isAllowedFile(path)) {
+						new BatchMode(path, this).executeBatch();
+					} else {
+						resultSink.message(FrameworkConstants.SERVER_RUN_ERROR + path);
+					}
+				} else {
+					line.set(ByteBuffer.wrap(request), 0, request.length);
+					session.processLine(line);
+				}
+				out.flush();
+			}
+
+			resultSink.finish();
+			out.flush();
+		} catch (IOException | RuntimeException e) {
+			// one client failing must not affect the others
+			System.err.println("SERVER: client " + client.getRemoteSocketAddress() + " failed - " + e);
+		} finally {
+			capture.unroute();
+			invocationCache.releaseReceivers();
+			try {
+				client.close();
+			} catch (IOException e) {
+				// the client is gone either way
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to read one line sent by a client, ended by \n, \r\n or the end of the stream
+	 * @param in - stream to read from
+	 * @return - bytes of the line without the line terminator, null at the end of the stream
+	 * @throws IOException - thrown when the connection fails or the line is longer than
+	 * FrameworkConstants.SERVER_MAX_LINE_LENGTH
+	 */
+	private static byte[] readLine(InputStream in) throws IOException {
+		byte[] bytes = new byte[128];
+		int length = 0;
+		int b;
+		while ((b = in.read()) != -1 && b != '\n') {
+			if (length == FrameworkConstants.SERVER_MAX_LINE_LENGTH + 1) {
+				// one more byte is kept for a \r ending a line of the maximum length
+				throw new IOException("line longer than " + FrameworkConstants.SERVER_MAX_LINE_LENGTH + " bytes");
+			}
+			if (length == bytes.length) {
+				bytes = Arrays.copyOf(bytes, length * 2);
+			}
+			bytes[length++] = (byte) b;
+		}
+		if (b == -1 && length == 0) {
+			return null;
+		}
+		if (length > 0 && bytes[length - 1] == '\r') {
+			length--;
+		}
+		return Arrays.copyOf(bytes, length);
+	}
+
+
+	/**
+	 * Method used to check whether a line starts with an ASCII command
+	 * @param line - bytes of the line
+	 * @param command - String command
+	 * @return - true if the line starts with the command
+	 */
+	private static boolean startsWith(byte[] line, String command) {
+		if (line.length < command.length()) {
+			return false;
+		}
+		for (int i = 0; i < command.length(); i++) {
+			if (line[i] != command.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,209 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ohs1.winter2013.BuiltInTester;
+
+/**
+ * Class that represents the sharded batch mode of this application. The batch script
+ * is split into byte ranges, shards, and each shard is run by a worker: an ordinary
+ * application process started with "--range START:END", which runs only the lines
+ * starting in its range, and "--log-export FILE", which saves its test log entries
+ * instead of writing a log page. Each worker runs in its own JVM, so a script too big
+ * for one JVM can be spread over several.
+ * <p>
+ * Once a worker has finished, its results and log entries are merged in shard order
+ * while later shards are still running. The output and the test log are the same as
+ * running the whole script in one process. Workers only need the script and the work
+ * directory, which could be shared storage reached from other machines
+ */
+public class ShardMode extends BatchMode {
+
+	/**
+	 * number of shards the script is split into
+	 */
+	private final int shards;
+
+	/**
+	 * command line options passed on to every worker
+	 */
+	private final List<String> workerOptions;
+
+
+	/**
+	 * public constructor for ShardMode
+	 * @param _filepath - path of the batch script to run
+	 * @param registry - registry of the classes and methods that can be invoked
+	 * @param shards - number of worker processes to split the script between
+	 * @param workerOptions - command line options every worker is started with, e.g. the result format
+	 */
+	public ShardMode(String _filepath, InvocationRegistry registry, int shards, List<String> workerOptions) {
+		super(_filepath, registry);
+		this.shards = Math.max(1, shards);
+		this.workerOptions = new ArrayList<String>(workerOptions);
+	}
+
+
+	/**
+	 * Method used to ignore checkpoints, which would only cover the merged output of whole shards
+	 * @param interval - number of lines run between checkpoints
+	 * @param resume - true to resume from the last checkpoint saved
+	 */
+	@Override
+	public void setCheckpoint(int interval, boolean resume) {
+		System.err.println("SHARD: sharded runs are not checkpointed, the script is run from the beginning");
+	}
+
+
+	/**
+	 * Method used to split the script into shards, run them and merge what they produce
+	 */
+	@Override
+	void executeBatch() {
+		File script = new File(this.filepath);
+		if (!script.isFile()) {
+			resultSink.message(FrameworkConstants.FILE_NOT_FOUND_EXCEPTION);
+			return;
+		}
+		if (BatchPlan.isPlan(script)) {
+			// a plan is binary and cannot be split at line boundaries
+			System.err.println("SHARD: " + this.filepath + " is a compiled plan, running it in this process");
+			super.executeBatch();
+			return;
+		}
+
+		File workDirectory = null;
+		Process[] workers = new Process[this.shards];
+		long startTime = System.nanoTime();
+		try {
+			workDirectory = Files.createTempDirectory("idt-shards").toFile();
+
+			// ranges that meet split lines consistently, see BatchScriptReader
+			long size = script.length();
+			for (int shard = 0; shard < this.shards; shard++) {
+				long start = size * shard / this.shards;
+				long end = size * (shard + 1) / this.shards;
+				workers[shard] = startWorker(script, shard, start, end, workDirectory);
+			}
+
+			for (int shard = 0; shard < this.shards; shard++) {
+				int exitCode = workers[shard].waitFor();
+				merge(shard, workDirectory);
+				if (exitCode != 0) {
+					// like a failure that stops a single process run, later lines are not written
+					System.err.println("SHARD: worker " + shard + " failed with exit code " + exitCode + ", later shards are skipped");
+					break;
+				}
+			}
+
+			double seconds = (System.nanoTime() - startTime) / 1e9;
+			System.err.println("SHARD: ran " + this.shards + " shards of " + this.filepath + " in " + String.format("%.3f", seconds) + " s");
+
+		} catch (IOException e) {
+			resultSink.message(FrameworkConstants.FILE_READ_EXCEPTION);
+			resultSink.message(e.getMessage() + "\n");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (Process worker : workers) {
+				if (worker != null) {
+					worker.destroy();
+				}
+			}
+			if (workDirectory != null) {
+				for (File file : workDirectory.listFiles()) {
+					file.delete();
+				}
+				workDirectory.delete();
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to start the worker process of one shard
+	 * @param script - batch script being split
+	 * @param shard - number of the shard, from 0
+	 * @param start - file offset where the shard starts
+	 * @param end - file offset where the shard ends
+	 * @param workDirectory - directory the worker writes its files to
+	 * @return - Process of the worker
+	 * @throws IOException - thrown when the process cannot be started
+	 */
+	private Process startWorker(File script, int shard, long start, long end, File workDirectory) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		// workers write text the same way as this process
+		command.add("-Dfile.encoding=" + System.getProperty("file.encoding"));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(FrameworkConstants.MAIN_CLASS);
+		command.addAll(this.workerOptions);
+		command.add(FrameworkConstants.RANGE_OPTION);
+		command.add(start + ":" + end);
+		command.add(FrameworkConstants.LOG_EXPORT_OPTION);
+		command.add(shardFile(workDirectory, shard, ".log").getPath());
+		command.add(script.getPath());
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectOutput(shardFile(workDirectory, shard, ".out"));
+		builder.redirectError(shardFile(workDirectory, shard, ".err"));
+		return builder.start();
+	}
+
+
+	/**
+	 * Method used to merge the output, messages and log entries of a finished worker
+	 * @param shard - number of the shard, from 0
+	 * @param workDirectory - directory the worker wrote its files to
+	 * @throws IOException - thrown when the files of the worker cannot be read
+	 */
+	private void merge(int shard, File workDirectory) throws IOException {
+		copy(shardFile(workDirectory, shard, ".out"), System.out);
+		copy(shardFile(workDirectory, shard, ".err"), System.err);
+
+		File log = shardFile(workDirectory, shard, ".log");
+		if (log.exists()) {
+			BuiltInTester.importLog(log);
+		}
+	}
+
+
+	/**
+	 * Method used to copy a file to a stream
+	 * @param file - file to copy, nothing is copied if it does not exist
+	 * @param out - stream to copy to
+	 * @throws IOException - thrown when the file cannot be read
+	 */
+	private static void copy(File file, PrintStream out) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+	}
+
+
+	/**
+	 * Method used to name a file of a shard in the work directory
+	 * @param workDirectory - directory the worker writes its files to
+	 * @param shard - number of the shard, from 0
+	 * @param extension - String extension telling the files of a shard apart
+	 * @return - File of the shard
+	 */
+	private static File shardFile(File workDirectory, int shard, String extension) {
+		return new File(workDirectory, "shard" + shard + extension);
+	}
+}
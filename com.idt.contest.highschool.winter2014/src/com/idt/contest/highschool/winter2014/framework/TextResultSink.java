@@ -0,0 +1,59 @@
+package com.idt.contest.highschool.winter2014.framework;
+
+/**
+ * Class writing results as the human readable text batch and menu mode have always
+ * printed: an INVOKE line, then a RESULT or ERROR block
+ */
+public class TextResultSink extends ResultSink {
+
+	/**
+	 * line separator used where the text was historically printed with println
+	 */
+	private static final String NEWLINE = System.lineSeparator();
+
+
+	@Override
+	public void invoking(String className, String methodName, Object[] parameters) {
+		StringBuilder builder = new StringBuilder(64);
+		builder.append("INVOKE: ").append(className).append('/').append(methodName);
+		if (parameters.length > 0) {
+			builder.append(" with parameter values [");
+			for (int paramIndex = 0; paramIndex < parameters.length; paramIndex++) {
+				if (paramIndex > 0) {
+					builder.append(',');
+				}
+				builder.append(parameters[paramIndex]);
+			}
+			builder.append("]\n");
+		}
+		System.out.print(builder);
+	}
+
+
+	@Override
+	public void result(String className, String methodName, Object[] parameters, Class<?> returnType, Object result) {
+		StringBuilder builder = new StringBuilder(64);
+		builder.append("\nRESULT: ");
+		if (returnType.isArray() && result == null) {
+			builder.append(FrameworkConstants.NULL_POINTER_EXCEPTION).append(NEWLINE);
+		} else if (returnType.isArray()) {
+			appendElements(builder, result, ", ");
+			builder.append('\n').append(NEWLINE);
+		} else {
+			builder.append(result).append('\n').append(NEWLINE);
+		}
+		System.out.print(builder);
+	}
+
+
+	@Override
+	public void error(String className, String methodName, Object[] parameters, String category, String message) {
+		System.out.print(FrameworkConstants.MENU_OPTION_FAILED + " - " + category + NEWLINE + message + "\n" + NEWLINE);
+	}
+
+
+	@Override
+	public void message(String text) {
+		System.out.print(text + NEWLINE);
+	}
+}
@@ -1,15 +1,27 @@
 package org.ohs1.winter2013;
 
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.text.DecimalFormat;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The <code>BuiltInTester</code> API is intended for testing the logic of
@@ -23,6 +35,24 @@ import java.util.Queue;
  * <code>BuiltInTester</code> class is never used if the testing system is not
  * enabled.
  * <p>
+ * Expectations and log messages belong to the method that created them. The
+ * method is found on the stack unless it passes a {@link CallSite} naming
+ * itself, which is much cheaper when the tester is enabled.
+ * <p>
+ * Methods may be tested from several threads at once. Each thread keeps its
+ * own expectations, so an expectation is only met by a log call made on the
+ * thread that set it, and log entries are collected in a lock-free queue that
+ * the output log is written from, so threads never wait for each other.
+ * <p>
+ * Code that is always compiled with its test calls costs nothing when they
+ * are turned off. Expectations on a single parameter or two doubles and log
+ * messages made of a prefix and a value have overloads that take primitives,
+ * so nothing is boxed, concatenated or allocated unless the tester is
+ * enabled, and {@link #isEnabled()} guards anything else. Starting the
+ * program with <code>-Dorg.ohs1.winter2013.BuiltInTester.disabled=true</code>
+ * makes {@link #AVAILABLE} false, the JIT then removes the test calls
+ * entirely.
+ * <p>
  * The <code>BuiltInTester</code> system is enabled by calling the
  * {@link #enable(String,String)} and passing to it the name of the program and
  * the name of the output file as parameters. The output file name will be the
@@ -34,9 +64,27 @@ import java.util.Queue;
  */
 public class BuiltInTester {
 
+	/**
+	 * Whether the tester can be enabled in this run, false if the system
+	 * property <code>org.ohs1.winter2013.BuiltInTester.disabled</code> is
+	 * true. Being a constant, every test call checking it first is compiled
+	 * away when it is false.
+	 */
+	public static final boolean AVAILABLE = !Boolean.getBoolean("org.ohs1.winter2013.BuiltInTester.disabled");
+
+	// First int of a file written by exportLog(File)
+	private static final int EXPORT_MAGIC = 0x4249544c;
+
+	// Number of queued entries at which the thread queuing the last one moves
+	// them to the spill, when the log is streamed
+	private static final int SPILL_BATCH_SIZE = 256;
+
 	// Singleton instance that is initialized only if enable(String,String) is
 	// called
-	private static BuiltInTester instance;
+	private static volatile BuiltInTester instance;
+
+	// Instance set aside by suspend() until resume() is called
+	private static volatile BuiltInTester suspended;
 
 	// Used as the file directory for all output logs
 	private String programName;
@@ -45,14 +93,44 @@ public class BuiltInTester {
 	// outputFileName000.html where 000 are incremented with each new log file
 	private String outputFileName;
 
-	// The expectations currently being expected
-	private List<Expectation> expectations;
+	// The expectations each thread is currently expecting, by the name of
+	// their method and in the order they were added
+	private final ThreadLocal<Map<String, Deque<Expectation>>> expectations = new ThreadLocal<Map<String, Deque<Expectation>>>() {
+		@Override
+		protected Map<String, Deque<Expectation>> initialValue() {
+			return new HashMap<>();
+		}
+	};
 
-	// A queue storing the log entries in the order that they were created
-	private Queue<LogEntry> logEntries;
-	
-	// A queue to store additional entries if they were too big to fit in the table
-	private Queue<String> additionalEntries;
+	// A queue storing the log entries of every thread in the order that they
+	// were created, added to without locking
+	private final Queue<LogEntry> logEntries = new ConcurrentLinkedQueue<>();
+
+	// The writers of the output log, null for the html output log alone
+	private volatile List<ReportWriter> reportWriters;
+
+	// Numbers the output logs and reports and removes the old ones
+	private final ReportFiles reportFiles = new ReportFiles();
+
+	// Whether the log is streamed, see streamLog()
+	private volatile boolean streamed;
+
+	// The log entries written to disk so far when the log is streamed, in the
+	// order they were created and before those still queued, null until
+	// entries are written to it and once they are passed to the output log
+	private volatile LogSpill spill;
+
+	// Held by the thread moving queued entries to the spill
+	private final ReentrantLock spillLock = new ReentrantLock();
+
+	// The number of entries queued since entries were last moved to the spill
+	private final AtomicInteger queuedEntries = new AtomicInteger();
+
+	// Set once writing to the spill failed, entries then stay in memory
+	private volatile boolean spillFailed;
+
+	// The recording each thread is currently adding its log entries to, if any
+	private final ThreadLocal<Recording> recordings = new ThreadLocal<>();
 
 	/**
 	 * Enables the BuiltInTester API. All BuiltInTester methods after the enable
@@ -65,16 +143,90 @@ public class BuiltInTester {
 	 *            Name of the output files.
 	 */
 	public static void enable(String programName, String outputFileName) {
+		if (!AVAILABLE) {
+			return;
+		}
 		instance = new BuiltInTester();
 		instance.programName = programName;
 		instance.outputFileName = outputFileName;
 	}
 
-	// Initializes the lists that store the logs and expected values of methods
+	/**
+	 * Disables the BuiltInTester API again. Expectations and log entries that
+	 * were not written by {@link #outputLog()} are discarded. Lets a program
+	 * that runs the same code with and without testing, e.g. a benchmark,
+	 * switch between the two.
+	 */
+	public static void disable() {
+		instance = null;
+	}
+
+	/**
+	 * Returns whether the BuiltInTester methods currently do their tasks.
+	 * Should guard building an expected or logged message, or parameters, that
+	 * costs something and is not needed if they do not.
+	 * 
+	 * @return True if enabled and not suspended.
+	 */
+	public static boolean isEnabled() {
+		return AVAILABLE && instance != null;
+	}
+
+	/**
+	 * Stops every BuiltInTester method from doing its task until
+	 * {@link #resume()} is called, keeping the expectations and log entries
+	 * created so far. Lets a program run code it has already tested again,
+	 * e.g. to time it, without adding to the output log.
+	 */
+	public static void suspend() {
+		if (instance != null) {
+			suspended = instance;
+			instance = null;
+		}
+	}
+
+	/**
+	 * Lets the BuiltInTester methods do their tasks again after
+	 * {@link #suspend()}, with the expectations and log entries it kept.
+	 */
+	public static void resume() {
+		if (suspended != null) {
+			instance = suspended;
+			suspended = null;
+		}
+	}
+
+	// Only created by enable(String,String)
 	private BuiltInTester() {
-		this.expectations = new ArrayList<>();
-		this.logEntries = new LinkedList<>();
-		this.additionalEntries = new LinkedList<>();
+	}
+
+	/**
+	 * Writes log entries to disk as they are created instead of keeping them
+	 * in memory until {@link #outputLog()}, which then assembles the output
+	 * log from the files. A long running program uses the same memory however
+	 * many entries it creates, and the output log is the same. Should be
+	 * called right after {@link #enable(String,String)}.
+	 * 
+	 * @throws IOException
+	 *             If the file the entries are written to cannot be created.
+	 */
+	public static void streamLog() throws IOException {
+		if (instance != null) {
+			instance.streamLogInner();
+		}
+	}
+
+	// Called by the streamLog method only if enabled
+	private synchronized void streamLogInner() throws IOException {
+		spillLock.lock();
+		try {
+			if (spill == null) {
+				spill = new LogSpill(logDirectory());
+			}
+			streamed = true;
+		} finally {
+			spillLock.unlock();
+		}
 	}
 
 	/**
@@ -93,16 +245,189 @@ public class BuiltInTester {
 	 *            equals the value.
 	 */
 	public static void expecting(String logMessage, Object... parameters) {
-		if (instance != null) {
-			instance.expectingInner(logMessage, parameters);
+		if (AVAILABLE && instance != null) {
+			instance.expectingInner(null, logMessage, parameters);
+		}
+	}
+
+	/**
+	 * Same as {@link #expecting(String, Object...)} for the method named by
+	 * <code>site</code>, which does not have to be looked up on the stack.
+	 * 
+	 * @param site
+	 *            The call site of the method setting the expectation.
+	 * @param logMessage
+	 *            The expected message given the parameters.
+	 * @param parameters
+	 *            A reference to the parameter itself followed by the value of
+	 *            the parameter to expect the log message if the reference
+	 *            equals the value.
+	 */
+	public static void expecting(CallSite site, String logMessage, Object... parameters) {
+		if (AVAILABLE && instance != null) {
+			instance.expectingInner(site, logMessage, parameters);
+		}
+	}
+
+	/**
+	 * Same as {@link #expecting(CallSite, String, Object...)} for a single
+	 * integer parameter, which is only boxed if it has the value.
+	 * 
+	 * @param site
+	 *            The call site of the method setting the expectation.
+	 * @param logMessage
+	 *            The expected message given the parameter.
+	 * @param parameter
+	 *            The parameter itself.
+	 * @param value
+	 *            The value of the parameter to expect the log message for.
+	 */
+	public static void expecting(CallSite site, String logMessage, long parameter, long value) {
+		if (AVAILABLE && instance != null && parameter == value) {
+			instance.addExpectation(site.methodName, logMessage, Collections.<Object>singletonList(parameter));
+		}
+	}
+
+	/**
+	 * Same as {@link #expecting(CallSite, String, Object...)} for a single
+	 * floating point parameter, which is only boxed if it has the value. The
+	 * values are compared with <code>==</code>, as boxed floating point
+	 * parameters are, so 0.0 matches -0.0 and NaN matches nothing.
+	 * 
+	 * @param site
+	 *            The call site of the method setting the expectation.
+	 * @param logMessage
+	 *            The expected message given the parameter.
+	 * @param parameter
+	 *            The parameter itself.
+	 * @param value
+	 *            The value of the parameter to expect the log message for.
+	 */
+	public static void expecting(CallSite site, String logMessage, double parameter, double value) {
+		if (AVAILABLE && instance != null && parameter == value) {
+			instance.addExpectation(site.methodName, logMessage, Collections.<Object>singletonList(parameter));
+		}
+	}
+
+	/**
+	 * Same as {@link #expecting(CallSite, String, double, double)} for a
+	 * float parameter, which is logged as a float like it is by
+	 * {@link #expecting(CallSite, String, Object...)}.
+	 * 
+	 * @param site
+	 *            The call site of the method setting the expectation.
+	 * @param logMessage
+	 *            The expected message given the parameter.
+	 * @param parameter
+	 *            The parameter itself.
+	 * @param value
+	 *            The value of the parameter to expect the log message for.
+	 */
+	public static void expecting(CallSite site, String logMessage, float parameter, double value) {
+		if (AVAILABLE && instance != null && parameter == value) {
+			instance.addExpectation(site.methodName, logMessage, Collections.<Object>singletonList(parameter));
+		}
+	}
+
+	/**
+	 * Same as {@link #expecting(CallSite, String, Object...)} for two floating
+	 * point parameters, which are only boxed if both have their value.
+	 * 
+	 * @param site
+	 *            The call site of the method setting the expectation.
+	 * @param logMessage
+	 *            The expected message given the parameters.
+	 * @param parameter1
+	 *            The first parameter itself.
+	 * @param value1
+	 *            The value of the first parameter to expect the log message
+	 *            for.
+	 * @param parameter2
+	 *            The second parameter itself.
+	 * @param value2
+	 *            The value of the second parameter to expect the log message
+	 *            for.
+	 */
+	public static void expecting(CallSite site, String logMessage, double parameter1, double value1, double parameter2, double value2) {
+		if (AVAILABLE && instance != null && parameter1 == value1 && parameter2 == value2) {
+			instance.addExpectation(site.methodName, logMessage, Arrays.<Object>asList(parameter1, parameter2));
 		}
 	}
 
+	/**
+	 * Same as
+	 * {@link #expecting(CallSite, String, double, double, double, double)}
+	 * for two float parameters, which are logged as floats like they are by
+	 * {@link #expecting(CallSite, String, Object...)}.
+	 * 
+	 * @param site
+	 *            The call site of the method setting the expectation.
+	 * @param logMessage
+	 *            The expected message given the parameters.
+	 * @param parameter1
+	 *            The first parameter itself.
+	 * @param value1
+	 *            The value of the first parameter to expect the log message
+	 *            for.
+	 * @param parameter2
+	 *            The second parameter itself.
+	 * @param value2
+	 *            The value of the second parameter to expect the log message
+	 *            for.
+	 */
+	public static void expecting(CallSite site, String logMessage, float parameter1, double value1, float parameter2, double value2) {
+		if (AVAILABLE && instance != null && parameter1 == value1 && parameter2 == value2) {
+			instance.addExpectation(site.methodName, logMessage, Arrays.<Object>asList(parameter1, parameter2));
+		}
+	}
+
+	/**
+	 * Same as {@link #expecting(CallSite, String, Object...)} for a single
+	 * parameter, without the array of parameters.
+	 * 
+	 * @param site
+	 *            The call site of the method setting the expectation.
+	 * @param logMessage
+	 *            The expected message given the parameter.
+	 * @param parameter
+	 *            The parameter itself.
+	 * @param value
+	 *            The value of the parameter to expect the log message for.
+	 */
+	public static void expecting(CallSite site, String logMessage, Object parameter, Object value) {
+		if (AVAILABLE && instance != null && instance.parameterEquals(parameter, value)) {
+			instance.addExpectation(site.methodName, logMessage, Collections.singletonList(parameter));
+		}
+	}
+
+	/**
+	 * Creates the call site of a method, see {@link CallSite}.
+	 * 
+	 * @param owner
+	 *            The class declaring the method.
+	 * @param methodName
+	 *            The name of the method.
+	 * @return The call site to pass to expecting and log.
+	 * @throws IllegalArgumentException
+	 *             If <code>owner</code> declares no method named
+	 *             <code>methodName</code>, since its expectations would never
+	 *             be met.
+	 */
+	public static CallSite callSite(Class<?> owner, String methodName) {
+		for (Method method : owner.getDeclaredMethods()) {
+			if (method.getName().equals(methodName)) {
+				return new CallSite(owner.getName() + "." + methodName);
+			}
+		}
+		throw new IllegalArgumentException(owner.getName() + " declares no method named " + methodName);
+	}
+
 	/*
-	 * Called by the expecting method and is passed the same parameters only if
-	 * enabled
+	 * Called by the expecting methods and is passed the same parameters only if
+	 * enabled, site is null if the method has to be found on the stack. The
+	 * expectation is added to those of the current thread, so no lock is needed
 	 */
-	private void expectingInner(String logMessage, Object... parameters) {
+	private void expectingInner(CallSite site, String logMessage, Object... parameters) {
 		// Stops if the expectation should not be logged (if some parameter
 	    // condition is not met)
 		if (parameters.length % 2 != 0) {
@@ -118,8 +443,8 @@ public class BuiltInTester {
 				return;
 		}
 
-		// Get method name from stack trace.
-		String methodName = getCurrentMethodName();
+		// Get method name from the call site or stack trace.
+		String methodName = (site != null) ? site.methodName : getCurrentMethodName();
 
 		// Construct a list of the parameter values
 		List<Object> params = new ArrayList<>();
@@ -128,7 +453,19 @@ public class BuiltInTester {
 		}
 
 		// Since the parameters have their desired values, log the expectation
-		expectations.add(new Expectation(methodName, logMessage, params));
+		addExpectation(methodName, logMessage, params);
+	}
+
+	// Adds an expectation whose parameters have their desired values to those
+	// of the current thread
+	private void addExpectation(String methodName, String logMessage, List<?> params) {
+		Map<String, Deque<Expectation>> threadExpectations = expectations.get();
+		Deque<Expectation> pending = threadExpectations.get(methodName);
+		if (pending == null) {
+			pending = new ArrayDeque<>();
+			threadExpectations.put(methodName, pending);
+		}
+		pending.add(new Expectation(methodName, logMessage, params));
 	}
 
 	/**
@@ -140,8 +477,90 @@ public class BuiltInTester {
 	 *            return statement.
 	 */
 	public static void log(String message) {
-		if (instance != null) {
-			instance.logInner(message);
+		if (AVAILABLE && instance != null) {
+			instance.logInner(null, message);
+		}
+	}
+
+	/**
+	 * Same as {@link #log(String)} for the method named by <code>site</code>,
+	 * which does not have to be looked up on the stack.
+	 * 
+	 * @param site
+	 *            The call site of the method logging the message.
+	 * @param message
+	 *            The message that gets logged upon return by that specific
+	 *            return statement.
+	 */
+	public static void log(CallSite site, String message) {
+		if (AVAILABLE && instance != null) {
+			instance.logInner(site, message);
+		}
+	}
+
+	/**
+	 * Same as {@link #log(CallSite, String)} for the message
+	 * <code>prefix + value</code>, which is only built if enabled.
+	 * 
+	 * @param site
+	 *            The call site of the method logging the message.
+	 * @param prefix
+	 *            The start of the message.
+	 * @param value
+	 *            The value ending the message.
+	 */
+	public static void log(CallSite site, String prefix, long value) {
+		if (AVAILABLE && instance != null) {
+			instance.logInner(site, prefix + value);
+		}
+	}
+
+	/**
+	 * Same as {@link #log(CallSite, String, long)} for a float value.
+	 * 
+	 * @param site
+	 *            The call site of the method logging the message.
+	 * @param prefix
+	 *            The start of the message.
+	 * @param value
+	 *            The value ending the message.
+	 */
+	public static void log(CallSite site, String prefix, float value) {
+		if (AVAILABLE && instance != null) {
+			instance.logInner(site, prefix + value);
+		}
+	}
+
+	/**
+	 * Same as {@link #log(CallSite, String, long)} for a double value.
+	 * 
+	 * @param site
+	 *            The call site of the method logging the message.
+	 * @param prefix
+	 *            The start of the message.
+	 * @param value
+	 *            The value ending the message.
+	 */
+	public static void log(CallSite site, String prefix, double value) {
+		if (AVAILABLE && instance != null) {
+			instance.logInner(site, prefix + value);
+		}
+	}
+
+	/**
+	 * Same as {@link #log(CallSite, String, long)} for any other value, whose
+	 * string is only taken if enabled.
+	 * 
+	 * @param site
+	 *            The call site of the method logging the message.
+	 * @param prefix
+	 *            The start of the message.
+	 * @param value
+	 *            The value ending the message.
+	 */
+	public static void log(CallSite site, String prefix, Object value) {
+		if (AVAILABLE && instance != null) {
+			instance.logInner(site, prefix + value);
 		}
 	}
 	
@@ -155,25 +574,169 @@ public class BuiltInTester {
 		return ste.getClassName() + "." + ste.getMethodName();
 	}
 
-	// Called by the log method only if enabled
-	private void logInner(String message) {
+	// Called by the log methods only if enabled, matches the expectations of
+	// the current thread like expectingInner adds them
+	private void logInner(CallSite site, String message) {
 		//The name of the current method
-		String currentMethodName = getCurrentMethodName();
+		String currentMethodName = (site != null) ? site.methodName : getCurrentMethodName();
 		
 		//Evaluate the correctness of the expectations from the current method (in order of being added)
-		int i = 0;
-		while (i < expectations.size()) {
-			//Check to see if the expectation was made in this method
-			if (expectations.get(i).getMethodName().equals(currentMethodName)) {
-				//Add it to the log entries and get rid of it
-				logEntries.add(new LogEntry(message, expectations.get(i)));
-				expectations.remove(i);
-			} else {
-				i++; //Otherwise keep looking
+		Deque<Expectation> pending = expectations.get().get(currentMethodName);
+		if (pending != null) {
+			//Add each to the log entries and get rid of it, the emptied deque is
+			//kept for the next expectations of the method
+			Expectation expectation;
+			while ((expectation = pending.poll()) != null) {
+				addLogEntry(new LogEntry(message, expectation));
 			}
 		}
 	}
 
+	// Adds an entry to the log, unless the recording of the current thread is
+	// held, and to that recording, which is only used by that thread so neither
+	// needs a lock
+	private void addLogEntry(LogEntry entry) {
+		Recording recording = recordings.get();
+		if (recording == null || !recording.held) {
+			queueLogEntry(entry);
+		}
+		if (recording != null) {
+			recording.entries.add(entry);
+		}
+	}
+
+	// Adds an entry to the log, and when the log is streamed moves the queued
+	// entries to the spill once enough are queued, unless another thread is
+	// already moving them
+	private void queueLogEntry(LogEntry entry) {
+		logEntries.add(entry);
+		if (streamed && !spillFailed && queuedEntries.incrementAndGet() >= SPILL_BATCH_SIZE && spillLock.tryLock()) {
+			try {
+				spillLogEntries();
+			} finally {
+				spillLock.unlock();
+			}
+		}
+	}
+
+	// Moves the queued entries to the spill, creating it if needed, called
+	// holding spillLock
+	private void spillLogEntries() {
+		if (!streamed || spillFailed) {
+			return;
+		}
+		try {
+			if (spill == null) {
+				spill = new LogSpill(logDirectory());
+			}
+			LogEntry entry;
+			while ((entry = logEntries.peek()) != null) {
+				spill.add(entry);
+				logEntries.poll();
+				queuedEntries.decrementAndGet();
+			}
+		} catch (IOException e) {
+			// the entries not spilled yet stay queued
+			spillFailed = true;
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts recording the log entries created by the current thread, until
+	 * {@link #stopRecording()} is called. Recordings may be nested, entries
+	 * are then recorded by the inner and the outer recording.
+	 */
+	public static void startRecording() {
+		if (instance != null) {
+			instance.recordings.set(new Recording(instance.recordings.get(), false));
+		}
+	}
+
+	/**
+	 * Starts recording like {@link #startRecording()}, but the entries created
+	 * by the current thread are not added to the log until the recording is
+	 * passed to {@link #logRecording(Recording)}. Lets calls run on several
+	 * threads be logged in the order they were made in.
+	 */
+	public static void startHeldRecording() {
+		if (instance != null) {
+			instance.recordings.set(new Recording(instance.recordings.get(), true));
+		}
+	}
+
+	/**
+	 * Stops the recording started last by the current thread.
+	 * 
+	 * @return The recorded log entries, or null if not enabled.
+	 */
+	public static Recording stopRecording() {
+		if (instance != null) {
+			return instance.stopRecordingInner();
+		}
+		return null;
+	}
+
+	// Called by the stopRecording method only if enabled
+	private Recording stopRecordingInner() {
+		Recording recording = recordings.get();
+		if (recording == null) {
+			throw new IllegalStateException("No recording was started");
+		}
+		if (recording.parent != null) {
+			// entries held from a parent that is not are added to it once logged
+			if (!recording.held || recording.parent.held) {
+				recording.parent.entries.addAll(recording.entries);
+			}
+			recordings.set(recording.parent);
+		} else {
+			recordings.remove();
+		}
+		return recording;
+	}
+
+	/**
+	 * Adds the entries of a held recording, see {@link #startHeldRecording()},
+	 * to the log as if the current thread had just created them. They are also
+	 * added to the recording of the current thread, and kept out of the log
+	 * if that recording is held too.
+	 * 
+	 * @param recording
+	 *            The held recording, ignored if null.
+	 */
+	public static void logRecording(Recording recording) {
+		if (instance != null && recording != null) {
+			instance.logRecordingInner(recording);
+		}
+	}
+
+	// Called by the logRecording method only if enabled
+	private void logRecordingInner(Recording recording) {
+		for (LogEntry entry : recording.entries) {
+			addLogEntry(entry);
+		}
+	}
+
+	/**
+	 * Logs the entries of a recording again, as if the calls that created them
+	 * had just been made with the same parameters and returned the same messages.
+	 * 
+	 * @param recording
+	 *            The recording to replay, ignored if null.
+	 */
+	public static void replay(Recording recording) {
+		if (instance != null && recording != null) {
+			instance.replayInner(recording);
+		}
+	}
+
+	// Called by the replay method only if enabled
+	private void replayInner(Recording recording) {
+		for (LogEntry entry : recording.entries) {
+			addLogEntry(entry.copy());
+		}
+	}
+
 	/**
 	 * Should be called at the very end of execution. Creates the output log as
 	 * an html page under the project directory in the folder designated by
@@ -186,6 +749,10 @@ public class BuiltInTester {
 	 * Test_Program\output000.html <br>
 	 * Test_Program\output001.html <br>
 	 * Test_Program\output002.html
+	 * <p>
+	 * If report writers were set with
+	 * {@link #setReportWriters(ReportWriter...)}, each of them writes an
+	 * output log of its own instead, its file named the same way.
 	 */
 	public static void outputLog() {
 		if (instance != null) {
@@ -193,22 +760,277 @@ public class BuiltInTester {
 		}
 	}
 
-	// Called by the outputLog method only if enabled
-	private void outputLogInner() {
+	/**
+	 * Sets the writers of the output logs created by {@link #outputLog()},
+	 * instead of the html output log named by
+	 * {@link #enable(String,String)}. Used for formats that tools can read or
+	 * that stay usable with a very large number of entries, see
+	 * {@link JsonLinesReportWriter}, {@link JUnitReportWriter} and
+	 * {@link PagedHtmlReportWriter}. Include a {@link HtmlReportWriter} to
+	 * keep the html output log as well.
+	 * 
+	 * @param writers
+	 *            The writers, each writes an output log of its own.
+	 */
+	public static void setReportWriters(ReportWriter... writers) {
+		if (instance != null) {
+			instance.reportWriters = new ArrayList<>(Arrays.asList(writers));
+		}
+	}
+
+	/**
+	 * Writes the log entries created so far to a file instead of an html
+	 * page, so that another program can add them to its own log with
+	 * {@link #importLog(File)}. Used when work is split between several
+	 * processes that should produce a single output log. The exported entries
+	 * are removed from this log.
+	 * 
+	 * @param file
+	 *            The file to write.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public static void exportLog(File file) throws IOException {
+		exportLog(file, false);
+	}
+
+	/**
+	 * Like {@link #exportLog(File)}, but can add the entries to the end of a
+	 * file exported before instead of replacing it. Importing the file adds
+	 * the entries of every export in the order they were exported. Used to
+	 * keep the entries created so far safe while a long program runs.
+	 * 
+	 * @param file
+	 *            The file to write.
+	 * @param append
+	 *            True to add to the end of the file, false to replace it.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public static void exportLog(File file, boolean append) throws IOException {
+		if (instance != null) {
+			instance.exportLogInner(file, append);
+		}
+	}
+
+	// Called by the exportLog methods only if enabled, synchronized so that
+	// exports and imports do not overlap
+	private synchronized void exportLogInner(File file, boolean append) throws IOException {
+		spillLock.lock();
+		try {
+			// take the entries first, other threads may keep adding while writing
+			spillLogEntries();
+			List<LogEntry> exported = new ArrayList<>();
+			LogEntry entry;
+			while ((entry = logEntries.poll()) != null) {
+				exported.add(entry);
+			}
+			int spilled = (spill != null) ? spill.size() : 0;
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)))) {
+				out.writeInt(EXPORT_MAGIC);
+				out.writeInt(spilled + exported.size());
+				if (spilled > 0) {
+					// spilled entries are written the way they are exported
+					spill.copyTo(out);
+				}
+				for (LogEntry exportedEntry : exported) {
+					exportedEntry.writeTo(out);
+				}
+			}
+			if (spill != null) {
+				spill.close();
+				spill = null;
+			}
+			queuedEntries.set(0);
+		} finally {
+			spillLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the log entries in a file written by {@link #exportLog(File)} to
+	 * the end of this log, with their original timestamps. Files imported one
+	 * after another keep their order.
+	 * 
+	 * @param file
+	 *            The file to read.
+	 * @throws IOException
+	 *             If the file cannot be read or was not written by exportLog.
+	 */
+	public static void importLog(File file) throws IOException {
+		if (instance != null) {
+			instance.importLogInner(file);
+		}
+	}
+
+	// Called by the importLog method only if enabled, synchronized like exportLogInner
+	private synchronized void importLogInner(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			// one block of entries for every time the file was exported to
+			for (boolean first = true; ; first = false) {
+				int magic;
+				try {
+					magic = in.readInt();
+				} catch (EOFException e) {
+					if (first) {
+						throw e;
+					}
+					break;
+				}
+				if (magic != EXPORT_MAGIC) {
+					throw new IOException("Not an exported log: " + file.getPath());
+				}
+				for (int count = in.readInt(); count > 0; count--) {
+					queueLogEntry(LogEntry.readFrom(in));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty file next to the output logs, in the folder designated
+	 * by <code>programName</code>, numbered the same way as the output logs.
+	 * Used by callers that write reports to accompany the log.
+	 * <p>
+	 * Example report files: <br>
+	 * Test_Program\report000.csv <br>
+	 * Test_Program\report001.csv
+	 * 
+	 * @param fileName
+	 *            Name of the file, three digits are inserted before its
+	 *            extension.
+	 * @return The created file, or null if the BuiltInTester is not enabled.
+	 * @throws IOException
+	 *             If the file cannot be created.
+	 */
+	public static File createReportFile(String fileName) throws IOException {
+		if (instance != null) {
+			return instance.createFile(fileName);
+		}
+		return null;
+	}
+
+	/**
+	 * Limits the output logs and reports kept in the folder designated by
+	 * <code>programName</code>. Every time a file is created, the older files
+	 * of the same name beyond the newest <code>maxFiles</code> and those last
+	 * modified longer than <code>maxAgeMillis</code> ago are deleted. Files
+	 * are numbered from a sequence index kept next to them, so creating one
+	 * takes as long however many were created before.
+	 * 
+	 * @param maxFiles
+	 *            The number of files of each name kept, including the one
+	 *            created, 0 for no limit.
+	 * @param maxAgeMillis
+	 *            The age in milliseconds after which a file is deleted, 0 for
+	 *            no limit.
+	 */
+	public static void setRetention(int maxFiles, long maxAgeMillis) {
+		if (instance != null) {
+			instance.reportFiles.setRetention(maxFiles, maxAgeMillis);
+		}
+	}
+
+	/**
+	 * Compresses the older output logs and reports with gzip. Every time a
+	 * file is created, the files of the same name kept by
+	 * {@link #setRetention(int, long)} other than the newest
+	 * <code>uncompressedFiles</code> are replaced by a <code>.gz</code> file.
+	 * 
+	 * @param uncompressedFiles
+	 *            The number of files of each name not compressed, including
+	 *            the one created, 0 to compress none.
+	 */
+	public static void compressReports(int uncompressedFiles) {
+		if (instance != null) {
+			instance.reportFiles.setUncompressed(uncompressedFiles);
+		}
+	}
+
+	// Called by the outputLog method only if enabled, synchronized like exportLogInner
+	private synchronized void outputLogInner() {
+		List<ReportWriter> writers = reportWriters;
+		if (writers == null) {
+			writers = Collections.<ReportWriter>singletonList(new HtmlReportWriter(outputFileName, streamed));
+		}
+
+		spillLock.lock();
+		List<ReportWriter> opened = new ArrayList<>();
 		try {
-			File f = createFile();
-			System.out.println(f.getAbsolutePath());
-			BufferedWriter bw = new BufferedWriter(new FileWriter(f));
-			writeHeader(bw);
-			writeBody(bw);
-			writeFooter(bw);
-			bw.close();
+			try {
+				for (ReportWriter writer : writers) {
+					File f = createFile(writer.getFileName());
+					System.out.println(f.getAbsolutePath());
+					writer.open(f, programName);
+					opened.add(writer);
+				}
+				writeEntries(opened);
+			} finally {
+				closeAll(opened);
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
+		} finally {
+			spillLock.unlock();
 		}
 
 	}
 
+	/*
+	 * Passes every log entry to the writers, the spilled entries followed by
+	 * those still queued, and removes them from this log. Spilled entries are
+	 * read back one at a time, so a streamed log stays out of memory, and the
+	 * spill is then removed
+	 */
+	private void writeEntries(List<ReportWriter> writers) throws IOException {
+		spillLogEntries();
+		if (spill != null) {
+			try (DataInputStream in = spill.read()) {
+				for (int count = spill.size(); count > 0; count--) {
+					writeEntry(writers, LogEntry.readFrom(in));
+				}
+			}
+			spill.close();
+			spill = null;
+		}
+		queuedEntries.set(0);
+		// left queued only if the log is not streamed or spilling failed
+		LogEntry entry;
+		while ((entry = logEntries.poll()) != null) {
+			writeEntry(writers, entry);
+		}
+	}
+
+	private void writeEntry(List<ReportWriter> writers, LogEntry entry) throws IOException {
+		for (ReportWriter writer : writers) {
+			writer.write(entry);
+		}
+	}
+
+	// Closes every writer, throwing the first failure once all are closed
+	private void closeAll(List<ReportWriter> writers) throws IOException {
+		IOException failure = null;
+		for (ReportWriter writer : writers) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	// Gets the directory the output logs are written to
+	private File logDirectory() {
+		File directory = new File(programName);
+		directory.mkdirs();
+		return directory;
+	}
+
 	// Checks whether two parameters are equivalent to each other
 	private boolean parameterEquals(Object param1, Object param2) {
 		if (param1 == null || param2 == null)
@@ -239,117 +1061,11 @@ public class BuiltInTester {
 	}
 
 	/*
-	 * Creates a log file based on programName and outputFileName and appends 3
-	 * digits so that each log is unique
-	 */
-	private File createFile() throws IOException {
-		// Creates the file name
-		File f;
-		String path = programName + File.separator + outputFileName;
-		DecimalFormat format = new DecimalFormat("000");
-		int fileNum = 0;
-
-		// Checks whether filenames with XXX at the end have been used and
-		// increments XXX until one is unused
-		do {
-			f = new File(path.substring(0, path.length() - 5)
-					+ format.format(fileNum)
-					+ path.substring(path.length() - 5));
-			fileNum++;
-		} while (f.exists());
-
-		// Creates the file in the specified directory
-		f.getParentFile().mkdirs();
-		f.createNewFile();
-		return f;
-	}
-
-	// All the prerequisite opening html
-	private void writeHeader(BufferedWriter bw) throws IOException {
-		// First part of file.
-		bw.write("<html>\n<head>\n");
-		// Stylesheet
-		bw.write("<link rel=\"stylesheet\" href=\"../scripts/style.css\" type=\"text/css\" />\n");
-		// External scripts
-		bw.write("<script type=\"text/javascript\" src=\"../scripts/jquery-latest.js\"></script>\n");
-		bw.write("<script type=\"text/javascript\" src=\"../scripts/jquery.tablesorter.min.js\"></script>\n");
-		// Script for page load
-		bw.write("<script type=\"text/javascript\">\n");
-		bw.write("window.onload = function() {\n");
-		bw.write("$(document).ready(function()\n");
-		bw.write("{$(\"#all\").tablesorter();$(\"#failed\").tablesorter();}\n");
-		bw.write(");}\n");
-		bw.write("</script>\n");
-		// End of header
-		bw.write("</head>\n");
-	}
-
-	// Date, method name, input, expected, received, pass/fail
-	private void writeBody(BufferedWriter bw) throws IOException {
-		// Body tag
-		bw.write("<body>\n");
-		// Header for file (program name)
-		bw.write("<h1>Test results for " + programName + "</h1>\n");
-
-		// Header for all tests
-		bw.write("<h2>All tests</h2>\n");
-		// Beginning of table
-		bw.write("<table id=\"all\" class=\"tablesorter\">\n");
-		// Table header with names of columns
-		bw.write("<thead>\n<tr>\n");
-		for (String header : new String[] { "Date", "Method name", "Input",
-				"Expected log", "Received log", "Pass/fail" })
-			bw.write("    <th>" + header + "</th>\n");
-		bw.write("</tr>\n</thead>\n");
-
-		// Body of first (all entries) table
-		// This is a queue of all the failed log entries so they can be added to
-		// the other table as well
-		Queue<LogEntry> failedEntries = new LinkedList<>();
-
-		bw.write("<tbody>\n");
-		while (!logEntries.isEmpty()) {
-			LogEntry entry = logEntries.poll();
-			// Add entry to failed queue if it failed
-			if (!entry.didPass())
-				failedEntries.add(entry);
-
-			bw.write("    " + entry.toTRString(false, additionalEntries) + "\n");
-		}
-		bw.write("</tbody>\n</table>\n");
-
-		// Header for second table (failed tests)
-		bw.write("<h2>Failed tests</h2>\n");
-		// Beginning of table
-		bw.write("<table id=\"failed\" class=\"tablesorter\">\n");
-		// Table header with names of columns
-		bw.write("<thead>\n<tr>\n");
-		for (String header : new String[] { "Date", "Method name", "Input",
-				"Expected log", "Received log" })
-			bw.write("    <th>" + header + "</th>\n");
-		bw.write("</tr>\n</thead>\n");
-		// Body of second (failed entries) table
-		bw.write("<tbody>\n");
-		while (!failedEntries.isEmpty())
-			bw.write("    " + failedEntries.poll().toTRString(true, additionalEntries) + "\n");
-		bw.write("</tbody>\n</table>\n");
-		
-		// The list of additional entries (if any)
-		if (!additionalEntries.isEmpty()) {
-			bw.write("<h2>Additional (overflow) results</h2>\n");
-			
-			// Add the additional entries
-			while (!additionalEntries.isEmpty()) {
-				bw.write(additionalEntries.poll());
-			}
-		}
-
-		// End of body
-		bw.write("</body>\n");
-	}
-
-	// Spits out the closing html at the end
-	private void writeFooter(BufferedWriter bw) throws IOException {
-		bw.write("</html>");
+	 * Creates a file based on programName and fileName and appends 3 digits
+	 * before the extension so that each file is unique, the next number is
+	 * taken from the sequence index of fileName
+	 */
+	private File createFile(String fileName) throws IOException {
+		return reportFiles.create(new File(programName, fileName));
 	}
 }
@@ -0,0 +1,20 @@
+package org.ohs1.winter2013;
+
+/**
+ * Names the method that calls the <code>BuiltInTester</code> API, so that
+ * {@link BuiltInTester#expecting(CallSite, String, Object...)} and
+ * {@link BuiltInTester#log(CallSite, String)} do not have to find it on the
+ * stack. Created once per tested method with
+ * {@link BuiltInTester#callSite(Class, String)} and kept in a static final
+ * field of its class.
+ */
+public final class CallSite {
+
+	// The name of the method as a stack trace shows it, class.method
+	final String methodName;
+
+	// Method name is the qualified name of the calling method
+	CallSite(String methodName) {
+		this.methodName = methodName;
+	}
+}
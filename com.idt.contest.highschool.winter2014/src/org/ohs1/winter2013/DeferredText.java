@@ -0,0 +1,85 @@
+package org.ohs1.winter2013;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Collects pieces of text that are written to an output log after the
+ * entries that create them, such as the additional (overflow) entries of the
+ * html output log or the test cases of a JUnit report. The text is kept in
+ * memory, or in a temporary file when the log is streamed, see
+ * {@link BuiltInTester#streamLog()}, so that only the number of pieces is.
+ */
+final class DeferredText {
+
+	// The temporary file holding the text, null if it is kept in memory
+	private final File file;
+
+	// Writes the text to the end of the file or to memory
+	private final Writer out;
+
+	// The number of pieces added
+	private int count;
+
+	// Creates an empty text kept in memory
+	DeferredText() {
+		this.file = null;
+		this.out = new StringWriter();
+	}
+
+	// Creates an empty text kept in a temporary file in directory, removed by close()
+	DeferredText(File directory) throws IOException {
+		this.file = File.createTempFile("deferred", ".spill", directory);
+		this.file.deleteOnExit();
+		this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+	// Adds a piece of text to the end
+	void add(String text) throws IOException {
+		out.write(text);
+		count++;
+	}
+
+	// Gets the number of pieces added
+	int size() {
+		return count;
+	}
+
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	// Copies every piece, in the order they were added, to target
+	void copyTo(Writer target) throws IOException {
+		if (file == null) {
+			target.write(out.toString());
+			return;
+		}
+		out.flush();
+		try (Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				target.write(buffer, 0, read);
+			}
+		}
+	}
+
+	// Removes the text and its file
+	void close() throws IOException {
+		out.close();
+		if (file != null) {
+			file.delete();
+		}
+	}
+}
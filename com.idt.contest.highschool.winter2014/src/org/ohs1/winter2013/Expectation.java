@@ -21,6 +21,10 @@ class Expectation {
 	// A list of all the parameter values the expectation was predicated on
 	private final List<?> parameters;
 
+	// The parameters as getParameterString() returns them, if they were
+	// imported already formatted instead of as values
+	private final String parameterString;
+
 	/*
 	 * Parameters: 
 	 * methodName  - the name of the method associated with the expectation
@@ -31,6 +35,19 @@ class Expectation {
 		this.methodName = methodName;
 		this.expectedLog = expectedLog;
 		this.parameters = new ArrayList<>(parameters);
+		this.parameterString = null;
+	}
+
+	/*
+	 * Used for expectations read back from an exported log, where only the
+	 * formatted parameters were kept.
+	 * parameterString - the parameters as getParameterString() returned them
+	 */
+	Expectation(String methodName, String expectedLog, String parameterString) {
+		this.methodName = methodName;
+		this.expectedLog = expectedLog;
+		this.parameters = new ArrayList<>();
+		this.parameterString = parameterString;
 	}
 
 	// Gets the method name associated with this expectation
@@ -48,6 +65,9 @@ class Expectation {
 	* the output will be (obj, obj, ...)
 	*/
 	String getParameterString() {
+		if (parameterString != null)
+			return parameterString;
+
 		String params = "(";
 		// Adds each parameter and a comma to the string, up to the last element
 		// (which has no comma).
@@ -0,0 +1,197 @@
+package org.ohs1.winter2013;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Writes the html output log: a table of all tests and a table of the failed
+ * tests, sorted in the browser with the jQuery tablesorter, followed by the
+ * messages too long to fit in the tables. This is the output log written if
+ * no other {@link ReportWriter} is set. Every row is in the page, so it is
+ * meant for logs of up to a few thousand entries, see
+ * {@link PagedHtmlReportWriter} for larger ones.
+ */
+public class HtmlReportWriter implements ReportWriter {
+
+	// Name of the files written
+	private final String fileName;
+
+	// Whether the failed and additional entries are kept in temporary files
+	private final boolean spilled;
+
+	// Writes the page, null unless open
+	private BufferedWriter bw;
+
+	// The failed entries, written to the second table once every entry was
+	// written to the first one
+	private Queue<LogEntry> failedEntries;
+
+	// The failed entries when they are spilled
+	private LogSpill failedSpill;
+
+	// The additional entries of messages too big to fit in the table
+	private DeferredText additionalEntries;
+
+	/**
+	 * Creates a writer of the html output log.
+	 *
+	 * @param fileName
+	 *            Name of the files written.
+	 * @param spilled
+	 *            True to keep the failed entries and the additional entries
+	 *            in temporary files instead of in memory until they are
+	 *            written, for logs streamed with
+	 *            {@link BuiltInTester#streamLog()}.
+	 */
+	public HtmlReportWriter(String fileName, boolean spilled) {
+		this.fileName = fileName;
+		this.spilled = spilled;
+	}
+
+	@Override
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Override
+	public void open(File file, String programName) throws IOException {
+		if (spilled) {
+			failedSpill = new LogSpill(file.getParentFile());
+			additionalEntries = new DeferredText(file.getParentFile());
+		} else {
+			failedEntries = new LinkedList<>();
+			additionalEntries = new DeferredText();
+		}
+		bw = new BufferedWriter(new FileWriter(file));
+		writeHeader();
+		writeAllTestsHeader(programName);
+	}
+
+	// Date, method name, input, expected, received, pass/fail
+	@Override
+	public void write(LogEntry entry) throws IOException {
+		// Add entry to failed queue if it failed
+		if (!entry.didPass()) {
+			if (failedSpill != null)
+				failedSpill.add(entry);
+			else
+				failedEntries.add(entry);
+		}
+
+		bw.write("    " + entry.toTRString(false, additionalEntries) + "\n");
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (bw != null) {
+				writeFailedTests();
+				writeFooter();
+				bw.close();
+			}
+		} finally {
+			bw = null;
+			failedEntries = null;
+			if (failedSpill != null) {
+				failedSpill.close();
+				failedSpill = null;
+			}
+			if (additionalEntries != null) {
+				additionalEntries.close();
+				additionalEntries = null;
+			}
+		}
+	}
+
+	// All the prerequisite opening html
+	private void writeHeader() throws IOException {
+		// First part of file.
+		bw.write("<html>\n<head>\n");
+		// Stylesheet
+		bw.write("<link rel=\"stylesheet\" href=\"../scripts/style.css\" type=\"text/css\" />\n");
+		// External scripts
+		bw.write("<script type=\"text/javascript\" src=\"../scripts/jquery-latest.js\"></script>\n");
+		bw.write("<script type=\"text/javascript\" src=\"../scripts/jquery.tablesorter.min.js\"></script>\n");
+		// Script for page load
+		bw.write("<script type=\"text/javascript\">\n");
+		bw.write("window.onload = function() {\n");
+		bw.write("$(document).ready(function()\n");
+		bw.write("{$(\"#all\").tablesorter();$(\"#failed\").tablesorter();}\n");
+		bw.write(");}\n");
+		bw.write("</script>\n");
+		// End of header
+		bw.write("</head>\n");
+	}
+
+	// Opens the body and the table of all tests, up to its first row
+	private void writeAllTestsHeader(String programName) throws IOException {
+		// Body tag
+		bw.write("<body>\n");
+		// Header for file (program name)
+		bw.write("<h1>Test results for " + programName + "</h1>\n");
+
+		// Header for all tests
+		bw.write("<h2>All tests</h2>\n");
+		// Beginning of table
+		bw.write("<table id=\"all\" class=\"tablesorter\">\n");
+		// Table header with names of columns
+		bw.write("<thead>\n<tr>\n");
+		for (String header : new String[] { "Date", "Method name", "Input",
+				"Expected log", "Received log", "Pass/fail" })
+			bw.write("    <th>" + header + "</th>\n");
+		bw.write("</tr>\n</thead>\n");
+		// Body of first (all entries) table
+		bw.write("<tbody>\n");
+	}
+
+	// Closes the table of all tests and writes the table of failed tests and
+	// the additional entries
+	private void writeFailedTests() throws IOException {
+		bw.write("</tbody>\n</table>\n");
+
+		// Header for second table (failed tests)
+		bw.write("<h2>Failed tests</h2>\n");
+		// Beginning of table
+		bw.write("<table id=\"failed\" class=\"tablesorter\">\n");
+		// Table header with names of columns
+		bw.write("<thead>\n<tr>\n");
+		for (String header : new String[] { "Date", "Method name", "Input",
+				"Expected log", "Received log" })
+			bw.write("    <th>" + header + "</th>\n");
+		bw.write("</tr>\n</thead>\n");
+		// Body of second (failed entries) table
+		bw.write("<tbody>\n");
+		if (failedSpill != null) {
+			try (DataInputStream in = failedSpill.read()) {
+				for (int count = failedSpill.size(); count > 0; count--) {
+					bw.write("    " + LogEntry.readFrom(in).toTRString(true, additionalEntries) + "\n");
+				}
+			}
+		} else {
+			while (!failedEntries.isEmpty())
+				bw.write("    " + failedEntries.poll().toTRString(true, additionalEntries) + "\n");
+		}
+		bw.write("</tbody>\n</table>\n");
+
+		// The list of additional entries (if any)
+		if (!additionalEntries.isEmpty()) {
+			bw.write("<h2>Additional (overflow) results</h2>\n");
+
+			// Add the additional entries
+			additionalEntries.copyTo(bw);
+		}
+
+		// End of body
+		bw.write("</body>\n");
+	}
+
+	// Spits out the closing html at the end
+	private void writeFooter() throws IOException {
+		bw.write("</html>");
+	}
+}
@@ -0,0 +1,110 @@
+package org.ohs1.winter2013;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Writes the output log as a JUnit XML test suite, the format continuous
+ * integration servers read test results from. Every log entry is a test case
+ * named after its method and parameters, in a class named after the class of
+ * the method, and a failed entry is a failure holding the expected and
+ * received logs.
+ * <p>
+ * The number of tests and failures heads the suite, so the test cases go to
+ * a temporary file until the last entry is written instead of being kept in
+ * memory.
+ */
+public class JUnitReportWriter implements ReportWriter {
+
+	// Name of the files written
+	private final String fileName;
+
+	// The file being written, null unless open
+	private File file;
+
+	// Name of the tested program, the name of the suite
+	private String programName;
+
+	// The time the output log was started, the timestamp of the suite
+	private Date started;
+
+	// The test cases written so far
+	private DeferredText testCases;
+
+	// The number of test cases and of failed ones
+	private int tests;
+	private int failures;
+
+	/**
+	 * Creates a writer of JUnit XML output logs.
+	 *
+	 * @param fileName
+	 *            Name of the files written.
+	 */
+	public JUnitReportWriter(String fileName) {
+		this.fileName = fileName;
+	}
+
+	@Override
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Override
+	public void open(File file, String programName) throws IOException {
+		this.testCases = new DeferredText(file.getParentFile());
+		this.file = file;
+		this.programName = programName;
+		this.started = new Date();
+		this.tests = 0;
+		this.failures = 0;
+	}
+
+	@Override
+	public void write(LogEntry entry) throws IOException {
+		String methodName = entry.getMethodName();
+		int dot = methodName.lastIndexOf('.');
+		String className = (dot >= 0) ? methodName.substring(0, dot) : programName;
+		String testName = methodName.substring(dot + 1) + entry.getParameterString();
+
+		String testCase = "  <testcase classname=\"" + ReportText.xml(className)
+				+ "\" name=\"" + ReportText.xml(testName) + "\" time=\"0\"";
+		if (entry.didPass()) {
+			testCase += "/>\n";
+		} else {
+			testCase += ">\n    <failure message=\"Received log differs from expected log\" type=\"LogMismatch\">"
+					+ ReportText.xml("Expected log:\n" + entry.getExpectedLog() + "\nReceived log:\n" + entry.getActualMessage())
+					+ "</failure>\n  </testcase>\n";
+			failures++;
+		}
+		testCases.add(testCase);
+		tests++;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (file == null) {
+			return;
+		}
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			out.write("<testsuite name=\"" + ReportText.xml(programName) + "\" tests=\"" + tests
+					+ "\" failures=\"" + failures + "\" errors=\"0\" skipped=\"0\" time=\"0\" timestamp=\""
+					+ new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US).format(started) + "\">\n");
+			testCases.copyTo(out);
+			out.write("</testsuite>\n");
+		} finally {
+			file = null;
+			testCases.close();
+			testCases = null;
+		}
+	}
+}
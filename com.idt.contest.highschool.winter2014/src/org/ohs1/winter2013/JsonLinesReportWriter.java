@@ -0,0 +1,71 @@
+package org.ohs1.winter2013;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Writes the output log as JSON lines, one object per log entry, for tools
+ * to read the log one entry at a time. Each line holds the fields date
+ * (ISO 8601), method, parameters, expected, actual and passed. Entries are
+ * written as they are passed, so nothing is kept in memory.
+ */
+public class JsonLinesReportWriter implements ReportWriter {
+
+	// Name of the files written
+	private final String fileName;
+
+	// The date format of the date field
+	private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.US);
+
+	// Writes the lines, null unless open
+	private Writer out;
+
+	/**
+	 * Creates a writer of JSON lines output logs.
+	 *
+	 * @param fileName
+	 *            Name of the files written.
+	 */
+	public JsonLinesReportWriter(String fileName) {
+		this.fileName = fileName;
+	}
+
+	@Override
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Override
+	public void open(File file, String programName) throws IOException {
+		out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void write(LogEntry entry) throws IOException {
+		out.write("{\"date\":" + ReportText.json(dateFormat.format(entry.getDate()))
+				+ ",\"method\":" + ReportText.json(entry.getMethodName())
+				+ ",\"parameters\":" + ReportText.json(entry.getParameterString())
+				+ ",\"expected\":" + ReportText.json(entry.getExpectedLog())
+				+ ",\"actual\":" + ReportText.json(entry.getActualMessage())
+				+ ",\"passed\":" + entry.didPass() + "}\n");
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (out != null) {
+			try {
+				out.close();
+			} finally {
+				out = null;
+			}
+		}
+	}
+}
@@ -1,22 +1,32 @@
 package org.ohs1.winter2013;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import java.util.Queue;
 
 /**
  * Constitutes everything that each log entry in the html output file is.
+ * Entries are passed to the {@link ReportWriter}s of the output log, which
+ * read them through the public getters.
  * 
  * @author Kostyantyn Proskuryakov, Ian Johnson
  * @version 1.1, 30 Jan 2014
  */
-class LogEntry {
+public class LogEntry {
 
-	// The date format to be used in formatting the timestamp
-	private static final DateFormat dateFormat = new SimpleDateFormat(
-			"MMM dd, yyyy h:mm a", Locale.US);
+	// The date format to be used in formatting the timestamp, one per thread
+	// since a SimpleDateFormat cannot be shared
+	private static final ThreadLocal<DateFormat> dateFormat = new ThreadLocal<DateFormat>() {
+		@Override
+		protected DateFormat initialValue() {
+			return new SimpleDateFormat("MMM dd, yyyy h:mm a", Locale.US);
+		}
+	};
 
 	// The expectation associated with the log entry
 	private final Expectation expectation;
@@ -34,26 +44,121 @@ class LogEntry {
 	 * time this instance was created for use later
 	 */
 	LogEntry(String message, Expectation expectation) {
+		this(message, expectation, new Date());
+	}
+
+	// Used for entries read back from an exported log, keeping their timestamp
+	private LogEntry(String message, Expectation expectation, Date logDate) {
 		this.actualMessage = message;
 		this.expectation = expectation;
-		this.logDate = new Date();
+		this.logDate = logDate;
+	}
+
+	// Returns a new entry with the same messages, timestamped now
+	LogEntry copy() {
+		return new LogEntry(actualMessage, expectation);
+	}
+
+	// Writes the entry in the format read back by readFrom(DataInput)
+	void writeTo(DataOutput out) throws IOException {
+		out.writeLong(logDate.getTime());
+		writeString(out, expectation.getMethodName());
+		writeString(out, expectation.getParameterString());
+		writeString(out, expectation.getExpectedLog());
+		writeString(out, actualMessage);
 	}
 
-	// Returns whether the method's logic passed or failed
-	boolean didPass() {
+	// Reads an entry written by writeTo(DataOutput)
+	static LogEntry readFrom(DataInput in) throws IOException {
+		Date logDate = new Date(in.readLong());
+		String methodName = readString(in);
+		String parameterString = readString(in);
+		String expectedLog = readString(in);
+		String actualMessage = readString(in);
+		return new LogEntry(actualMessage, new Expectation(methodName,
+				expectedLog, parameterString), logDate);
+	}
+
+	// Strings are written as a length and UTF-8 bytes, since log messages
+	// such as mazes can be longer than writeUTF allows
+	private static void writeString(DataOutput out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the time the method returned in the main program.
+	 * 
+	 * @return The time of the entry.
+	 */
+	public Date getDate() {
+		return new Date(logDate.getTime());
+	}
+
+	/**
+	 * Gets the name of the tested method, including its class.
+	 * 
+	 * @return The method name.
+	 */
+	public String getMethodName() {
+		return expectation.getMethodName();
+	}
+
+	/**
+	 * Gets the parameters the method was called with, in the format
+	 * (obj, obj, ...).
+	 * 
+	 * @return The parameters as a string.
+	 */
+	public String getParameterString() {
+		return expectation.getParameterString();
+	}
+
+	/**
+	 * Gets the message the method was expected to log.
+	 * 
+	 * @return The expected message.
+	 */
+	public String getExpectedLog() {
+		return expectation.getExpectedLog();
+	}
+
+	/**
+	 * Gets the message the method actually logged.
+	 * 
+	 * @return The received message.
+	 */
+	public String getActualMessage() {
+		return actualMessage;
+	}
+
+	/**
+	 * Returns whether the method's logic passed or failed.
+	 * 
+	 * @return True if the received message is the expected one.
+	 */
+	public boolean didPass() {
 		return actualMessage.equals(expectation.getExpectedLog());
 	}
 
 	/*
 	 * Returns a string containing the log data in the format of an HTML table
 	 * row. omitPassFail returns a string omitting the pass/fail table entry for
-	 * the fail only table
+	 * the fail only table. Messages too long for the table are added to
+	 * additionalEntries
 	 */
-	String toTRString(boolean omitPassFail, Queue<String>additionalEntries) {
+	String toTRString(boolean omitPassFail, DeferredText additionalEntries) throws IOException {
 		String trString = "<tr>";
 
 		// Add date
-		trString += "<td>" + dateFormat.format(logDate) + "</td>";
+		trString += "<td>" + dateFormat.get().format(logDate) + "</td>";
 		// Add method name
 		trString += "<td>" + expectation.getMethodName() + "</td>";
 		// Add parameters
@@ -66,7 +171,7 @@ class LogEntry {
 			// Create link to additional information
 			trString += "<td><a href=\"#additional" + entryNumber + "\">" + 
 						expectedLog.split("\n")[0] + " ...(follow link for entire message)</a></td>";
-			// Add the additional information to the queue
+			// Add the additional information to the additional entries
 			String additional = "<h4>Expected log for " + expectation.getMethodName() + "</h4>" +
 			                    "\n<a name=\"additional" + entryNumber + "\"></a><pre>\n" +
 					            expectedLog + "</pre>\n";
@@ -80,7 +185,7 @@ class LogEntry {
 			// Create link to additional information
 			trString += "<td><a href=\"#additional" + entryNumber + "\">" + 
 						actualMessage.split("\n")[0] + " ...(follow link for entire message)</a></td>";
-			// Add the additional information to the queue
+			// Add the additional information to the additional entries
 			String additional = "<h4>Actual message for " + expectation.getMethodName() + "</h4>" +
 			                    "\n<a name=\"additional" + entryNumber + "\"></a><pre>\n" +
 					            actualMessage + "</pre>\n";
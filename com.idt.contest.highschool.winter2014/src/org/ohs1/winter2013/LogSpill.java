@@ -0,0 +1,78 @@
+package org.ohs1.winter2013;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Holds log entries in a temporary file instead of in memory, written the way
+ * {@link LogEntry#writeTo(java.io.DataOutput)} writes them. Used when the log
+ * is streamed, see {@link BuiltInTester#streamLog()}.
+ */
+final class LogSpill {
+
+	// The temporary file holding the entries
+	private final File file;
+
+	// Writes entries to the end of the file
+	private final DataOutputStream out;
+
+	// The number of entries in the file
+	private int count;
+
+	// Creates an empty spill in directory, removed by close()
+	LogSpill(File directory) throws IOException {
+		this.file = File.createTempFile("log", ".spill", directory);
+		this.file.deleteOnExit();
+		this.out = open();
+	}
+
+	// Adds an entry to the end of the spill
+	void add(LogEntry entry) throws IOException {
+		entry.writeTo(out);
+		count++;
+	}
+
+	// Gets the number of entries in the spill
+	int size() {
+		return count;
+	}
+
+	/*
+	 * Opens the entries for reading, in the order they were added. The caller
+	 * reads size() entries with LogEntry.readFrom and closes the stream
+	 */
+	DataInputStream read() throws IOException {
+		out.flush();
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+	}
+
+	// Copies the entries as they are written in the file to target
+	void copyTo(OutputStream target) throws IOException {
+		out.flush();
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				target.write(buffer, 0, read);
+			}
+		}
+	}
+
+	// Removes the spill and its file
+	void close() throws IOException {
+		out.close();
+		file.delete();
+	}
+
+	private DataOutputStream open() throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+	}
+}
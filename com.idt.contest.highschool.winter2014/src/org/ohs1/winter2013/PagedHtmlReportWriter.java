@@ -0,0 +1,231 @@
+package org.ohs1.winter2013;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Writes an html output log for logs too large to be a single page. The page
+ * shows the tests a page of {@link #ROWS_PER_PAGE} rows at a time, either all
+ * of them or only the failed ones, and loads the rows of a page only when it
+ * is shown. The rows are written to data files in a directory next to the
+ * page, named after it with <code>_files</code> appended, as scripts that
+ * pass them to the page, so the report can be opened from disk as well as
+ * from a web server.
+ * <p>
+ * Entries are written to the data files as they are passed, so only the
+ * number of entries is kept in memory.
+ */
+public class PagedHtmlReportWriter implements ReportWriter {
+
+	/**
+	 * The number of rows shown per page, and written per data file.
+	 */
+	public static final int ROWS_PER_PAGE = 1000;
+
+	// Name of the files written
+	private final String fileName;
+
+	// The date format of the date column, the one of the html output log
+	private final DateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy h:mm a", Locale.US);
+
+	// The directory of the data files, null unless open
+	private File dataDirectory;
+
+	// The data files of every row and of the rows of failed tests
+	private Pages allTests;
+	private Pages failedTests;
+
+	/**
+	 * Creates a writer of paged html output logs.
+	 *
+	 * @param fileName
+	 *            Name of the files written.
+	 */
+	public PagedHtmlReportWriter(String fileName) {
+		this.fileName = fileName;
+	}
+
+	@Override
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Override
+	public void open(File file, String programName) throws IOException {
+		String name = file.getName();
+		int extension = name.lastIndexOf('.');
+		String dataDirectoryName = ((extension > 0) ? name.substring(0, extension) : name) + "_files";
+
+		dataDirectory = new File(file.getParentFile(), dataDirectoryName);
+		if (!dataDirectory.isDirectory() && !dataDirectory.mkdirs()) {
+			throw new IOException("Could not create " + dataDirectory);
+		}
+		allTests = new Pages("all");
+		failedTests = new Pages("failed");
+
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			writePage(out, programName, dataDirectoryName);
+		}
+	}
+
+	@Override
+	public void write(LogEntry entry) throws IOException {
+		String row = "[" + ReportText.json(dateFormat.format(entry.getDate()))
+				+ "," + ReportText.json(entry.getMethodName())
+				+ "," + ReportText.json(entry.getParameterString())
+				+ "," + ReportText.json(entry.getExpectedLog())
+				+ "," + ReportText.json(entry.getActualMessage())
+				+ "," + entry.didPass() + "]";
+		allTests.add(row);
+		if (!entry.didPass()) {
+			failedTests.add(row);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (dataDirectory == null) {
+			return;
+		}
+		try {
+			allTests.close();
+			failedTests.close();
+			try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(dataDirectory, "summary.js")), StandardCharsets.UTF_8))) {
+				out.write("reportSummary({\"entries\":" + allTests.rows + ",\"failed\":" + failedTests.rows
+						+ ",\"rowsPerPage\":" + ROWS_PER_PAGE + "});\n");
+			}
+		} finally {
+			dataDirectory = null;
+			allTests.close();
+			failedTests.close();
+		}
+	}
+
+	// Writes the page, which loads the summary and then the rows of the page shown
+	private void writePage(Writer out, String programName, String dataDirectoryName) throws IOException {
+		out.write("<html>\n<head>\n");
+		out.write("<meta charset=\"UTF-8\" />\n");
+		out.write("<link rel=\"stylesheet\" href=\"../scripts/style.css\" type=\"text/css\" />\n");
+		out.write("<style type=\"text/css\">td { white-space: pre-wrap; vertical-align: top; }</style>\n");
+		out.write("<script type=\"text/javascript\">\n");
+		out.write("var dataDirectory = " + ReportText.json(dataDirectoryName + "/") + ";\n");
+		out.write("var summary = null, pages = {}, view = \"all\", page = 0;\n");
+		// Data files are scripts calling reportSummary and reportPage
+		out.write("function load(name) {\n");
+		out.write("  var script = document.createElement(\"script\");\n");
+		out.write("  script.src = dataDirectory + name + \".js\";\n");
+		out.write("  document.body.appendChild(script);\n");
+		out.write("}\n");
+		out.write("function reportSummary(s) { summary = s; show(); }\n");
+		out.write("function reportPage(series, index, rows) {\n");
+		out.write("  pages[series + index] = rows;\n");
+		out.write("  if (series == view && index == page) { render(rows); }\n");
+		out.write("}\n");
+		out.write("function pageCount() {\n");
+		out.write("  var rows = (view == \"all\") ? summary.entries : summary.failed;\n");
+		out.write("  return Math.max(1, Math.ceil(rows / summary.rowsPerPage));\n");
+		out.write("}\n");
+		out.write("function show() {\n");
+		out.write("  document.getElementById(\"counts\").textContent = summary.entries + \" tests, \" + summary.failed + \" failed\";\n");
+		out.write("  document.getElementById(\"position\").textContent = \"Page \" + (page + 1) + \" of \" + pageCount();\n");
+		out.write("  var rows = pages[view + page];\n");
+		out.write("  render(rows || []);\n");
+		out.write("  if (!rows && page * summary.rowsPerPage < ((view == \"all\") ? summary.entries : summary.failed)) { load(view + page); }\n");
+		out.write("}\n");
+		out.write("function render(rows) {\n");
+		out.write("  var columns = (view == \"all\") ? 6 : 5;\n");
+		out.write("  var headers = [\"Date\", \"Method name\", \"Input\", \"Expected log\", \"Received log\", \"Pass/fail\"];\n");
+		out.write("  var table = document.getElementById(\"tests\");\n");
+		out.write("  while (table.firstChild) { table.removeChild(table.firstChild); }\n");
+		out.write("  var head = table.createTHead().insertRow(-1);\n");
+		out.write("  for (var c = 0; c < columns; c++) {\n");
+		out.write("    var th = document.createElement(\"th\");\n");
+		out.write("    th.textContent = headers[c];\n");
+		out.write("    head.appendChild(th);\n");
+		out.write("  }\n");
+		out.write("  var body = document.createElement(\"tbody\");\n");
+		out.write("  table.appendChild(body);\n");
+		out.write("  for (var r = 0; r < rows.length; r++) {\n");
+		out.write("    var tr = body.insertRow(-1);\n");
+		out.write("    for (var c = 0; c < columns; c++) {\n");
+		out.write("      var value = rows[r][c];\n");
+		out.write("      tr.insertCell(-1).textContent = (c == 5) ? (value ? \"Pass\" : \"Fail\") : value;\n");
+		out.write("    }\n");
+		out.write("  }\n");
+		out.write("}\n");
+		out.write("function go(to) { page = Math.min(Math.max(0, to), pageCount() - 1); show(); }\n");
+		out.write("function setView(v) { view = v; page = 0; show(); }\n");
+		out.write("window.onload = function() { load(\"summary\"); };\n");
+		out.write("</script>\n");
+		out.write("</head>\n");
+		out.write("<body>\n");
+		out.write("<h1>Test results for " + programName + "</h1>\n");
+		out.write("<p id=\"counts\">Loading...</p>\n");
+		out.write("<p>\n");
+		out.write("<select onchange=\"setView(this.value)\"><option value=\"all\">All tests</option><option value=\"failed\">Failed tests</option></select>\n");
+		out.write("<button onclick=\"go(0)\">First</button>\n");
+		out.write("<button onclick=\"go(page - 1)\">Previous</button>\n");
+		out.write("<span id=\"position\"></span>\n");
+		out.write("<button onclick=\"go(page + 1)\">Next</button>\n");
+		out.write("<button onclick=\"go(pageCount() - 1)\">Last</button>\n");
+		out.write("</p>\n");
+		out.write("<table id=\"tests\" class=\"tablesorter\"></table>\n");
+		out.write("</body>\n");
+		out.write("</html>");
+	}
+
+	/*
+	 * The data files of a series of rows, each holding the rows of one page.
+	 * Only the data file of the page being written is open
+	 */
+	private final class Pages {
+
+		// Name of the series, the data files are named after it and their page
+		private final String series;
+
+		// The number of rows written
+		private int rows;
+
+		// Writes the data file of the page being written, null if none is open
+		private Writer out;
+
+		Pages(String series) {
+			this.series = series;
+		}
+
+		// Adds a row, opening the data file of the next page if needed
+		void add(String row) throws IOException {
+			int index = rows % ROWS_PER_PAGE;
+			if (index == 0) {
+				close();
+				int page = rows / ROWS_PER_PAGE;
+				out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(dataDirectory, series + page + ".js")), StandardCharsets.UTF_8));
+				out.write("reportPage(\"" + series + "\"," + page + ",[\n");
+			} else {
+				out.write(",\n");
+			}
+			out.write(row);
+			rows++;
+		}
+
+		// Ends the data file of the page being written
+		void close() throws IOException {
+			if (out != null) {
+				try {
+					out.write("\n]);\n");
+					out.close();
+				} finally {
+					out = null;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package org.ohs1.winter2013;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the log entries created while a recording was active so that they can be
+ * logged again later with {@link BuiltInTester#replay(Recording)}. Used by callers
+ * that skip a method call and reuse an earlier result, so the skipped call still
+ * shows up in the output log. A held recording keeps its entries out of the log
+ * until they are passed to {@link BuiltInTester#logRecording(Recording)}, so a
+ * thread running calls on behalf of another one can leave it to log them in order.
+ */
+public final class Recording {
+
+	// The recording that was active when this one started, if any
+	final Recording parent;
+
+	// Whether the entries are kept out of the log, also true if the parent is held
+	final boolean held;
+
+	// The log entries created while this recording was active
+	final List<LogEntry> entries = new ArrayList<>();
+
+	// Parent is the recording this one is nested in, null if none
+	Recording(Recording parent, boolean held) {
+		this.parent = parent;
+		this.held = held || (parent != null && parent.held);
+	}
+}
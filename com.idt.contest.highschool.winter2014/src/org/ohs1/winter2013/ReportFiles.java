@@ -0,0 +1,266 @@
+package org.ohs1.winter2013;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Creates the numbered files of the output logs and reports, see
+ * {@link BuiltInTester#createReportFile(String)}, and keeps their number down.
+ * <p>
+ * The next number of each file name is kept in a sequence index, a hidden
+ * file next to the files named after it, so a new file is created without
+ * looking at the files created before. The index is locked while it is
+ * updated, so programs sharing the directory get numbers of their own. A
+ * directory without an index is listed once to find the highest number used.
+ * <p>
+ * Once a file is created, the older files of its name are deleted if more
+ * than a number of them are kept or if they are older than an age, and the
+ * older ones still kept are compressed with gzip if only a number of them
+ * are to be kept as they are. Nothing is deleted or compressed unless set.
+ */
+final class ReportFiles {
+
+	// Extension of compressed files
+	private static final String GZIP_EXTENSION = ".gz";
+
+	// Appended to the name of a paged html report without its extension to
+	// name the directory of its data files, see PagedHtmlReportWriter
+	private static final String DATA_DIRECTORY_SUFFIX = "_files";
+
+	// Held while a sequence index is updated, since a JVM cannot lock the same
+	// file twice
+	private static final Object indexLock = new Object();
+
+	// The number of files of each name kept, 0 to keep them all
+	private volatile int maxFiles;
+
+	// The age in milliseconds after which files are deleted, 0 to keep them
+	private volatile long maxAgeMillis;
+
+	// The number of files of each name not compressed, 0 to compress none
+	private volatile int uncompressedFiles;
+
+	// Sets which older files are deleted, 0 for no limit
+	void setRetention(int maxFiles, long maxAgeMillis) {
+		this.maxFiles = Math.max(0, maxFiles);
+		this.maxAgeMillis = Math.max(0, maxAgeMillis);
+	}
+
+	// Sets the number of files of each name not compressed, 0 to compress none
+	void setUncompressed(int uncompressedFiles) {
+		this.uncompressedFiles = Math.max(0, uncompressedFiles);
+	}
+
+	/*
+	 * Creates the next file of template, the template's name with 3 digits
+	 * appended before its extension, then deletes and compresses the older
+	 * files of the same name
+	 */
+	File create(File template) throws IOException {
+		File directory = template.getParentFile();
+		directory.mkdirs();
+		Name name = new Name(template.getName());
+
+		File f = next(directory, name);
+		if (maxFiles > 0 || maxAgeMillis > 0 || uncompressedFiles > 0) {
+			tidy(directory, name, f);
+		}
+		return f;
+	}
+
+	// Takes the next number from the sequence index and creates its file
+	private File next(File directory, Name name) throws IOException {
+		File index = new File(directory, "." + name.fileName + ".next");
+
+		synchronized (indexLock) {
+			try (RandomAccessFile indexFile = new RandomAccessFile(index, "rw")) {
+				FileLock lock = indexFile.getChannel().lock();
+				try {
+					int number = -1;
+					String line = indexFile.readLine();
+					if (line != null) {
+						try {
+							number = Integer.parseInt(line.trim());
+						} catch (NumberFormatException e) {
+							number = -1;
+						}
+					}
+					if (number < 0) {
+						// no index yet, continue after the highest number in use
+						number = 0;
+						for (Numbered file : list(directory, name)) {
+							number = Math.max(number, file.number + 1);
+						}
+					}
+
+					// A file can still exist if it was created without the index
+					File f = name.numbered(directory, number);
+					while (new File(f.getPath() + GZIP_EXTENSION).exists() || !f.createNewFile()) {
+						number++;
+						f = name.numbered(directory, number);
+					}
+
+					indexFile.setLength(0);
+					indexFile.writeBytes(Integer.toString(number + 1) + "\n");
+					return f;
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	// Deletes and compresses the files of name older than created
+	private void tidy(File directory, Name name, File created) {
+		List<Numbered> files = list(directory, name);
+		// Newest first
+		Collections.sort(files, new Comparator<Numbered>() {
+			@Override
+			public int compare(Numbered a, Numbered b) {
+				return Integer.compare(b.number, a.number);
+			}
+		});
+
+		long now = System.currentTimeMillis();
+		int kept = 0;
+		for (Numbered numbered : files) {
+			File file = numbered.file;
+			if (file.equals(created)) {
+				kept++;
+				continue;
+			}
+			boolean expired = maxAgeMillis > 0 && now - file.lastModified() > maxAgeMillis;
+			if ((maxFiles > 0 && kept >= maxFiles) || expired) {
+				delete(file);
+				delete(name.dataDirectory(directory, numbered.number));
+			} else {
+				kept++;
+				if (uncompressedFiles > 0 && kept > uncompressedFiles && !numbered.compressed) {
+					try {
+						compress(file);
+					} catch (IOException e) {
+						// left as it is, tried again with the next file
+					}
+				}
+			}
+		}
+	}
+
+	// Lists the numbered files of name in directory, compressed or not
+	private List<Numbered> list(File directory, Name name) {
+		List<Numbered> files = new ArrayList<>();
+		String[] fileNames = directory.list();
+		if (fileNames == null) {
+			return files;
+		}
+		for (String fileName : fileNames) {
+			Numbered numbered = name.parse(directory, fileName);
+			if (numbered != null) {
+				files.add(numbered);
+			}
+		}
+		return files;
+	}
+
+	// Replaces file with a compressed copy keeping its modification time
+	private void compress(File file) throws IOException {
+		File compressed = new File(file.getPath() + GZIP_EXTENSION);
+		try (InputStream in = new FileInputStream(file);
+				OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed))) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				out.write(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			compressed.delete();
+			throw e;
+		}
+		compressed.setLastModified(file.lastModified());
+		file.delete();
+	}
+
+	// Deletes a file, or a directory with everything in it
+	private void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/*
+	 * A file name split around the point the number is inserted, before its
+	 * extension
+	 */
+	private static final class Name {
+
+		private final String fileName;
+		private final String prefix;
+		private final String extension;
+
+		Name(String fileName) {
+			this.fileName = fileName;
+			int dot = fileName.lastIndexOf('.');
+			this.prefix = (dot >= 0) ? fileName.substring(0, dot) : fileName;
+			this.extension = (dot >= 0) ? fileName.substring(dot) : "";
+		}
+
+		File numbered(File directory, int number) {
+			return new File(directory, prefix + new DecimalFormat("000").format(number) + extension);
+		}
+
+		File dataDirectory(File directory, int number) {
+			return new File(directory, prefix + new DecimalFormat("000").format(number) + DATA_DIRECTORY_SUFFIX);
+		}
+
+		// Returns the numbered file named fileName, null if it is not one
+		Numbered parse(File directory, String fileName) {
+			boolean compressed = fileName.endsWith(extension + GZIP_EXTENSION);
+			String withoutGzip = compressed ? fileName.substring(0, fileName.length() - GZIP_EXTENSION.length()) : fileName;
+			if (withoutGzip.length() < prefix.length() + 3 + extension.length()
+					|| !withoutGzip.startsWith(prefix) || !withoutGzip.endsWith(extension)) {
+				return null;
+			}
+			String digits = withoutGzip.substring(prefix.length(), withoutGzip.length() - extension.length());
+			for (int i = 0; i < digits.length(); i++) {
+				if (digits.charAt(i) < '0' || digits.charAt(i) > '9') {
+					return null;
+				}
+			}
+			try {
+				return new Numbered(new File(directory, fileName), Integer.parseInt(digits), compressed);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	// A numbered file found in the directory
+	private static final class Numbered {
+
+		private final File file;
+		private final int number;
+		private final boolean compressed;
+
+		Numbered(File file, int number, boolean compressed) {
+			this.file = file;
+			this.number = number;
+			this.compressed = compressed;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.ohs1.winter2013;
+
+/**
+ * Quotes log messages for the machine readable output logs. Messages can hold
+ * anything a tested method returns, so every character that could end or
+ * break the quoted text is escaped.
+ */
+final class ReportText {
+
+	private ReportText() {
+	}
+
+	// Returns s as a JSON string, also valid as a JavaScript string literal
+	static String json(String s) {
+		StringBuilder quoted = new StringBuilder(s.length() + 2);
+		quoted.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				quoted.append("\\\"");
+				break;
+			case '\\':
+				quoted.append("\\\\");
+				break;
+			case '\n':
+				quoted.append("\\n");
+				break;
+			case '\r':
+				quoted.append("\\r");
+				break;
+			case '\t':
+				quoted.append("\\t");
+				break;
+			default:
+				// line separators end a JavaScript string like a newline
+				if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+					quoted.append(String.format("\\u%04x", (int) c));
+				} else {
+					quoted.append(c);
+				}
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	// Returns s escaped for XML text and attribute values
+	static String xml(String s) {
+		StringBuilder escaped = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				escaped.append("&amp;");
+				break;
+			case '<':
+				escaped.append("&lt;");
+				break;
+			case '>':
+				escaped.append("&gt;");
+				break;
+			case '"':
+				escaped.append("&quot;");
+				break;
+			default:
+				// XML 1.0 cannot hold other control characters, even escaped
+				if (c < 0x20 && c != '\n' && c != '\r' && c != '\t') {
+					escaped.append('?');
+				} else {
+					escaped.append(c);
+				}
+			}
+		}
+		return escaped.toString();
+	}
+}
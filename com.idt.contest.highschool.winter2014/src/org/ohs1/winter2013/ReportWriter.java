@@ -0,0 +1,59 @@
+package org.ohs1.winter2013;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the output log in a format of its own. Writers are given to
+ * {@link BuiltInTester#setReportWriters(ReportWriter...)} and every call to
+ * {@link BuiltInTester#outputLog()} then creates a file for each of them and
+ * passes the log entries to all of them, one at a time and in the order they
+ * were created. A writer only has to keep in memory what its format needs
+ * before the last entry is written.
+ * <p>
+ * A writer writes every output log of a program: {@link #open(File, String)}
+ * is called at the start of each and {@link #close()} at its end, also if
+ * writing it failed.
+ */
+public interface ReportWriter {
+
+	/**
+	 * Gets the name of the files written. Three digits are inserted before
+	 * its extension so that each file is unique, like for the html output
+	 * log.
+	 *
+	 * @return The file name.
+	 */
+	String getFileName();
+
+	/**
+	 * Starts a new output log.
+	 *
+	 * @param file
+	 *            The file created for it, in the directory named after the
+	 *            program.
+	 * @param programName
+	 *            Name of the tested program.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	void open(File file, String programName) throws IOException;
+
+	/**
+	 * Adds a log entry to the output log.
+	 *
+	 * @param entry
+	 *            The next log entry.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	void write(LogEntry entry) throws IOException;
+
+	/**
+	 * Finishes the output log and releases what was used to write it.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	void close() throws IOException;
+}